@@ -0,0 +1,74 @@
+package no.paneon.api.diagram;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import no.paneon.api.diagram.app.args.Diagram;
+import no.paneon.api.model.APIModel;
+
+/*
+ * Complete diagrams pipeline (without images) for a TMF specification
+ *
+ * Without @LogMethod weaving (as the production profile):
+ *   mvn -P benchmark test-compile exec:exec -Dbenchmark.args="PipelineBenchmark"
+ * With @LogMethod weaving (load-time, same advice as the default build):
+ *   mvn -P benchmark,weaving test-compile exec:exec -Dbenchmark.args="PipelineBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PipelineBenchmark {
+
+	@Param({ "TMF622-ProductOrdering-v5.0.0.oas.yaml" })
+	public String source;
+
+	File target;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		target = Files.createTempDirectory("benchmark").toFile();
+	}
+
+	@Benchmark
+	public Object generateDiagrams() {
+		APIModel.clean();
+
+		Diagram args = new Diagram();
+		args.openAPIFile = source;
+		args.targetDirectory = target.getPath();
+		args.silentMode = true;
+
+		GenerateDiagram generator = new GenerateDiagram(args);
+		generator.execute();
+
+		return generator.getDiagramConfig();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		File[] files = target.listFiles();
+		if(files!=null) for(File f : files) f.delete();
+		target.delete();
+
+		APIModel.clean();
+	}
+
+}
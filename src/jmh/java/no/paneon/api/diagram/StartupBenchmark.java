@@ -0,0 +1,113 @@
+package no.paneon.api.diagram;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Start-up of the command line tool - time from starting a new JVM to the first .puml written,
+ * with and without the application class-data sharing archive of the cds profile
+ *
+ *   mvn -P cds package
+ *   mvn -P benchmark test-compile exec:exec -Dbenchmark.args="StartupBenchmark"
+ *
+ * The jar and archive default to the ones of the cds profile in target (-Dstartup.jar=..., -Dstartup.archive=...)
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StartupBenchmark {
+
+	@Param({ "TMF620-Product_Catalog_Management-v5.0.0.oas.yaml" })
+	public String source;
+
+	@Param({ "false", "true" })
+	public boolean cds;
+
+	File jar;
+	File archive;
+
+	File target;
+	Process process;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		jar = new File(System.getProperty("startup.jar", findJar()));
+		archive = new File(System.getProperty("startup.archive", "target/apidiagram.jsa"));
+
+		if(!jar.isFile() || (cds && !archive.isFile())) {
+			throw new IllegalStateException("jar " + jar + " or archive " + archive + " not found - build with mvn -P cds package");
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void start() throws IOException {
+		target = Files.createTempDirectory("startup").toFile();
+	}
+
+	@Benchmark
+	public File timeToFirstPuml() throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		if(cds) command.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+		command.add("-Djava.awt.headless=true");
+		command.add("-jar");
+		command.add(jar.getAbsolutePath());
+		command.add("diagrams");
+		command.add("-f");
+		command.add(new File(source).getAbsolutePath());
+		command.add("--target-directory");
+		command.add(target.getAbsolutePath());
+		command.add("--silent");
+
+		process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+
+		while(true) {
+			File[] files = target.listFiles((dir, name) -> name.endsWith(".puml"));
+			if(files!=null && files.length>0) return files[0];
+
+			if(!process.isAlive()) throw new IllegalStateException("no .puml generated - exit code " + process.exitValue());
+
+			Thread.sleep(1);
+		}
+	}
+
+	@TearDown(Level.Invocation)
+	public void stop() throws InterruptedException {
+		if(process!=null) {
+			process.destroyForcibly().waitFor();
+			process = null;
+		}
+
+		File[] files = target.listFiles();
+		if(files!=null) for(File f : files) f.delete();
+		target.delete();
+	}
+
+	private static String findJar() {
+		File[] jars = new File("target").listFiles((dir, name) -> name.startsWith("apidiagram-") && name.endsWith(".jar")
+																&& !name.endsWith("-exec.jar") && !name.endsWith("-sources.jar"));
+		return jars!=null && jars.length>0 ? jars[0].getPath() : "target/apidiagram.jar";
+	}
+
+}
@@ -0,0 +1,94 @@
+package no.paneon.api.diagram.layout;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import no.paneon.api.diagram.puml.Diagram;
+import no.paneon.api.graph.Node;
+
+/*
+ * Hot paths of the layout engine - run with the GC profiler for allocation rates:
+ *   mvn -P benchmark test-compile exec:exec -Dbenchmark.args="LayoutBenchmark -prof gc"
+ * Circle heavy diagram (place paths):
+ *   mvn -P benchmark test-compile exec:exec -Dbenchmark.args="LayoutBenchmark.(getPlacePaths|generateUMLEdges) 
+ *        -p source=TMF620-Product_Catalog_Management-v5.0.0.oas.yaml -p layoutResource=ProductOffering"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LayoutBenchmark {
+
+	static final List<Place> DIRECTIONS = List.of(Place.LEFT, Place.RIGHT, Place.ABOVE, Place.BELOW);
+
+	@Benchmark
+	public Diagram generateUMLEdges(LayoutFixture fixture) {
+		return fixture.layout(fixture.newLayout());
+	}
+
+	@Benchmark
+	public void getPlacedAt(LayoutFixture fixture, Blackhole bh) {
+		for(Node node : fixture.nodes) {
+			for(Place direction : DIRECTIONS) {
+				bh.consume(fixture.layoutGraph.getPlacedAt(node, direction));
+			}
+		}
+	}
+
+	@Benchmark
+	public void isPath(LayoutFixture fixture, Blackhole bh) {
+		List<Node> exclude = Collections.emptyList();
+		for(Node[] pair : fixture.pairs) {
+			bh.consume(fixture.layoutGraph.isPath(pair[0], pair[1], exclude));
+		}
+	}
+
+	/*
+	 * Memoised after the first invocation (the layout graph of the fixture is not changed) - the lookups; the searches
+	 * are part of generateUMLEdges
+	 */
+	@Benchmark
+	public void getPlacePaths(LayoutFixture fixture, Blackhole bh) {
+		LayoutGraph layoutGraph = fixture.layoutGraph;
+		for(Node[] pair : fixture.pairs) {
+			bh.consume(layoutGraph.getPlacePaths(new HashSet<>(layoutGraph.getNeighbours(pair[0])), new HashSet<>(layoutGraph.getNeighbours(pair[1]))));
+		}
+	}
+
+	@Benchmark
+	public void currentlyPlacedAtLevel(LayoutFixture fixture, Blackhole bh) {
+		for(Node node : fixture.nodes) {
+			for(int offset=-1; offset<=1; offset++) {
+				bh.consume(fixture.layoutGraph.currentlyPlacedAtLevel(node, offset));
+			}
+		}
+	}
+
+	@Benchmark
+	public void computeLayout(LayoutFixture fixture, Blackhole bh) {
+		for(Node node : fixture.nodes) {
+			EdgeAnalyzer analyzer = new EdgeAnalyzer(fixture.layoutGraph, node, new HashMap<>());
+			analyzer.computeLayout();
+			bh.consume(analyzer);
+		}
+	}
+
+	@Benchmark
+	public String diagramToString(LayoutFixture fixture) {
+		return fixture.diagram.toString();
+	}
+
+}
@@ -0,0 +1,118 @@
+package no.paneon.api.diagram.layout;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import no.paneon.api.diagram.GenerateDiagram;
+import no.paneon.api.diagram.puml.Diagram;
+import no.paneon.api.graph.APIGraph;
+import no.paneon.api.graph.Node;
+import no.paneon.api.model.APIModel;
+
+/*
+ * Laid out diagram for the first (or the given) resource of a TMF specification (repository root)
+ * or of a synthetic specification ("synthetic:<number of schemas>")
+ */
+@State(Scope.Benchmark)
+public class LayoutFixture {
+
+	@Param({ "TMF620-Product_Catalog_Management-v5.0.0.oas.yaml",
+			 "TMF622-ProductOrdering-v5.0.0.oas.yaml",
+			 "synthetic:25", "synthetic:100", "synthetic:400" })
+	public String source;
+
+	// resource to lay out - the first resource of the specification when empty
+	@Param({ "" })
+	public String layoutResource;
+
+	static final int MAX_PAIRS = 500;
+
+	DiagramGenerator generator;
+	String resource;
+	APIGraph apiGraph;
+	List<String> subGraphs;
+
+	Layout layout;
+	LayoutGraph layoutGraph;
+	Diagram diagram;
+
+	List<Node> nodes;
+	List<Node[]> pairs;
+
+	File target;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		String file = source;
+		if(source.startsWith("synthetic:")) {
+			file = SyntheticAPI.create(Integer.parseInt(source.substring("synthetic:".length()))).getPath();
+		}
+
+		target = Files.createTempDirectory("benchmark").toFile();
+
+		no.paneon.api.diagram.app.args.Diagram args = new no.paneon.api.diagram.app.args.Diagram();
+		args.openAPIFile = file;
+		args.targetDirectory = target.getPath();
+		args.silentMode = true;
+
+		// complete run once - sets up configuration as for the command line
+		new GenerateDiagram(args).execute();
+
+		generator = new DiagramGenerator(args, file, target.getPath());
+		if(!layoutResource.isEmpty()) {
+			resource = layoutResource;
+		} else {
+			resource = source.startsWith("synthetic:") ? SyntheticAPI.RESOURCE : APIModel.getResources().get(0);
+		}
+
+		apiGraph = new APIGraph(resource);
+		subGraphs = new LinkedList<>();
+		subGraphs.add(resource);
+
+		layout = newLayout();
+		diagram = layout(layout);
+		layoutGraph = layout.layoutGraph;
+
+		nodes = new ArrayList<>(layoutGraph.getPlacedNodes());
+		nodes.sort((a,b) -> a.getName().compareTo(b.getName()));
+
+		pairs = new ArrayList<>();
+		for(Node from : nodes) {
+			for(Node to : nodes) {
+				if(!from.equals(to) && pairs.size()<MAX_PAIRS) pairs.add(new Node[] { from, to });
+			}
+		}
+	}
+
+	/*
+	 * Class generation and edge layout (Layout.generateUMLEdges for the core graph and remaining nodes)
+	 */
+	Diagram layout(Layout layout) {
+		Diagram res = new Diagram(generator.args, generator.file, resource);
+		return generator.generateDiagramForGraph(res, layout, resource, apiGraph, subGraphs);
+	}
+
+	Layout newLayout() {
+		return new Layout(apiGraph, generator.layoutConfig);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		File[] files = target.listFiles();
+		if(files!=null) for(File f : files) f.delete();
+		target.delete();
+
+		APIModel.clean();
+	}
+
+}
@@ -0,0 +1,75 @@
+package no.paneon.api.diagram.layout;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/*
+ * Synthetic OpenAPI specification of a given size - one resource with a tree of
+ * sub-schemas, cross references (cycles) and enums
+ */
+class SyntheticAPI {
+
+	static final String RESOURCE = "Synthetic";
+
+	private SyntheticAPI() {
+	}
+
+	static File create(int size) throws IOException {
+		StringBuilder res = new StringBuilder();
+
+		res.append("openapi: 3.0.1\n");
+		res.append("info:\n  title: Synthetic\n  version: 1.0.0\n");
+		res.append("paths:\n");
+		res.append("  /synthetic:\n    get:\n      operationId: listSynthetic\n      responses:\n");
+		res.append("        '200':\n          description: OK\n          content:\n            application/json:\n");
+		res.append("              schema:\n                type: array\n                items:\n");
+		res.append("                  $ref: '#/components/schemas/").append(RESOURCE).append("'\n");
+		res.append("  /synthetic/{id}:\n    get:\n      operationId: retrieveSynthetic\n");
+		res.append("      parameters:\n        - name: id\n          in: path\n          required: true\n          schema:\n            type: string\n");
+		res.append("      responses:\n        '200':\n          description: OK\n          content:\n            application/json:\n");
+		res.append("              schema:\n                $ref: '#/components/schemas/").append(RESOURCE).append("'\n");
+
+		res.append("components:\n  schemas:\n");
+
+		res.append("    ").append(RESOURCE).append(":\n      type: object\n      required:\n        - id\n      properties:\n");
+		res.append("        id:\n          type: string\n");
+		res.append("        href:\n          type: string\n");
+		for(int i=0; i<Math.min(size, 2); i++) {
+			res.append("        s").append(i).append(":\n          $ref: '#/components/schemas/S").append(i).append("'\n");
+		}
+
+		for(int i=0; i<size; i++) {
+			res.append("    S").append(i).append(":\n      type: object\n      properties:\n");
+			res.append("        name:\n          type: string\n");
+			res.append("        value:\n          type: integer\n");
+
+			for(int child : new int[] { 2*i+2, 2*i+3 }) {
+				if(child<size) {
+					res.append("        s").append(child).append(":\n          type: array\n          items:\n");
+					res.append("            $ref: '#/components/schemas/S").append(child).append("'\n");
+				}
+			}
+
+			if(i%5==4) {
+				int ref = (i*7+3) % size;
+				res.append("        ref").append(ref).append(":\n          $ref: '#/components/schemas/S").append(ref).append("'\n");
+			}
+
+			if(i%10==0) {
+				res.append("        state:\n          $ref: '#/components/schemas/E").append(i).append("'\n");
+			}
+		}
+
+		for(int i=0; i<size; i+=10) {
+			res.append("    E").append(i).append(":\n      type: string\n      enum:\n        - active\n        - inactive\n        - terminated\n");
+		}
+
+		File file = File.createTempFile("synthetic-" + size + "-", ".yaml");
+		file.deleteOnExit();
+		Files.writeString(file.toPath(), res);
+
+		return file;
+	}
+
+}
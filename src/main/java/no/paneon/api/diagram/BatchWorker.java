@@ -0,0 +1,104 @@
+package no.paneon.api.diagram;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import no.paneon.api.diagram.app.args.Diagram;
+
+/*
+ * Worker process of the batch command (GenerateBatch) - the diagrams of one specification in a JVM of its own
+ *   java -cp <class path> no.paneon.api.diagram.BatchWorker <arguments (json)> <result (json)>
+ * The arguments are the fields of the diagrams command (toJSON), the result the number of diagrams or the error
+ */
+public class BatchWorker {
+
+	static final Logger LOG = LogManager.getLogger(BatchWorker.class);
+
+	static final String DIAGRAMS = "diagrams";
+	static final String ERROR = "error";
+
+	private BatchWorker() {
+	}
+
+	public static void main(String ... argv) {
+		System.setProperty("java.awt.headless", "true");
+
+		JSONObject result = new JSONObject();
+		int status = 0;
+
+		try {
+			Diagram args = fromJSON(new JSONObject(Files.readString(new File(argv[0]).toPath(), StandardCharsets.UTF_8)));
+
+			Map<String,String> diagramConfig = GenerateBatch.generate(args);
+
+			result.put(DIAGRAMS, diagramConfig!=null ? diagramConfig.size() : 0);
+
+		} catch(Exception ex) {
+			result.put(ERROR, GenerateBatch.getMessage(ex));
+			status = 1;
+		}
+
+		try {
+			Files.writeString(new File(argv[1]).toPath(), result.toString(), StandardCharsets.UTF_8);
+		} catch(IOException ex) {
+			LOG.debug("main: unable to write result {}: {}", argv[1], ex.getLocalizedMessage());
+			status = 1;
+		}
+
+		// the executors of the run may keep the JVM alive
+		System.exit(status);
+	}
+
+	static JSONObject toJSON(Diagram args) throws IllegalAccessException {
+		JSONObject res = new JSONObject();
+		for(Field field : Diagram.class.getFields()) {
+			Object value = field.get(args);
+			if(value instanceof List) value = new JSONArray((List<?>) value);
+			res.put(field.getName(), value!=null ? value : JSONObject.NULL);
+		}
+		return res;
+	}
+
+	static Diagram fromJSON(JSONObject json) throws IllegalAccessException {
+		Diagram res = new Diagram();
+		for(Field field : Diagram.class.getFields()) {
+			if(!json.has(field.getName())) continue;
+
+			Class<?> type = field.getType();
+			String name = field.getName();
+
+			if(json.isNull(name)) {
+				if(!type.isPrimitive()) field.set(res, null);
+			} else if(type==boolean.class || type==Boolean.class) {
+				field.set(res, json.getBoolean(name));
+			} else if(type==int.class || type==Integer.class) {
+				field.set(res, json.getInt(name));
+			} else if(type==long.class || type==Long.class) {
+				field.set(res, json.getLong(name));
+			} else if(type==double.class || type==Double.class) {
+				field.set(res, json.getDouble(name));
+			} else if(List.class.isAssignableFrom(type)) {
+				List<String> values = new ArrayList<>();
+				json.getJSONArray(name).forEach(value -> values.add(String.valueOf(value)));
+				field.set(res, values);
+			} else if(type==String.class) {
+				field.set(res, json.getString(name));
+			} else {
+				LOG.debug("fromJSON: argument {} of type {} not passed to the worker", name, type);
+			}
+		}
+		return res;
+	}
+
+}
@@ -0,0 +1,280 @@
+package no.paneon.api.diagram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import no.paneon.api.diagram.app.args.Diagram;
+
+/*
+ * On-disk content-addressed cache of generated diagrams (.puml) and rendered images
+ *
+ * Entries are keyed by a hash of the tool version and the inputs of the step (graph, options, source).
+ * Least recently used entries are evicted when above the size limit or older than the age limit.
+ */
+public class DiagramCache {
+
+    static final Logger LOG = LogManager.getLogger(DiagramCache.class);
+
+	static final String VERSION = getToolVersion();
+
+	// options not affecting the content of the generated diagrams (the file name of the specification is in the key of each diagram)
+	static final List<String> IGNORED_OPTIONS = Arrays.asList("openAPIFile", "files", "targetDirectory", "generatedTargetDirectory",
+			"parallelism", "imageWorkers", "imageWorkerMemory", "generateImages", "imageFormat", "baseline",
+			"cacheDirectory", "cacheMaxSize", "cacheMaxAge", "debug", "silentMode", "timestamp", "exitOnError");
+
+	/* Options naming files read when generating - the content is part of the options */
+	static final List<String> FILE_OPTIONS = Arrays.asList("defaults", "conformance", "existingSpecification", "rulesFile",
+			"subResourceConfig", "orphanEnumConfig", "schemaDefaultsSource", "template", "layout");
+
+	File directory;
+	long maxSize;
+	long maxAge;
+
+	Map<String,AtomicInteger> hits = new ConcurrentHashMap<>();
+	Map<String,AtomicInteger> misses = new ConcurrentHashMap<>();
+
+	public DiagramCache(String directory, int maxSizeMB, int maxAgeDays) {
+		this.directory = new File(directory);
+		this.maxSize = maxSizeMB * 1024L * 1024L;
+		this.maxAge = TimeUnit.DAYS.toMillis(maxAgeDays);
+
+		this.directory.mkdirs();
+	}
+
+	public static DiagramCache create(Diagram args) {
+		if(args.cacheDirectory==null) return null;
+		return new DiagramCache(args.cacheDirectory, args.cacheMaxSize, args.cacheMaxAge);
+	}
+
+	public String getKey(String ... parts) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(VERSION.getBytes(StandardCharsets.UTF_8));
+			for(String part : parts) {
+				digest.update((byte) 0);
+				digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+			}
+			return HexFormat.of().formatHex(digest.digest());
+		} catch(NoSuchAlgorithmException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/*
+	 * The options and configuration sources that affect the generated diagrams
+	 */
+	public static String getOptions(Diagram args) {
+		Map<String,String> options = new TreeMap<>();
+
+		for(Field field : Diagram.class.getFields()) {
+			if(IGNORED_OPTIONS.contains(field.getName())) continue;
+			try {
+				options.put(field.getName(), String.valueOf(field.get(args)));
+			} catch(IllegalAccessException ex) {
+				LOG.debug("getOptions: field={} exception={}", field.getName(), ex.getLocalizedMessage());
+			}
+		}
+
+		for(String option : FILE_OPTIONS) {
+			try {
+				Object file = Diagram.class.getField(option).get(args);
+				if(file!=null && !file.toString().isEmpty()) options.put(option + ":content", readContent(new File(file.toString())));
+			} catch(ReflectiveOperationException ex) {
+				LOG.debug("getOptions: field={} exception={}", option, ex.getLocalizedMessage());
+			}
+		}
+
+		for(String config : args.configs) {
+			options.put(config, readContent(new File(config)));
+		}
+
+		return options.toString();
+	}
+
+	public Optional<byte[]> get(String key, String type) {
+		File entry = getEntry(key, type);
+
+		byte[] content = null;
+		if(entry.isFile()) {
+			try {
+				content = Files.readAllBytes(entry.toPath());
+				entry.setLastModified(System.currentTimeMillis());
+			} catch(IOException ex) {
+				LOG.debug("get: entry={} exception={}", entry, ex.getLocalizedMessage());
+			}
+		}
+
+		count(content!=null, type);
+
+		return Optional.ofNullable(content);
+	}
+
+	/*
+	 * Copy of the entry to the (temporary) file - false when not cached
+	 */
+	public boolean copy(String key, String type, File file) {
+		File entry = getEntry(key, type);
+
+		boolean res = false;
+		if(entry.isFile()) {
+			try {
+				Files.copy(entry.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				entry.setLastModified(System.currentTimeMillis());
+				res = true;
+			} catch(IOException ex) {
+				LOG.debug("copy: entry={} exception={}", entry, ex.getLocalizedMessage());
+			}
+		}
+
+		count(res, type);
+
+		return res;
+	}
+
+	private void count(boolean hit, String type) {
+		(hit ? hits : misses).computeIfAbsent(type, t -> new AtomicInteger()).incrementAndGet();
+	}
+
+	public void put(String key, String type, byte[] content) {
+		File entry = getEntry(key, type);
+		File tmp = getTemporary(entry);
+		try {
+			Files.write(tmp.toPath(), content);
+			if(!tmp.renameTo(entry)) tmp.delete();
+		} catch(IOException ex) {
+			LOG.debug("put: entry={} exception={}", entry, ex.getLocalizedMessage());
+			tmp.delete();
+		}
+	}
+
+	public void put(String key, String type, File content) {
+		File entry = getEntry(key, type);
+		File tmp = getTemporary(entry);
+		try {
+			Files.copy(content.toPath(), tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			if(!tmp.renameTo(entry)) tmp.delete();
+		} catch(IOException ex) {
+			LOG.debug("put: entry={} exception={}", entry, ex.getLocalizedMessage());
+			tmp.delete();
+		}
+	}
+
+	/*
+	 * Temporary file next to the file - for the writing thread
+	 */
+	static File getTemporary(File file) {
+		return new File(file.getParentFile(), file.getName() + "." + Thread.currentThread().getId() + ".tmp");
+	}
+
+	private File getEntry(String key, String type) {
+		return new File(directory, key + "." + type);
+	}
+
+	/*
+	 * Write only when the content is different - keeps the modification time of unchanged output
+	 */
+	public static boolean writeIfChanged(File file, byte[] content) throws IOException {
+		if(file.isFile() && file.length()==content.length && Arrays.equals(Files.readAllBytes(file.toPath()), content)) {
+			return false;
+		}
+		Files.write(file.toPath(), content);
+		return true;
+	}
+
+	/*
+	 * As writeIfChanged with the content in a temporary file - moved to the file when different, deleted otherwise
+	 */
+	public static boolean writeIfChanged(File file, File content) throws IOException {
+		if(file.isFile() && Files.mismatch(file.toPath(), content.toPath())==-1) {
+			Files.delete(content.toPath());
+			return false;
+		}
+		Files.move(content.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		return true;
+	}
+
+	public void evict() {
+		File[] files = directory.listFiles(File::isFile);
+		if(files==null) return;
+
+		long now = System.currentTimeMillis();
+		long size = 0;
+		int evicted = 0;
+
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+
+		for(File file : files) {
+			size += file.length();
+			if(size>maxSize || now-file.lastModified()>maxAge) {
+				if(file.delete()) evicted++;
+			}
+		}
+
+		LOG.debug("evict: entries={} evicted={}", files.length, evicted);
+	}
+
+	public String getSummary() {
+		Set<String> types = new TreeSet<>(hits.keySet());
+		types.addAll(misses.keySet());
+		
+		return types.stream()
+				.map(type -> type + " " + count(hits, type) + " hits / " + count(misses, type) + " misses")
+				.collect(Collectors.joining(", "));
+	}
+
+	public int getHits(String type) {
+		return count(hits, type);
+	}
+
+	public int getMisses(String type) {
+		return count(misses, type);
+	}
+
+	private static int count(Map<String,AtomicInteger> counters, String type) {
+		AtomicInteger counter = counters.get(type);
+		return counter!=null ? counter.get() : 0;
+	}
+
+	private static String readContent(File file) {
+		try {
+			return file.isFile() ? new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8) : "";
+		} catch(IOException ex) {
+			return "";
+		}
+	}
+
+	private static String getToolVersion() {
+		try(InputStream in = DiagramCache.class.getClassLoader().getResourceAsStream("project.properties")) {
+			Properties properties = new Properties();
+			if(in!=null) properties.load(in);
+			return properties.getProperty("version", "");
+		} catch(IOException ex) {
+			return "";
+		}
+	}
+
+}
@@ -0,0 +1,146 @@
+package no.paneon.api.diagram;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * JDK Flight Recorder events of the pipeline stages and the layout phases - recorded with
+ *   java -XX:StartFlightRecording=filename=oas2puml.jfr ...
+ * The events are disabled (begin / commit without effect) unless a recording is running - and the layout phases,
+ * started for every node, are then not allocated
+ */
+public class Events {
+
+	static final String CATEGORY = "oas2puml";
+
+	private Events() {
+	}
+
+	@Name("no.paneon.api.SpecLoad")
+	@Label("Specification Load")
+	@Category({CATEGORY, "Pipeline"})
+	@StackTrace(false)
+	public static class SpecLoad extends Event {
+		@Label("File")
+		public String file;
+	}
+
+	@Name("no.paneon.api.SubGraphs")
+	@Label("Sub-graph Generation")
+	@Category({CATEGORY, "Pipeline"})
+	@StackTrace(false)
+	public static class SubGraphs extends Event {
+		@Label("Resource")
+		public String resource;
+
+		@Label("Sub-graphs")
+		public int subGraphs;
+	}
+
+	@Name("no.paneon.api.LayoutPhase")
+	@Label("Layout Phase")
+	@Description("Phase of Layout.generateUMLEdges for one node")
+	@Category({CATEGORY, "Layout"})
+	@StackTrace(false)
+	public static class LayoutPhase extends Event {
+		@Label("Resource")
+		public String resource;
+
+		@Label("Pivot")
+		public String pivot;
+
+		@Label("Node")
+		public String node;
+
+		@Label("Phase")
+		public String phase;
+
+		@Label("Edges")
+		@Description("Edges of the node added by the phase")
+		public int edges;
+
+		// not recorded
+		transient int edgeCount;
+
+		// phases of every node - allocated only while a recording has the event enabled
+		static final EventType TYPE = EventType.getEventType(LayoutPhase.class);
+		static final LayoutPhase DISABLED = new LayoutPhase();
+
+		public static LayoutPhase start(String resource, String pivot, String node, int edgeCount) {
+			if(!TYPE.isEnabled()) return DISABLED;
+
+			LayoutPhase event = new LayoutPhase();
+			event.resource = resource;
+			event.pivot = pivot;
+			event.node = node;
+			event.edgeCount = edgeCount;
+			event.begin();
+			return event;
+		}
+
+		/*
+		 * Commits this phase and starts the next one
+		 */
+		public LayoutPhase next(String phase, int edgeCount) {
+			if(this==DISABLED) return DISABLED;
+
+			complete(phase, edgeCount);
+			return start(resource, pivot, node, edgeCount);
+		}
+
+		public void complete(String phase, int edgeCount) {
+			if(this==DISABLED) return;
+
+			end();
+			if(shouldCommit()) {
+				this.phase = phase;
+				this.edges = edgeCount - this.edgeCount;
+				commit();
+			}
+		}
+	}
+
+	@Name("no.paneon.api.PumlWrite")
+	@Label("PUML Serialisation")
+	@Category({CATEGORY, "Pipeline"})
+	@StackTrace(false)
+	public static class PumlWrite extends Event {
+		@Label("Resource")
+		public String resource;
+
+		@Label("Pivot")
+		public String pivot;
+
+		@Label("Label")
+		public String label;
+
+		@Label("Cached")
+		public boolean cached;
+	}
+
+	@Name("no.paneon.api.ImageRender")
+	@Label("Image Rendering")
+	@Category({CATEGORY, "Pipeline"})
+	@StackTrace(false)
+	public static class ImageRender extends Event {
+		@Label("File")
+		public String file;
+
+		@Label("Format")
+		public String format;
+
+		@Label("Cached")
+		public boolean cached;
+
+		@Label("Output Size")
+		@DataAmount
+		public long outputBytes;
+	}
+
+}
@@ -0,0 +1,340 @@
+package no.paneon.api.diagram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import no.paneon.api.diagram.app.args.Batch;
+import no.paneon.api.diagram.app.args.Diagram;
+import no.paneon.api.diagram.puml.FragmentCache;
+import no.paneon.api.logging.AspectLogger.LogLevel;
+import no.paneon.api.logging.LogMethod;
+import no.paneon.api.model.APIModel;
+import no.paneon.api.utils.Config;
+import no.paneon.api.utils.Out;
+import no.paneon.api.utils.Utils;
+
+/*
+ * Generate diagrams for a set of API specifications in one invocation.
+ *
+ * Each specification is processed in a JVM of its own (BatchWorker) - the API model, configuration and caches are 
+ * static, and isolated by the process. Up to --workers specifications are processed at the same time, the diagrams
+ * of each in parallel as for --parallelism. One failing specification does not stop the others.
+ *
+ * The output of a specification is written to the target directory under the path of the specification relative
+ * to the directory given (the base name for files given directly); specifications with the same output directory fail.
+ */
+public class GenerateBatch {
+
+	static final Logger LOG = LogManager.getLogger(GenerateBatch.class);
+
+	static final List<String> EXTENSIONS = Arrays.asList(".yaml", ".yml", ".json");
+
+	static final Pattern API_MARKER = Pattern.compile("[\"']?(openapi|swagger|asyncapi)[\"']?\\s*:");
+
+	static final int SNIFF_SIZE = 4096;
+
+	static final String WORKER_LOG = "batch.log";
+
+	static final List<String> WORKER_OPTIONS = Arrays.asList("-Xmx", "-Xms", "-Xss", "-D");
+
+	Batch args;
+
+	public GenerateBatch(Batch args) {
+		this.args = args;
+	}
+
+	private static class BatchResult {
+		File spec;
+		String directory;
+		int diagrams = 0;
+		String error = null;
+		double seconds;
+		
+		BatchResult(File spec, String directory) {
+			this.spec = spec;
+			this.directory = directory;
+		}
+	}
+
+	public void execute() {
+
+		List<String> sources = new LinkedList<>(args.files);
+		if(args.openAPIFile!=null) sources.add(0, args.openAPIFile);
+
+		List<BatchResult> results = getSpecifications(sources);
+
+		if(results.isEmpty()) {
+			Out.printAlways("... no API specifications found in {}", sources);
+			return;
+		}
+
+		markDuplicates(results);
+
+		int workers = Math.max(1, Math.min(results.size(), args.workers>0 ? args.workers : Runtime.getRuntime().availableProcessors()));
+
+		Out.printAlways("... processing {} API specifications using {} workers", results.size(), workers);
+
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		try {
+			List<Future<?>> tasks = new LinkedList<>();
+			for(BatchResult result : results) {
+				if(result.error==null) tasks.add( pool.submit(() -> process(result)) );
+			}
+			
+			for(Future<?> task : tasks) {
+				waitFor(task);
+			}
+			
+		} finally {
+			pool.shutdown();
+		}
+
+		saveSummary(results);
+
+	}
+
+	private static void waitFor(Future<?> task) {
+		try {
+			task.get();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} catch(ExecutionException ex) {
+			LOG.debug("waitFor: exception={}", ex.getCause().getLocalizedMessage());
+		}
+	}
+
+	/*
+	 * Specifications written to the same directory are not processed
+	 */
+	private void markDuplicates(List<BatchResult> results) {
+		Map<String,List<BatchResult>> byDirectory = results.stream().collect(Collectors.groupingBy(r -> r.directory, LinkedHashMap::new, Collectors.toList()));
+
+		byDirectory.values().stream()
+			.filter(same -> same.size()>1)
+			.forEach(same -> same.forEach(result -> {
+				result.error = "output directory " + result.directory + " also used by " 
+								+ same.stream().filter(r -> r!=result).map(r -> r.spec.getPath()).collect(Collectors.joining(", "));
+				Out.printAlways("... {}: failed - {}", result.spec.getPath(), result.error);
+			}));
+	}
+
+	@LogMethod(level=LogLevel.DEBUG)
+	private void process(BatchResult result) {
+
+		File spec = result.spec;
+		long start = System.nanoTime();
+
+		try {
+			Diagram diagramArgs = (Diagram) copyArguments(args, new Diagram());
+
+			diagramArgs.openAPIFile = spec.getPath();
+			diagramArgs.files = new ArrayList<>();
+			diagramArgs.targetDirectory = result.directory;
+			diagramArgs.exitOnError = false;
+
+			if(args.profile!=null) {
+				diagramArgs.profile = result.directory + File.separator + new File(args.profile).getName();
+			}
+
+			Files.createDirectories(new File(result.directory).toPath());
+
+			result.diagrams = runWorker(diagramArgs, new File(result.directory));
+
+		} catch(Exception ex) {
+			result.error = getMessage(ex);
+		}
+
+		result.seconds = (System.nanoTime() - start) / 1e9;
+
+		if(result.error!=null) {
+			Out.printAlways("... {}: failed - {}", spec.getPath(), result.error);
+		} else {
+			Out.printAlways("... {}: {} diagrams ({} sec)", spec.getPath(), result.diagrams, String.format("%.1f", result.seconds));
+		}
+	}
+
+	/*
+	 * The diagrams of the specification generated by a worker process - the output of the worker is in batch.log
+	 * of the directory
+	 */
+	private int runWorker(Diagram diagramArgs, File directory) throws IOException, InterruptedException, ReflectiveOperationException {
+		File arguments = File.createTempFile("batch", ".json");
+		File result = File.createTempFile("batch", ".result.json");
+		try {
+			Files.writeString(arguments.toPath(), BatchWorker.toJSON(diagramArgs).toString(), StandardCharsets.UTF_8);
+
+			List<String> command = new LinkedList<>();
+			command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+			command.addAll(getWorkerOptions());
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add(BatchWorker.class.getName());
+			command.add(arguments.getPath());
+			command.add(result.getPath());
+
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.redirectErrorStream(true);
+			builder.redirectOutput(new File(directory, WORKER_LOG));
+
+			int exitCode = builder.start().waitFor();
+
+			JSONObject json = result.length()>0 ? new JSONObject(Files.readString(result.toPath(), StandardCharsets.UTF_8)) : new JSONObject();
+
+			if(json.has(BatchWorker.ERROR)) throw new IllegalStateException(json.getString(BatchWorker.ERROR));
+			if(exitCode!=0) throw new IllegalStateException("worker exit code " + exitCode + " (see " + WORKER_LOG + ")");
+
+			return json.optInt(BatchWorker.DIAGRAMS, 0);
+
+		} finally {
+			Files.deleteIfExists(arguments.toPath());
+			Files.deleteIfExists(result.toPath());
+		}
+	}
+
+	/*
+	 * Heap and system properties of this JVM for the workers
+	 */
+	private static List<String> getWorkerOptions() {
+		return ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+				.filter(option -> WORKER_OPTIONS.stream().anyMatch(option::startsWith))
+				.toList();
+	}
+
+	/*
+	 * Generate the diagrams of one specification in this JVM - starting from a clean state (BatchWorker and serve)
+	 */
+	public static Map<String,String> generate(Diagram args) {
+		reset();
+
+		GenerateDiagram generator = new GenerateDiagram(args);
+		generator.execute();
+		return generator.getDiagramConfig();
+	}
+
+	/*
+	 * The static state left by the previous specification - API model, configuration and class fragments
+	 * (the profile is started by each run)
+	 */
+	static void reset() {
+		APIModel.clean();
+		Config.init();
+		FragmentCache.clear();
+	}
+
+	static String getMessage(Throwable ex) {
+		return ex.getLocalizedMessage()!=null ? ex.getLocalizedMessage() : ex.getClass().getSimpleName();
+	}
+
+	static Object copyArguments(Diagram source, Object target) throws ReflectiveOperationException {
+		Class<?> targetClass = target.getClass();
+		for(Field field : Diagram.class.getFields()) {
+			Object value = field.get(source);
+			if(value instanceof List) value = new ArrayList<>((List<?>) value);
+			targetClass.getField(field.getName()).set(target, value);
+		}
+		return target;
+	}
+
+	/*
+	 * The specifications with their output directories - relative to the directory given
+	 */
+	@LogMethod(level=LogLevel.DEBUG)
+	private List<BatchResult> getSpecifications(List<String> sources) {
+		List<BatchResult> res = new LinkedList<>();
+
+		for(String source : sources) {
+			File file = new File(source);
+			if(file.isDirectory()) {
+				Path root = file.toPath();
+				try(Stream<Path> paths = Files.walk(root)) {
+					paths.filter(Files::isRegularFile)
+						.map(Path::toFile)
+						.filter(this::isSpecification)
+						.sorted()
+						.forEach(spec -> res.add(new BatchResult(spec, getDirectory(root.relativize(spec.toPath())))));
+				} catch(IOException ex) {
+					Out.printAlways("... unable to read directory {}: {}", source, ex.getLocalizedMessage());
+				}
+			} else if(file.isFile()) {
+				res.add(new BatchResult(file, getDirectory(file.toPath().getFileName())));
+			} else {
+				Out.printAlways("... file not found: {}", source);
+			}
+		}
+
+		return res;
+	}
+
+	private String getDirectory(Path relative) {
+		Path parent = relative.getParent();
+		String name = getBaseName(relative.toFile());
+		return args.targetDirectory + File.separator + (parent!=null ? parent.resolve(name).toString() : name);
+	}
+
+	private boolean isSpecification(File file) {
+		String name = file.getName().toLowerCase();
+		if(EXTENSIONS.stream().noneMatch(name::endsWith)) return false;
+
+		try(InputStream in = Files.newInputStream(file.toPath())) {
+			String head = new String(in.readNBytes(SNIFF_SIZE), StandardCharsets.UTF_8);
+			return API_MARKER.matcher(head).find();
+		} catch(IOException ex) {
+			return false;
+		}
+	}
+
+	private static String getBaseName(File spec) {
+		String name = spec.getName();
+		int idx = name.lastIndexOf('.');
+		return idx>0 ? name.substring(0, idx) : name;
+	}
+
+	private void saveSummary(List<BatchResult> results) {
+		JSONArray json = new JSONArray();
+
+		results.forEach(result -> {
+			JSONObject item = new JSONObject();
+			item.put("specification", result.spec.getPath());
+			item.put("directory", result.directory);
+			item.put("diagrams", result.diagrams);
+			item.put("status", result.error==null ? "ok" : "failed");
+			if(result.error!=null) item.put("error", result.error);
+			item.put("seconds", Math.round(result.seconds*10)/10.0);
+			json.put(item);
+		});
+
+		JSONObject summary = new JSONObject();
+		summary.put("batch", json);
+
+		String fileName = args.targetDirectory + File.separator + args.summary;
+		Utils.saveJSON(summary, fileName);
+
+		long failed = results.stream().filter(r -> r.error!=null).count();
+		Out.printAlways("... batch completed: {} succeeded, {} failed (summary in {})", results.size()-failed, failed, fileName);
+	}
+
+}
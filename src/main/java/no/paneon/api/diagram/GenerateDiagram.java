@@ -1,27 +1,24 @@
 package no.paneon.api.diagram;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStream;
 import java.lang.reflect.Field;
-import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.net.ssl.HttpsURLConnection;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import net.sourceforge.plantuml.FileFormat;
-import net.sourceforge.plantuml.FileFormatOption;
-import net.sourceforge.plantuml.GeneratedImage;
-import net.sourceforge.plantuml.SourceFileReader;
-import net.sourceforge.plantuml.SourceStringReader;
+import no.paneon.api.diagram.Profiler.Measurement;
+import no.paneon.api.diagram.app.args.Common;
 import no.paneon.api.diagram.app.args.Diagram;
 import no.paneon.api.diagram.layout.DiagramGenerator;
+import no.paneon.api.diagram.layout.ImpactAnalysis;
+import no.paneon.api.diagram.puml.FragmentCache;
 import no.paneon.api.generator.GenerateCommon;
+import no.paneon.api.graph.CoreAPIGraph;
 import no.paneon.api.logging.AspectLogger.LogLevel;
 import no.paneon.api.logging.LogMethod;
 import no.paneon.api.model.APIModel;
@@ -41,12 +38,35 @@ public class GenerateDiagram extends GenerateCommon {
 
 	Diagram args;
 	
+	Map<String,String> diagramConfig;
+	
 	public GenerateDiagram(Diagram argsDiagram) {
 		super(argsDiagram);
 		this.args = argsDiagram;
 				
 	}
 	
+	/*
+	 * The profile covers this run only - from loading the API
+	 */
+	@Override
+	protected void load(Common common) {
+		Profiler.clear();
+		Profiler.setActive(common.profile!=null);
+		
+		Measurement stage = Profiler.start(Profiler.STAGES, "load").put("file", String.valueOf(common.openAPIFile));
+		
+		Events.SpecLoad event = new Events.SpecLoad();
+		event.begin();
+		
+		super.load(common);
+		
+		event.file = common.openAPIFile;
+		event.commit();
+		
+		stage.stop();
+	}
+	
 	@LogMethod(level=LogLevel.DEBUG)
 	private void processArgs(Diagram args) {
 				
@@ -92,128 +112,80 @@ public class GenerateDiagram extends GenerateCommon {
 		String target = args.targetDirectory;
 		
 		if(file==null) {
-			Out.println("expected one file name as argument (try --help for usage details)");
-			System.exit(1);
+			throw new IllegalArgumentException("expected one file name as argument (try --help for usage details)");
 		}
 		
 		if(APIModel.isAsyncAPI()) {
 			Config.setBoolean("keepMVOFVOResources", true);
 		}
 		
+		Set<String> impactedNodes = args.baseline!=null ? getImpactedNodes(args) : null;
+		
+		DiagramCache cache = DiagramCache.create(args);
+		
 	    DiagramGenerator generator = new DiagramGenerator(args, file, target);
+	    generator.setImpactedNodes(impactedNodes);
+	    generator.setCache(cache);
 	    
 	    if(!generator.hasExplicitResources()) {
 	    	Out.printAlways("... no explicit (named) resources found - unable to generate resource diagrams");
-	    	System.exit(0);
+	    	exit(args, "no explicit (named) resources found");
 	    }
 	  
 	    generator.applyVendorExtensions();
+	    
+	    if(args.displayComplexity) {
+	    	generator.displayComplexity();
+	    }
 	   
-	    Map<String,String> diagramConfig = generator.generateDiagramGraph();
+	    diagramConfig = generator.generateDiagramGraph();
+	    
+	    Out.debug("... class fragments: {}", FragmentCache.getSummary());
 	            	 
+	    Measurement stage = Profiler.start(Profiler.STAGES, "saveConfig");
+	    
 	    saveDiagramConfig(diagramConfig, args.targetDirectory);
 	    
+	    stage.stop();
+	    
     	LOG.debug("... generating image: ", args.generateImages);
 
 	    if(args.generateImages) {
-        	generateImage(args.targetDirectory, Utils.getFiles(".puml", args.targetDirectory), args.imageFormat);
+	    	List<String> files = Utils.getFiles(".puml", args.targetDirectory);
+	    	if(impactedNodes!=null || cache!=null) {
+	    		List<String> generated = generator.getGeneratedFiles();
+	    		files = files.stream().filter(f -> generated.contains(f) || !hasImage(args.targetDirectory, f, args.imageFormat)).toList();
+	    	}
+	    	stage = Profiler.start(Profiler.STAGES, "images").put("images", files.size()).include(Profiler.IMAGES);
+	    	
+        	generateImage(args.targetDirectory, files, args.imageFormat, args.imageWorkers, args.imageWorkerMemory, cache);
+        	
+        	stage.stop();
+	    }
+	    
+	    if(cache!=null) {
+	    	cache.evict();
+	    	Out.printAlways("... cache: {}", cache.getSummary());
+	    }
+	    
+	    if(args.profile!=null) {
+	    	Profiler.save(args.profile);
 	    }
 		
 	}
 
 	   
     public static void generateImage(String targetDirectory, List<String> baseFileNames, String imageFormat) {
-    	
-    	String PLANTUML_LIMIT_SIZE = "PLANTUML_LIMIT_SIZE";
-    	String HEADLESS = "java.awt.headless";
-    	
-    	try {
-    		
-    		String sizeLimit = Config.getString(PLANTUML_LIMIT_SIZE);
-    		if(sizeLimit.isEmpty()) sizeLimit = "8192";
-    		
-    		System.setProperty(HEADLESS, "true");
-    		System.setProperty(PLANTUML_LIMIT_SIZE, sizeLimit);
-	 	
-    		FileFormatOption fileFormat = new FileFormatOption(FileFormat.SVG);
-    		switch(imageFormat) {
-    		case "png":
-    			fileFormat = new FileFormatOption(FileFormat.PNG);
-    			break;
-    			
-    		default:
-    		}
-    		
-    		
-    		for(String base : baseFileNames) {
-    			Out.debug("... generating {} image for {}", imageFormat, base);
-    			try {
-    				String file = targetDirectory + "/" + base;
-    				String source = Utils.readFile(file); 
-    				SourceStringReader reader = new SourceStringReader(source);
-    				
-    				String extension = "." + imageFormat;
-    				
-    				String targetFile = file.replace(".puml", extension);
-
-    				
-    				switch(imageFormat) {
-    				case "png":
-    					OutputStream output = new FileOutputStream(targetFile);
-    					String desc = reader.outputImage(output).getDescription();
-    					output.close();
-    					break;
-
-    				case "svg":
-    				default:
-        				final ByteArrayOutputStream os = new ByteArrayOutputStream();
-        				// String desc = reader.generateImage(os, 0, fileFormat);
-        				desc = reader.generateImage(os, new FileFormatOption(FileFormat.SVG));
-        				os.close();
-
-        				final String svg = new String(os.toByteArray(), Charset.forName("UTF-8"));
-        				Utils.save(svg, targetFile);
-        			        				
-    				}
-//    				final ByteArrayOutputStream os = new ByteArrayOutputStream();
-//    				String desc = reader.generateImage(os, 0, fileFormat);
-//    				String desc = reader.generateImage(os, new FileFormatOption(FileFormat.SVG));
-//
-//    				os.close();
-
-//    				final String svg = new String(os.toByteArray(), Charset.forName("UTF-8"));
-//
-//    				String extension = "." + imageFormat;
-//    				
-//    				file = file.replace(".puml", extension);
-
-//    				Utils.save(svg, file);
-
-    			} catch(Exception ex) {
-    				Out.printAlways("ERROR: {}", ex.getLocalizedMessage());
-    			}
-    		}
-			    			
-//		        for(String base : baseFileNames) {
-//  			    	Out.debug("... generating {} image for {}", imageFormat, base);
-//			    	try {
-//			        	File source = new File(targetDirectory + "/" + base);
-//				    	SourceFileReader reader = new SourceFileReader(source);
-//				    	reader.getGeneratedImages();
-//				    	// List<GeneratedImage> list = reader.getGeneratedImages();
-//				    	// Generated files
-//				    	// File png = list.get(0).getPngFile();
-//				    	// Out.debug("... {} png={}", base, png.getName());
-//			    	} catch(Exception ex) {
-//			    		Out.printAlways("ERROR: {}", ex.getLocalizedMessage());
-//			    	}
-//		        };	
-			        
-	    	
-	    } catch(Exception e) {
-    		Out.debug("... unable to generate images: exception: {}", e.getLocalizedMessage());
-    	}
-	}
+    	generateImage(targetDirectory, baseFileNames, imageFormat, 0, 0);
+    }
+    
+    public static void generateImage(String targetDirectory, List<String> baseFileNames, String imageFormat, int workers, int workerMemory) {
+    	generateImage(targetDirectory, baseFileNames, imageFormat, workers, workerMemory, null);
+    }
+    
+    public static void generateImage(String targetDirectory, List<String> baseFileNames, String imageFormat, int workers, int workerMemory, DiagramCache cache) {
+    	ImageRenderer.generateImage(targetDirectory, baseFileNames, imageFormat, workers, workerMemory, cache);
+    }
     
 	private void saveDiagramConfig(Map<String, String> diagramConfig, String target) {
 	    
@@ -236,6 +208,44 @@ public class GenerateDiagram extends GenerateCommon {
 	}
 
 
+	/*
+	 * Load the baseline API to find the nodes changed - then reload the current API
+	 */
+	@LogMethod(level=LogLevel.DEBUG)
+	private Set<String> getImpactedNodes(Diagram args) {
+		String current = args.openAPIFile;
+		
+		CoreAPIGraph currentAPI = new CoreAPIGraph();
+
+		try {
+			APIModel.clean();
+			args.openAPIFile = args.baseline;
+			GenerateCommon.loadAPI(args);
+			
+			ImpactAnalysis analysis = new ImpactAnalysis(new CoreAPIGraph());
+
+			Set<String> impacted = analysis.getImpactedNodes(currentAPI);
+			
+			Out.debug("... changes from baseline {}: {}", args.baseline, impacted);
+
+			return impacted;
+			
+		} finally {
+			APIModel.clean();
+			args.openAPIFile = current;
+			GenerateCommon.loadAPI(args);
+			APIModel.setSwaggerSource(current);
+		}
+	}
+	
+	private boolean hasImage(String dir, String puml, String format) {
+		return new File(dir, puml.replace(".puml", "." + format)).isFile();
+	}
+
+	public Map<String,String> getDiagramConfig() {
+		return diagramConfig;
+	}
+
 	@LogMethod(level=LogLevel.DEBUG)
 	private String getAPISource(Diagram args) {
     	return args.files.isEmpty() ? args.openAPIFile : args.files.get(0) ; 
@@ -0,0 +1,298 @@
+package no.paneon.api.diagram;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import com.beust.jcommander.JCommander;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import no.paneon.api.diagram.app.args.Diagram;
+import no.paneon.api.diagram.app.args.Serve;
+import no.paneon.api.logging.AspectLogger.LogLevel;
+import no.paneon.api.logging.LogMethod;
+import no.paneon.api.utils.Out;
+
+/*
+ * Long-running diagram service - keeps the JVM, configuration and PlantUML warm between requests.
+ *
+ *   GET  /health    - liveness
+ *   POST /diagrams  - JSON request:
+ *      file             - path to API specification, or
+ *      content          - inline API specification (YAML or JSON)
+ *      resource         - optional resource filter (as --resource)
+ *      args             - optional array of command line options as for 'diagrams'
+ *      targetDirectory  - optional; when absent the result is only returned inline
+ *
+ *   The response holds the generated .puml for each diagram (and images if requested).
+ *
+ * The API model is static, hence requests are processed one at a time - each starting from a clean state (the
+ * specification is parsed for every request).
+ *
+ * Files named in a request ('file', 'targetDirectory' and file options in 'args') must be below --root. Without
+ * --root they are only accepted when listening on a loopback address.
+ */
+public class GenerateServe {
+
+	static final Logger LOG = LogManager.getLogger(GenerateServe.class);
+
+	Serve args;
+
+	HttpServer server;
+
+	Path root;
+
+	/* Options naming files read or written when generating */
+	static final List<String> PATH_OPTIONS = Arrays.asList("openAPIFile", "targetDirectory", "generatedTargetDirectory", "workingDirectory",
+			"configs", "defaults", "conformance", "existingSpecification", "rulesFile", "outputFileName", "schemaDefaultsSource", "template",
+			"profile", "layout", "subResourceConfig", "orphanEnumConfig", "baseline", "cacheDirectory");
+
+	public GenerateServe(Serve args) {
+		this.args = args;
+	}
+
+	public void execute() {
+		start();
+
+		Out.printAlways("... listening on http://{}:{}/diagrams", args.host, getPort());
+
+		try {
+			new CountDownLatch(1).await();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		} finally {
+			stop();
+		}
+	}
+
+	public void start() {
+		try {
+			root = args.root!=null ? Path.of(args.root).toRealPath() : null;
+		} catch(IOException ex) {
+			throw new IllegalStateException("unable to use root directory " + args.root + " - " + ex.getLocalizedMessage());
+		}
+
+		try {
+			server = HttpServer.create(new InetSocketAddress(args.host, args.port), 0);
+		} catch(IOException ex) {
+			throw new IllegalStateException("unable to listen on " + args.host + ":" + args.port + " - " + ex.getLocalizedMessage());
+		}
+
+		server.createContext("/health", exchange -> respond(exchange, 200, new JSONObject().put("status", "ok")));
+		server.createContext("/diagrams", this::handle);
+
+		server.setExecutor(Executors.newSingleThreadExecutor());
+		server.start();
+	}
+
+	public void stop() {
+		if(server!=null) {
+			server.stop(0);
+			server = null;
+		}
+	}
+
+	public int getPort() {
+		return server!=null ? server.getAddress().getPort() : args.port;
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		if(!"POST".equals(exchange.getRequestMethod())) {
+			respond(exchange, 405, error("expected POST"));
+			return;
+		}
+
+		JSONObject request;
+		try(InputStream in = exchange.getRequestBody()) {
+			request = new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+		} catch(JSONException ex) {
+			respond(exchange, 400, error("invalid request: " + ex.getLocalizedMessage()));
+			return;
+		}
+
+		if(!request.has("file") && !request.has("content")) {
+			respond(exchange, 400, error("expected 'file' or 'content'"));
+			return;
+		}
+
+		try {
+			respond(exchange, 200, process(request));
+		} catch(SecurityException ex) {
+			respond(exchange, 403, error(ex.getLocalizedMessage()));
+		} catch(IllegalArgumentException ex) {
+			respond(exchange, 400, error(ex.getLocalizedMessage()));
+		} catch(Exception ex) {
+			LOG.debug("handle: exception={}", ex);
+			respond(exchange, 500, error(ex.getLocalizedMessage()!=null ? ex.getLocalizedMessage() : ex.getClass().getSimpleName()));
+		}
+	}
+
+	@LogMethod(level=LogLevel.DEBUG)
+	JSONObject process(JSONObject request) throws Exception {
+
+		long start = System.nanoTime();
+
+		Path work = Files.createTempDirectory("oas2puml");
+
+		try {
+			Diagram diagram = (Diagram) GenerateBatch.copyArguments(args, new Diagram());
+
+			if(request.has("args")) {
+				JSONArray options = request.getJSONArray("args");
+				String[] argv = new String[options.length()];
+				for(int i=0; i<argv.length; i++) argv[i] = options.getString(i);
+
+				JCommander.newBuilder().addObject(diagram).build().parse(argv);
+			}
+
+			checkPathOptions(diagram);
+
+			if(request.has("file")) {
+				diagram.openAPIFile = getPath(request.getString("file"));
+			} else {
+				String content = request.getString("content");
+				String suffix = content.trim().startsWith("{") ? ".json" : ".yaml";
+				Path spec = work.resolve("api" + suffix);
+				Files.writeString(spec, content);
+				diagram.openAPIFile = spec.toString();
+			}
+
+			if(request.has("resource")) diagram.resource = request.getString("resource");
+
+			boolean inline = !request.has("targetDirectory");
+
+			diagram.targetDirectory = inline ? work.resolve("out").toString() : getPath(request.getString("targetDirectory"));
+			diagram.files = new ArrayList<>();
+			diagram.exitOnError = false;
+
+			Files.createDirectories(new File(diagram.targetDirectory).toPath());
+
+			Map<String,String> diagramConfig = GenerateBatch.generate(diagram);
+
+			JSONObject diagrams = new JSONObject();
+			JSONObject images = new JSONObject();
+
+			for(Map.Entry<String,String> entry : diagramConfig.entrySet()) {
+				Path puml = Path.of(diagram.targetDirectory, "Resource_" + entry.getKey() + ".puml");
+				diagrams.put(entry.getKey(), Files.readString(puml));
+
+				Path image = Path.of(diagram.targetDirectory, entry.getValue());
+				if(inline && diagram.generateImages && image.toFile().isFile()) {
+					images.put(entry.getKey(), Base64.getEncoder().encodeToString(Files.readAllBytes(image)));
+				}
+			}
+
+			JSONObject res = new JSONObject();
+			res.put("diagrams", diagrams);
+			if(images.length()>0) res.put("images", images);
+			if(!inline) res.put("targetDirectory", diagram.targetDirectory);
+			res.put("millis", (System.nanoTime() - start) / 1_000_000);
+
+			return res;
+
+		} finally {
+			delete(work);
+		}
+	}
+
+	/*
+	 * The file options of the request 'args' (those different from the options of the server)
+	 */
+	private void checkPathOptions(Diagram diagram) throws ReflectiveOperationException {
+		for(String option : PATH_OPTIONS) {
+			Field field = Diagram.class.getField(option);
+			Object value = field.get(diagram);
+			Object serverValue = field.get(args);
+
+			if(value==null || value.equals(serverValue)) continue;
+
+			if(value instanceof List) {
+				List<String> paths = new ArrayList<>();
+				for(Object path : (List<?>) value) {
+					boolean configured = serverValue instanceof List && ((List<?>) serverValue).contains(path);
+					paths.add(configured ? path.toString() : getPath(path.toString()));
+				}
+				field.set(diagram, paths);
+			} else {
+				field.set(diagram, getPath(value.toString()));
+			}
+		}
+	}
+
+	/*
+	 * File named in a request - resolved against the root directory (if any), following symbolic links
+	 */
+	String getPath(String file) {
+		if(root!=null) {
+			Path path = getRealPath(root.resolve(file).normalize());
+			if(!path.startsWith(root)) throw new SecurityException("not below the root directory: " + file);
+			return path.toString();
+		}
+
+		if(!server.getAddress().getAddress().isLoopbackAddress()) {
+			throw new SecurityException("files not accepted without --root when listening on " + args.host + ": " + file);
+		}
+
+		return file;
+	}
+
+	/*
+	 * Real path of the nearest existing directory (the target directory may not exist yet) with the rest appended
+	 */
+	static Path getRealPath(Path path) {
+		Path existing = path;
+		while(existing!=null && !Files.exists(existing)) existing = existing.getParent();
+
+		if(existing==null) return path;
+
+		try {
+			return existing.toRealPath().resolve(existing.relativize(path));
+		} catch(IOException ex) {
+			throw new SecurityException("unable to resolve " + path + " - " + ex.getLocalizedMessage());
+		}
+	}
+
+	private static JSONObject error(String message) {
+		return new JSONObject().put("error", message);
+	}
+
+	private static void respond(HttpExchange exchange, int status, JSONObject body) throws IOException {
+		byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try(OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+	private static void delete(Path dir) {
+		try(Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+		} catch(IOException ex) {
+			LOG.debug("delete: unable to remove {} - {}", dir, ex.getLocalizedMessage());
+		}
+	}
+
+}
@@ -0,0 +1,189 @@
+package no.paneon.api.diagram;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.sourceforge.plantuml.FileFormat;
+import net.sourceforge.plantuml.FileFormatOption;
+import net.sourceforge.plantuml.SourceStringReader;
+import no.paneon.api.diagram.Profiler.Measurement;
+import no.paneon.api.utils.Config;
+import no.paneon.api.utils.Out;
+import no.paneon.api.utils.Utils;
+
+/*
+ * Rendering of .puml files to images by PlantUML - the PlantUML (and AWT) classes are only loaded 
+ * when images are generated (--generate-images)
+ */
+public class ImageRenderer {
+
+    static final Logger LOG = LogManager.getLogger(ImageRenderer.class);
+
+	private ImageRenderer() {
+	}
+
+    static void generateImage(String targetDirectory, List<String> baseFileNames, String imageFormat, int workers, int workerMemory, DiagramCache cache) {
+    	
+    	String PLANTUML_LIMIT_SIZE = "PLANTUML_LIMIT_SIZE";
+    	String HEADLESS = "java.awt.headless";
+    	
+    	try {
+    		
+    		String sizeLimit = Config.getString(PLANTUML_LIMIT_SIZE);
+    		if(sizeLimit.isEmpty()) sizeLimit = "8192";
+    		
+    		System.setProperty(HEADLESS, "true");
+    		System.setProperty(PLANTUML_LIMIT_SIZE, sizeLimit);
+	 	
+    		final String limit = sizeLimit;
+
+    		int poolSize = getRenderingWorkers(baseFileNames.size(), workers, workerMemory, sizeLimit);
+    		
+    		Out.debug("... generating {} images using {} rendering workers", baseFileNames.size(), poolSize);
+
+    		ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+    		
+    		List<Future<String>> results = new LinkedList<>();
+    		try {
+	    		for(String base : baseFileNames) {
+	    			results.add( pool.submit(() -> renderImage(targetDirectory, base, imageFormat, cache, limit)) );
+	    		}
+	    		
+	    		int failures = 0;
+	    		Iterator<String> iter = baseFileNames.iterator();
+	    		for(Future<String> result : results) {
+	    			String base = iter.next();
+	    			String error = getRenderingError(result);
+	    			if(!error.isEmpty()) {
+	    				failures++;
+	    				Out.printAlways("ERROR: unable to generate image for {}: {}", base, error);
+	    			}
+	    		}
+	    		
+	    		if(failures>0) Out.printAlways("... {} of {} images not generated", failures, baseFileNames.size());
+	    		
+    		} finally {
+    			pool.shutdown();
+    		}
+	    	
+	    } catch(Exception e) {
+    		Out.debug("... unable to generate images: exception: {}", e.getLocalizedMessage());
+    	}
+	}
+    
+    private static String renderImage(String targetDirectory, String base, String imageFormat, DiagramCache cache, String sizeLimit) {
+		Out.debug("... generating {} image for {}", imageFormat, base);
+		
+		Measurement profile = Profiler.start(Profiler.IMAGES, base);
+		Events.ImageRender event = new Events.ImageRender();
+		event.file = base;
+		event.format = imageFormat;
+		event.begin();
+		try {
+			String file = targetDirectory + "/" + base;
+			String source = Utils.readFile(file); 
+			
+			String extension = "." + imageFormat;
+			
+			File targetFile = new File(file.replace(".puml", extension));
+			File tmp = DiagramCache.getTemporary(targetFile);
+
+			try {
+				String key = null;
+				boolean cached = false;
+				if(cache!=null) {
+					key = cache.getKey(source, imageFormat, sizeLimit);
+					cached = cache.copy(key, imageFormat, tmp);
+					event.cached = cached;
+				}
+				
+				if(!cached) {
+					try(OutputStream output = new BufferedOutputStream(new FileOutputStream(tmp))) {
+						render(source, imageFormat, output);
+					}
+					if(cache!=null) cache.put(key, imageFormat, tmp);
+				}
+				
+				long outputBytes = tmp.length();
+				
+				DiagramCache.writeIfChanged(targetFile, tmp);
+				profile.put("outputBytes", outputBytes);
+				event.outputBytes = outputBytes;
+				return "";
+				
+			} finally {
+				Files.deleteIfExists(tmp.toPath());
+			}
+			
+		} catch(Exception ex) {
+			profile.put("error", String.valueOf(ex.getLocalizedMessage()));
+			return String.valueOf(ex.getLocalizedMessage());
+		} finally {
+			event.commit();
+			profile.stop();
+		}
+    }
+    
+    /*
+     * The image as written by the sequential rendering: png by outputImage with the default options, svg by
+     * generateImage (UTF-8) - streamed to the output
+     */
+    static void render(String source, String imageFormat, OutputStream output) throws IOException {
+		SourceStringReader reader = new SourceStringReader(source);
+
+		switch(imageFormat) {
+		case "png":
+			reader.outputImage(output);
+			break;
+			
+		case "svg":
+		default:
+			reader.generateImage(output, new FileFormatOption(FileFormat.SVG));
+		}
+    }
+    
+    private static String getRenderingError(Future<String> result) {
+    	try {
+    		return result.get();
+    	} catch(InterruptedException ex) {
+    		Thread.currentThread().interrupt();
+    		return "interrupted";
+    	} catch(ExecutionException ex) {
+    		return String.valueOf(ex.getCause().getLocalizedMessage());
+    	}
+    }
+    
+    // each worker may need a raster of up to PLANTUML_LIMIT_SIZE x PLANTUML_LIMIT_SIZE (ARGB)
+    static int getRenderingWorkers(int files, int workers, int workerMemory, String sizeLimit) {
+    	int res = workers>0 ? workers : Runtime.getRuntime().availableProcessors();
+    	
+    	long limit = 8192;
+    	try {
+    		limit = Long.parseLong(sizeLimit.trim());
+    	} catch(NumberFormatException ex) {
+    		Out.debug("... invalid PLANTUML_LIMIT_SIZE {} - using {}", sizeLimit, limit);
+    	}
+    	
+    	long budget = workerMemory>0 ? workerMemory * 1024L * 1024L : 4L * limit * limit;
+    	long byMemory = Runtime.getRuntime().maxMemory() / Math.max(1L, budget);
+    	
+    	res = (int) Math.min(res, Math.max(1L, byMemory));
+    	
+    	return Math.max(1, Math.min(res, files));
+    }
+
+}
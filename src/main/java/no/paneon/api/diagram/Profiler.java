@@ -0,0 +1,196 @@
+package no.paneon.api.diagram;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import no.paneon.api.diagram.layout.EdgeAnalyzer;
+import no.paneon.api.utils.Out;
+
+/*
+ * Profiling of pipeline stages and diagrams (--profile) - wall time, CPU time and allocated bytes of the current thread
+ * A stage running tasks on other threads (diagrams, images) adds the CPU time and allocated bytes of those tasks
+ * The profile also includes the statistics of the layout rules (EdgeAnalyzer)
+ */
+public class Profiler {
+
+    static final Logger LOG = LogManager.getLogger(Profiler.class);
+
+    public static final String STAGES = "stages";
+    public static final String DIAGRAMS = "diagrams";
+    public static final String IMAGES = "images";
+    public static final String RULES = "rules";
+
+	static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+	static volatile boolean active = false;
+
+	static final List<JSONObject> stages = Collections.synchronizedList(new LinkedList<>());
+	static final List<JSONObject> diagrams = Collections.synchronizedList(new LinkedList<>());
+	static final List<JSONObject> images = Collections.synchronizedList(new LinkedList<>());
+
+	static final Measurement INACTIVE = new Measurement(null, null);
+
+	private Profiler() {
+	}
+
+	public static void setActive(boolean value) {
+		active = value;
+		if(active && threads.isThreadCpuTimeSupported()) threads.setThreadCpuTimeEnabled(true);
+	}
+
+	public static boolean isActive() {
+		return active;
+	}
+
+	public static Measurement start(String category, String name) {
+		if(!active) return INACTIVE;
+		return new Measurement(category, name);
+	}
+
+	public static class Measurement {
+		List<JSONObject> category;
+		JSONObject result;
+
+		List<JSONObject> tasks;
+		int firstTask;
+		String thread;
+
+		long wall;
+		long cpu;
+		long allocated;
+
+		Measurement(String category, String name) {
+			if(category==null) return;
+
+			this.category = getCategory(category);
+			this.result = new JSONObject();
+			this.result.put("name", name);
+
+			this.thread = Thread.currentThread().getName();
+			if(this.category!=stages) this.result.put("thread", thread);
+
+			this.wall = System.nanoTime();
+			this.cpu = getCpuTime();
+			this.allocated = getAllocatedBytes();
+		}
+
+		public Measurement put(String key, Object value) {
+			if(result!=null) result.put(key, value);
+			return this;
+		}
+
+		/*
+		 * Tasks of the category started by this measurement - the tasks run on other threads are included at stop
+		 */
+		public Measurement include(String taskCategory) {
+			if(result==null) return this;
+			tasks = getCategory(taskCategory);
+			firstTask = tasks.size();
+			return this;
+		}
+
+		/*
+		 * Nested measurement - recorded as part of this one
+		 */
+		public Measurement start(String name) {
+			if(result==null) return INACTIVE;
+			Measurement nested = new Measurement(STAGES, name);
+			nested.category = null;
+			if(!result.has(STAGES)) result.put(STAGES, new JSONObject());
+			result.getJSONObject(STAGES).put(name, nested.result);
+			return nested;
+		}
+
+		public void stop() {
+			if(result==null) return;
+
+			double cpuMillis = (getCpuTime() - cpu) / 1_000_000.0;
+			long allocatedBytes = getAllocatedBytes() - allocated;
+
+			if(tasks!=null) {
+				int offloaded = 0;
+				synchronized(tasks) {
+					for(JSONObject task : tasks.subList(firstTask, tasks.size())) {
+						if(thread.equals(task.optString("thread"))) continue;
+						cpuMillis += task.optDouble("cpuMillis", 0);
+						allocatedBytes += task.optLong("allocatedBytes", 0);
+						offloaded++;
+					}
+				}
+				result.put("offloadedTasks", offloaded);
+			}
+
+			result.put("wallMillis", (System.nanoTime() - wall) / 1_000_000.0);
+			result.put("cpuMillis", cpuMillis);
+			result.put("allocatedBytes", allocatedBytes);
+
+			if(category!=null) category.add(result);
+		}
+	}
+
+	private static List<JSONObject> getCategory(String category) {
+		switch(category) {
+		case DIAGRAMS: return diagrams;
+		case IMAGES: return images;
+		default: return stages;
+		}
+	}
+
+	private static long getCpuTime() {
+		return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+	}
+
+	private static long getAllocatedBytes() {
+		if(threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean mxbean = (com.sun.management.ThreadMXBean) threads;
+			if(mxbean.isThreadAllocatedMemorySupported() && mxbean.isThreadAllocatedMemoryEnabled()) {
+				return mxbean.getCurrentThreadAllocatedBytes();
+			}
+		}
+		return 0;
+	}
+
+	public static void save(String fileName) {
+		if(!active) return;
+
+		JSONObject profile = new JSONObject();
+
+		synchronized(stages) {
+			profile.put(STAGES, new JSONArray(stages));
+		}
+		synchronized(diagrams) {
+			profile.put(DIAGRAMS, new JSONArray(diagrams));
+		}
+		synchronized(images) {
+			profile.put(IMAGES, new JSONArray(images));
+		}
+		profile.put(RULES, EdgeAnalyzer.getRuleStatistics());
+
+		LOG.debug("save: fileName={}", fileName);
+
+		try {
+			Files.writeString(Path.of(fileName), profile.toString(2));
+		} catch(IOException ex) {
+			Out.printAlways("... unable to write profile to {}: {}", fileName, ex.getLocalizedMessage());
+		}
+	}
+
+	public static void clear() {
+		stages.clear();
+		diagrams.clear();
+		images.clear();
+		EdgeAnalyzer.clearRuleStatistics();
+	}
+
+}
@@ -7,7 +7,11 @@ import org.apache.logging.log4j.Logger;
 
 import com.beust.jcommander.JCommander;
 
+import no.paneon.api.diagram.GenerateBatch;
 import no.paneon.api.diagram.GenerateDiagram;
+import no.paneon.api.diagram.GenerateServe;
+import no.paneon.api.diagram.app.args.Batch;
+import no.paneon.api.diagram.app.args.Serve;
 import no.paneon.api.diagram.app.args.Version;
 import no.paneon.api.diagram.app.args.Diagram;
 import no.paneon.api.diagram.app.args.ExtractExtension;
@@ -29,6 +33,8 @@ public class App {
 
 	Version				argsVersion;
 	Diagram            	argsDiagram;
+	Batch            	argsBatch;
+	Serve            	argsServe;
 	GQLGraph  	        argsGQLGraph;
 	Usage  	        	argsUsage;
 	ExtractExtension  	argsExtractExtensions;
@@ -36,6 +42,8 @@ public class App {
 	App(String ... argv) {
 		     	
 		argsDiagram           = new Diagram();
+		argsBatch             = new Batch();
+		argsServe             = new Serve();
 		argsGQLGraph          = new GQLGraph();
 		argsUsage          	  = new Usage();
 		argsExtractExtensions = new ExtractExtension();
@@ -44,6 +52,8 @@ public class App {
 
 		commandLine = JCommander.newBuilder()
 		    .addCommand("diagrams",            argsDiagram )
+		    .addCommand("batch",               argsBatch )
+		    .addCommand("serve",               argsServe )
 		    .addCommand("gqlgraph",            argsGQLGraph )
 		    .addCommand("extract-extensions",  argsExtractExtensions )
 		    .addCommand("--help",              argsUsage )
@@ -127,6 +137,16 @@ public class App {
     		diagram.execute();
     		break;
 
+    	case "batch":
+    		GenerateBatch batch = new GenerateBatch(argsBatch);
+    		batch.execute();
+    		break;
+
+    	case "serve":
+    		GenerateServe serve = new GenerateServe(argsServe);
+    		serve.execute();
+    		break;
+
  
        	case "gqlgraph":
        		if(argsGQLGraph.outputFileName==null) {
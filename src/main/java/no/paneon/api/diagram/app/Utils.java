@@ -30,11 +30,6 @@ import org.json.JSONArray;
 import org.json.JSONObject;
 import org.springframework.core.io.ClassPathResource;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.module.SimpleModule;
-import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
-import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
 
 import no.paneon.api.logging.AspectLogger.LogLevel;
 import no.paneon.api.logging.LogMethod;
@@ -124,45 +119,12 @@ public class Utils {
 	
 	@LogMethod(level=LogLevel.TRACE)
 	public static String convertJsonToYaml(JSONObject json) throws InvalidJsonYamlException {
-		try {
-			YAMLFactory yamlFactory = new YAMLFactory()	
-				 .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES) 
-		         .disable(YAMLGenerator.Feature.WRITE_DOC_START_MARKER)
-		         .enable(YAMLGenerator.Feature.INDENT_ARRAYS)
-		         ;
-			
-			ObjectMapper mapper = new ObjectMapper(yamlFactory);		 
-		    SimpleModule module = new SimpleModule();
-		    
-		    module.setSerializerModifier(new YamlBeanSerializerModifier());
-		    mapper.registerModule(module);
-		    
-		    mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
-	
-		    return mapper.writeValueAsString(json);
-		    
-		} catch(Exception ex) {
-			if(LOG.isDebugEnabled()) LOG.log(Level.DEBUG, EXCEPTION_MESSAGE, ex.getLocalizedMessage() );
-			throw(new InvalidJsonYamlException());
-		}
-		        
+		return YamlConverter.convertJsonToYaml(json);
 	}
 	
 	@LogMethod(level=LogLevel.TRACE)
     public static String convertYamlToJson(String yaml) throws InvalidJsonYamlException {
-				
-		try {
-		    ObjectMapper yamlReader = new ObjectMapper(new YAMLFactory());
-		    Object obj = yamlReader.readValue(yaml, Object.class);
-			    
-		    ObjectMapper jsonWriter = new ObjectMapper();
-	
-		    return jsonWriter.writeValueAsString(obj);		    
-		    			
-		} catch(Exception ex) {
-			if(LOG.isDebugEnabled()) LOG.log(Level.DEBUG, EXCEPTION_MESSAGE, ex.getLocalizedMessage() );
-			throw(new InvalidJsonYamlException());
-		}
+		return YamlConverter.convertYamlToJson(yaml);
 	}
 	
 	
@@ -279,8 +241,7 @@ public class Utils {
 			else
 				res = readJSON(file,false);
 		} catch(Exception e) {
-			Out.println("... unable to read file " + file + " (error: " + e.getLocalizedMessage() + ")");
-			System.exit(1);
+			throw new IllegalArgumentException("unable to read file " + file + " (error: " + e.getLocalizedMessage() + ")", e);
 		}
 		return res;
 	}
@@ -304,9 +265,7 @@ public class Utils {
 			save(text,destination);
 			
 		} catch(Exception e) {
-			Out.println("error converting to yaml file: ", destination);
-			Out.println("error: ", e.getLocalizedMessage());
-			System.exit(1);
+			throw new IllegalStateException("error converting to yaml file: " + destination + " (error: " + e.getLocalizedMessage() + ")", e);
 		}
 	}
 	
@@ -319,8 +278,7 @@ public class Utils {
 			try(FileWriter out = new FileWriter(destination)) {
 				out.write(text);
 			} catch(Exception e) {
-				Out.println("unable to write to file: ", destination);
-				System.exit(1);
+				throw new IllegalStateException("unable to write to file: " + destination + " (error: " + e.getLocalizedMessage() + ")", e);
 			}
 		}
 	}
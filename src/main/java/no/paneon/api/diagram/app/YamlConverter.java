@@ -0,0 +1,70 @@
+package no.paneon.api.diagram.app;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLGenerator;
+
+import no.paneon.api.utils.InvalidJsonYamlException;
+
+/*
+ * YAML conversion by Jackson (Utils) - the Jackson YAML classes are only loaded when converting
+ */
+class YamlConverter {
+
+    static final Logger LOG = LogManager.getLogger(YamlConverter.class);
+
+	private static final String EXCEPTION_MESSAGE  = "exeption: {}";
+
+	private YamlConverter() {
+	}
+
+	static String convertJsonToYaml(JSONObject json) throws InvalidJsonYamlException {
+		try {
+			YAMLFactory yamlFactory = new YAMLFactory()	
+				 .enable(YAMLGenerator.Feature.MINIMIZE_QUOTES) 
+		         .disable(YAMLGenerator.Feature.WRITE_DOC_START_MARKER)
+		         .enable(YAMLGenerator.Feature.INDENT_ARRAYS)
+		         ;
+			
+			ObjectMapper mapper = new ObjectMapper(yamlFactory);		 
+		    SimpleModule module = new SimpleModule();
+		    
+		    module.setSerializerModifier(new YamlBeanSerializerModifier());
+		    mapper.registerModule(module);
+		    
+		    mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);
+	
+		    return mapper.writeValueAsString(json);
+		    
+		} catch(Exception ex) {
+			if(LOG.isDebugEnabled()) LOG.log(Level.DEBUG, EXCEPTION_MESSAGE, ex.getLocalizedMessage() );
+			throw(new InvalidJsonYamlException());
+		}
+		        
+	}
+	
+    static String convertYamlToJson(String yaml) throws InvalidJsonYamlException {
+				
+		try {
+		    ObjectMapper yamlReader = new ObjectMapper(new YAMLFactory());
+		    Object obj = yamlReader.readValue(yaml, Object.class);
+			    
+		    ObjectMapper jsonWriter = new ObjectMapper();
+	
+		    return jsonWriter.writeValueAsString(obj);		    
+		    			
+		} catch(Exception ex) {
+			if(LOG.isDebugEnabled()) LOG.log(Level.DEBUG, EXCEPTION_MESSAGE, ex.getLocalizedMessage() );
+			throw(new InvalidJsonYamlException());
+		}
+	}
+
+}
+
@@ -0,0 +1,13 @@
+package no.paneon.api.diagram.app.args;
+
+import com.beust.jcommander.Parameter;
+
+public class Batch extends Diagram {
+
+	@Parameter(names = { "--summary" }, description = "File name of the combined summary in JSON (in the target directory)")
+	public String summary = "batch.json";
+
+	@Parameter(names = { "--workers" }, description = "Number of specifications processed at the same time, each in a JVM of its own (defaults to the number of processors)")
+	public int workers = 0;
+
+}
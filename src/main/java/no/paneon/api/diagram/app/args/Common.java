@@ -82,6 +82,12 @@ public class Common {
 	@Parameter(names = { "--whitelist" }, description = "Whitelist host for SSL processing")
 	public List<String> whitelisting = new ArrayList<>();
 	
+	@Parameter(names = { "--profile" }, description = "Write profiling details (time, CPU, allocation per stage and diagram) to the given JSON file")
+	public String profile = null;
+	
+	// not a command line option - cleared when running embedded (e.g. batch) to report errors instead of exit
+	public boolean exitOnError = true;
+	
 
 	
 }
@@ -61,4 +61,25 @@ public class Diagram extends Common {
 	@Parameter(names = { "--image-format" }, description = "Image format to use - legal values are puml, svg, png. Default is svg")
 	public String imageFormat = "svg";
 	
+	@Parameter(names = { "--image-workers" }, description = "Number of images to render in parallel (default 0 - one per processor, bounded by available memory)")
+	public int imageWorkers = 0;
+
+	@Parameter(names = { "--image-worker-memory" }, description = "Memory budget in MB for each image rendering worker (default derived from PLANTUML_LIMIT_SIZE)")
+	public int imageWorkerMemory = 0;
+	
+	@Parameter(names = { "--parallelism" }, description = "Number of diagrams to generate in parallel (default 1 - sequential)")
+	public int parallelism = 1;
+	
+	@Parameter(names = { "--baseline" }, description = "Previous version of the API - only diagrams affected by changes are regenerated")
+	public String baseline = null;
+	
+	@Parameter(names = { "--cache-directory" }, description = "Directory for caching generated diagrams and images between runs (default no caching)")
+	public String cacheDirectory = null;
+
+	@Parameter(names = { "--cache-max-size" }, description = "Maximum size of the cache in MB (least recently used entries evicted)")
+	public int cacheMaxSize = 512;
+
+	@Parameter(names = { "--cache-max-age" }, description = "Maximum age in days of cache entries")
+	public int cacheMaxAge = 30;
+	
 }
@@ -0,0 +1,16 @@
+package no.paneon.api.diagram.app.args;
+
+import com.beust.jcommander.Parameter;
+
+public class Serve extends Diagram {
+
+	@Parameter(names = { "--host" }, description = "Address to listen on (default localhost only)")
+	public String host = "localhost";
+
+	@Parameter(names = { "--port" }, description = "Port to listen on (0 selects a free port)")
+	public int port = 7070;
+
+	@Parameter(names = { "--root" }, description = "Directory holding the files named in requests (default none - files only allowed when listening on a loopback address)")
+	public String root = null;
+
+}
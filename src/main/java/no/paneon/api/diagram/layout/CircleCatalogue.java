@@ -0,0 +1,255 @@
+package no.paneon.api.diagram.layout;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import no.paneon.api.graph.APIGraph;
+import no.paneon.api.graph.Node;
+import no.paneon.api.utils.Config;
+import no.paneon.api.utils.Out;
+
+/*
+ * Circles (simple cycles) of the API graph of a diagram, indexed by node - members of each circle as a bitset
+ * over the node ids of LayoutGraph (NodeTable), circles of each node, and circles consumed as nodes are laid out
+ *
+ * The circles are first enumerated with limits (circleMaxCount circles, circleMaxLength nodes per circle, 0 for no limit)
+ * Within the limits the circles of the API graph are used as they are; otherwise the bounded enumeration
+ */
+public class CircleCatalogue {
+
+    static final Logger LOG = LogManager.getLogger(CircleCatalogue.class);
+
+	static final String MAX_COUNT = "circleMaxCount";
+	static final String MAX_LENGTH = "circleMaxLength";
+
+	// search steps per circle allowed before the enumeration is stopped
+	static final long STEPS_PER_CIRCLE = 1000;
+
+	private NodeTable table;
+
+	private List<List<Node>> circles;
+	private List<BitSet> members;
+	private List<List<Integer>> circlesOfNode;
+	private int[] occurrences;
+
+	private BitSet consumed;
+	private boolean limited;
+
+	CircleCatalogue(APIGraph apiGraph, NodeTable table) {
+		this.table = table;
+
+		int maxCount = Config.getInteger(MAX_COUNT, 5000);
+		int maxLength = Config.getInteger(MAX_LENGTH, 0);
+
+		Enumeration enumeration = new Enumeration(table, maxCount, maxLength);
+		enumeration.run();
+
+		this.limited = enumeration.limited;
+
+		if(limited) {
+			Out.printOnce("... circles of {} limited to {} (of {} max {} nodes) - see {} and {}", apiGraph.getResource(),
+						enumeration.circles.size(), maxCount, maxLength, MAX_COUNT, MAX_LENGTH);
+		}
+
+		this.circles = !limited && maxLength==0 ? apiGraph.getCircles() : enumeration.circles;
+
+		this.members = new ArrayList<>(circles.size());
+		this.circlesOfNode = new ArrayList<>(table.size());
+		for(int i=0; i<table.size(); i++) circlesOfNode.add(new ArrayList<>());
+		this.occurrences = new int[table.size()];
+
+		for(int c=0; c<circles.size(); c++) {
+			BitSet circle = new BitSet(table.size());
+			for(Node node : circles.get(c)) {
+				int id = table.getId(node);
+				if(id<0) continue;
+
+				occurrences[id]++;
+				if(!circle.get(id)) circlesOfNode.get(id).add(c);
+				circle.set(id);
+			}
+			members.add(circle);
+		}
+
+		this.consumed = new BitSet(circles.size());
+
+		LOG.debug("CircleCatalogue:: resource={} circles={} limited={}", apiGraph.getResource(), circles.size(), limited);
+	}
+
+	/*
+	 * All circles (including consumed)
+	 */
+	public List<List<Node>> getCircles() {
+		return circles;
+	}
+
+	public boolean isLimited() {
+		return limited;
+	}
+
+	public boolean contains(Node node) {
+		int id = table.getId(node);
+		if(id>=0) return !circlesOfNode.get(id).isEmpty();
+
+		return circles.stream().anyMatch(circle -> circle.contains(node));
+	}
+
+	/*
+	 * Circles containing the node that are not consumed - in catalogue order
+	 */
+	public List<List<Node>> getActiveCircles(Node node) {
+		List<List<Node>> res = new LinkedList<>();
+
+		int id = table.getId(node);
+		if(id>=0) {
+			for(int c : circlesOfNode.get(id)) {
+				if(!consumed.get(c)) res.add(circles.get(c));
+			}
+		} else {
+			for(int c=0; c<circles.size(); c++) {
+				if(!consumed.get(c) && circles.get(c).contains(node)) res.add(circles.get(c));
+			}
+		}
+
+		return res;
+	}
+
+	/*
+	 * The circles of a node are consumed when the node is laid out
+	 */
+	public void consume(Node node) {
+		int id = table.getId(node);
+		if(id>=0) {
+			circlesOfNode.get(id).forEach(consumed::set);
+		} else {
+			for(int c=0; c<circles.size(); c++) {
+				if(circles.get(c).contains(node)) consumed.set(c);
+			}
+		}
+	}
+
+	public int getActiveCount() {
+		return circles.size() - consumed.cardinality();
+	}
+
+	/*
+	 * Number of times the node is listed in the circles
+	 */
+	public int getOccurrences(Node node) {
+		int id = table.getId(node);
+		if(id>=0) return occurrences[id];
+
+		return (int) circles.stream().flatMap(List::stream).filter(node::equals).count();
+	}
+
+	/*
+	 * Some circle with nodes from both collections
+	 */
+	public boolean hasCircleWithBoth(Collection<Node> first, Collection<Node> second) {
+		BitSet secondIds = toIds(second);
+		if(secondIds==null) return scanCircleWithBoth(first, second);
+
+		for(Node node : first) {
+			int id = table.getId(node);
+			if(id<0) return scanCircleWithBoth(first, second);
+
+			for(int c : circlesOfNode.get(id)) {
+				if(members.get(c).intersects(secondIds)) return true;
+			}
+		}
+		return false;
+	}
+
+	private BitSet toIds(Collection<Node> nodes) {
+		BitSet res = new BitSet();
+		for(Node node : nodes) {
+			int id = table.getId(node);
+			if(id<0) return null;
+			res.set(id);
+		}
+		return res;
+	}
+
+	private boolean scanCircleWithBoth(Collection<Node> first, Collection<Node> second) {
+		return circles.stream().anyMatch(circle -> first.stream().anyMatch(circle::contains) && second.stream().anyMatch(circle::contains));
+	}
+
+	/*
+	 * Bounded enumeration of the simple cycles of the directed API graph - each circle from its lowest node id,
+	 * extended only with higher ids; stops at maxCount circles or maxCount*STEPS_PER_CIRCLE search steps
+	 */
+	static class Enumeration {
+		final NodeTable table;
+		final int maxCount;
+		final int maxLength;
+		final long maxSteps;
+
+		final List<List<Node>> circles = new ArrayList<>();
+		final int[] path;
+		final BitSet onPath;
+
+		int length;
+		long steps;
+		boolean limited;
+
+		Enumeration(NodeTable table, int maxCount, int maxLength) {
+			this.table = table;
+			this.maxCount = maxCount;
+			this.maxLength = maxLength;
+			this.maxSteps = maxCount>0 ? maxCount * STEPS_PER_CIRCLE : Long.MAX_VALUE;
+			this.path = new int[table.size()];
+			this.onPath = new BitSet(table.size());
+		}
+
+		void run() {
+			for(int start=0; start<table.size() && !limited; start++) {
+				path[0] = start;
+				length = 1;
+				onPath.set(start);
+				search(start, start);
+				onPath.clear(start);
+			}
+		}
+
+		private void search(int start, int current) {
+			int[] outbound = table.getOutboundTargets();
+			for(int i=table.getOutboundStart(current); i<table.getOutboundEnd(current); i++) {
+				int next = outbound[i];
+				if(limited) return;
+
+				if(++steps > maxSteps) {
+					limited = true;
+					return;
+				}
+
+				if(next==start) {
+					if(length>1) add();
+				} else if(next>start && !onPath.get(next) && (maxLength==0 || length<maxLength)) {
+					path[length++] = next;
+					onPath.set(next);
+					search(start, next);
+					onPath.clear(next);
+					length--;
+				}
+			}
+		}
+
+		private void add() {
+			if(maxCount>0 && circles.size()>=maxCount) {
+				limited = true;
+				return;
+			}
+
+			List<Node> circle = new LinkedList<>();
+			for(int i=0; i<length; i++) circle.add(table.getNode(path[i]));
+			circles.add(circle);
+		}
+	}
+
+}
@@ -0,0 +1,93 @@
+package no.paneon.api.diagram.layout;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import no.paneon.api.graph.APIGraph;
+import no.paneon.api.graph.Node;
+import no.paneon.api.graph.complexity.Complexity;
+
+/*
+ * Complexity analysis of the resource graphs - computed once per resource for a run (DiagramGenerator)
+ * The analysis of a resource only reads the core graph; resources can be analysed in parallel (analyse)
+ * The resources are analysed in the planning pass, before the diagram tasks - get() on a task thread only reads
+ * The results are shared - not to be modified by the users
+ */
+public class ComplexityCache {
+
+    static final Logger LOG = LogManager.getLogger(ComplexityCache.class);
+
+	public static class Analysis {
+		final Complexity analyser;
+		final Map<Node,Integer> contributions;
+
+		Analysis(Complexity analyser, Map<Node,Integer> contributions) {
+			this.analyser = analyser;
+			this.contributions = contributions;
+		}
+
+		public Complexity getAnalyser() {
+			return analyser;
+		}
+
+		public Map<Node,Integer> getContributions() {
+			return contributions;
+		}
+	}
+
+	private List<String> resources;
+	private Map<String,Analysis> analyses;
+
+	ComplexityCache(List<String> resources) {
+		this.resources = resources;
+		this.analyses = new ConcurrentHashMap<>();
+	}
+
+	public Analysis get(String resource) {
+		return analyses.computeIfAbsent(resource, this::analyse);
+	}
+
+	/*
+	 * Analysis of the resources up front - in parallel if parallelism>1
+	 */
+	public void analyse(Collection<String> resourcesToAnalyse, int parallelism) {
+		if(parallelism<=1 || resourcesToAnalyse.size()<2) {
+			resourcesToAnalyse.forEach(this::get);
+			return;
+		}
+
+		LOG.debug("analyse: resources={} parallelism={}", resourcesToAnalyse.size(), parallelism);
+
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<ForkJoinTask<Analysis>> results = resourcesToAnalyse.stream()
+														.map(resource -> pool.submit(() -> get(resource)))
+														.toList();
+
+			results.forEach(ForkJoinTask::join);
+
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private Analysis analyse(String resource) {
+		APIGraph graph = new APIGraph(resource);
+
+		Complexity analyser = new Complexity(this.resources, graph.getGraph(), graph.getResourceNode());
+
+		Map<Node,Integer> contributions = analyser.computeGraphComplexity();
+
+		LOG.debug("analyse:: resource={} analyser={}", resource, analyser);
+
+		return new Analysis(analyser, contributions);
+	}
+
+}
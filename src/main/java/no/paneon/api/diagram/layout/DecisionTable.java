@@ -0,0 +1,259 @@
+package no.paneon.api.diagram.layout;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import no.paneon.api.diagram.Profiler;
+import no.paneon.api.diagram.layout.EdgeAnalyzer.Condition;
+import no.paneon.api.diagram.layout.EdgeAnalyzer.Status;
+import no.paneon.api.graph.APIGraph;
+import no.paneon.api.graph.Node;
+
+/*
+ * Compiled rule chain of EdgeAnalyzer for one direction
+ *
+ * The first rule that is not INDETERMINATE decides - a node is a candidate if it is ACCEPT
+ * Rules are declared with the status they may return (accept / reject / mixed) and optionally the feature bits
+ * (GraphMetrics.getFeatures) of the nodes they require; rules are skipped without evaluation when the bits do not match
+ *
+ * Consecutive rules of the same kind form a segment - within a segment the first rule to fire decides the same way
+ * whatever the order, and the rules are reordered by how often they fire (statistics kept per rule)
+ */
+public class DecisionTable {
+
+    static final Logger LOG = LogManager.getLogger(DecisionTable.class);
+
+	static final long REORDER_INTERVAL = 4096;
+
+	enum Kind {
+		ACCEPT,
+		REJECT,
+		MIXED
+	}
+
+	static class Rule {
+		final String name;
+		final Kind kind;
+		final Condition condition;
+
+		int toMask = 0;
+		int toValue = 0;
+		int fromMask = 0;
+		int fromValue = 0;
+
+		final LongAdder evaluated = new LongAdder();
+		final LongAdder skipped = new LongAdder();
+		final LongAdder accepted = new LongAdder();
+		final LongAdder rejected = new LongAdder();
+		final LongAdder nanos = new LongAdder();
+
+		Rule(String name, Kind kind, Condition condition) {
+			this.name = name;
+			this.kind = kind;
+			this.condition = condition;
+		}
+
+		boolean applies(int toFeatures, int fromFeatures) {
+			return (toFeatures & toMask)==toValue && (fromFeatures & fromMask)==fromValue;
+		}
+
+		/*
+		 * Estimated probability that the rule decides - smoothed, so rules without statistics are kept in between
+		 */
+		double getFireRate() {
+			double fired = (double) accepted.sum() + rejected.sum();
+			return (fired + 1) / (evaluated.sum() + skipped.sum() + 2);
+		}
+	}
+
+	static class Segment {
+		final Kind kind;
+		final List<Rule> rules = new ArrayList<>();
+		volatile Rule[] order;
+
+		Segment(Kind kind) {
+			this.kind = kind;
+		}
+	}
+
+	private Place place;
+	private List<Rule> rules;
+	private List<Segment> segments;
+	private AtomicLong evaluations;
+
+	public DecisionTable(Place place) {
+		this.place = place;
+		this.rules = new ArrayList<>();
+		this.segments = new ArrayList<>();
+		this.evaluations = new AtomicLong();
+	}
+
+	public DecisionTable accept(String name, Condition condition) {
+		return add(new Rule(name, Kind.ACCEPT, condition));
+	}
+
+	public DecisionTable reject(String name, Condition condition) {
+		return add(new Rule(name, Kind.REJECT, condition));
+	}
+
+	public DecisionTable mixed(String name, Condition condition) {
+		return add(new Rule(name, Kind.MIXED, condition));
+	}
+
+	/*
+	 * The previous rule only applies to nodes with all of the feature bits
+	 */
+	public DecisionTable requiresTo(int features) {
+		return requiresTo(features, features);
+	}
+
+	public DecisionTable requiresTo(int mask, int value) {
+		Rule rule = rules.get(rules.size()-1);
+		rule.toMask = mask;
+		rule.toValue = value;
+		return this;
+	}
+
+	public DecisionTable requiresFrom(int features) {
+		return requiresFrom(features, features);
+	}
+
+	public DecisionTable requiresFrom(int mask, int value) {
+		Rule rule = rules.get(rules.size()-1);
+		rule.fromMask = mask;
+		rule.fromValue = value;
+		return this;
+	}
+
+	private DecisionTable add(Rule rule) {
+		rules.add(rule);
+		return this;
+	}
+
+	/*
+	 * Segments of consecutive rules of the same kind - a mixed rule is a segment of its own
+	 */
+	public DecisionTable compile() {
+		segments.clear();
+
+		Segment last = null;
+		for(Rule rule : rules) {
+			if(last==null || last.kind!=rule.kind || rule.kind==Kind.MIXED) {
+				last = new Segment(rule.kind);
+				segments.add(last);
+			}
+			last.rules.add(rule);
+		}
+
+		segments.forEach(segment -> segment.order = segment.rules.toArray(new Rule[0]));
+
+		LOG.debug("compile: direction={} rules={} segments={}", place, rules.size(), segments.size());
+
+		return this;
+	}
+
+	public boolean isCandidate(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {
+
+		if(evaluations.incrementAndGet() % REORDER_INTERVAL == 0) reorder();
+
+		boolean timed = Profiler.isActive();
+
+		int toFeatures = layoutGraph.metrics.getFeatures(to);
+		int fromFeatures = layoutGraph.metrics.getFeatures(from);
+
+		for(Segment segment : segments) {
+			for(Rule rule : segment.order) {
+				if(!rule.applies(toFeatures, fromFeatures)) {
+					rule.skipped.increment();
+					continue;
+				}
+
+				long start = timed ? System.nanoTime() : 0;
+
+				Status status = rule.condition.isCandidate(to, from, apiGraph, layoutGraph);
+
+				if(timed) rule.nanos.add(System.nanoTime() - start);
+				rule.evaluated.increment();
+
+				if(LOG.isDebugEnabled()) LOG.debug("isCandidate: node={} direction={} toNode={} rule={} status={}", from, place, to, rule.name, status);
+
+				if(status==Status.ACCEPT) {
+					rule.accepted.increment();
+					return true;
+				} else if(status==Status.REJECT) {
+					rule.rejected.increment();
+					return false;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	/*
+	 * Rules most likely to fire first within each segment (stable - ties keep the declared order)
+	 */
+	synchronized void reorder() {
+		for(Segment segment : segments) {
+			if(segment.rules.size()<2) continue;
+
+			segment.order = segment.rules.stream()
+								.sorted(Comparator.comparingDouble(Rule::getFireRate).reversed())
+								.toArray(Rule[]::new);
+		}
+	}
+
+	public JSONArray getStatistics() {
+		JSONArray res = new JSONArray();
+
+		for(Segment segment : segments) {
+			Rule[] order = segment.order;
+			for(Rule rule : segment.rules) {
+				JSONObject stat = new JSONObject();
+				stat.put("direction", place.toString());
+				stat.put("rule", rule.name);
+				stat.put("kind", rule.kind.toString());
+				stat.put("position", rules.indexOf(rule));
+				stat.put("segmentPosition", indexOf(order, rule));
+				stat.put("evaluated", rule.evaluated.sum());
+				stat.put("skipped", rule.skipped.sum());
+				stat.put("accepted", rule.accepted.sum());
+				stat.put("rejected", rule.rejected.sum());
+				stat.put("millis", rule.nanos.sum() / 1_000_000.0);
+				res.put(stat);
+			}
+		}
+
+		return res;
+	}
+
+	public void clearStatistics() {
+		for(Rule rule : rules) {
+			rule.evaluated.reset();
+			rule.skipped.reset();
+			rule.accepted.reset();
+			rule.rejected.reset();
+			rule.nanos.reset();
+		}
+	}
+
+	List<Rule> getRules() {
+		return rules;
+	}
+
+	private static int indexOf(Rule[] order, Rule rule) {
+		for(int i=0; i<order.length; i++) {
+			if(order[i]==rule) return i;
+		}
+		return -1;
+	}
+
+}
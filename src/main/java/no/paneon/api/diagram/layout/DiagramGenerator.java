@@ -2,12 +2,18 @@ package no.paneon.api.diagram.layout;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
-import org.springframework.core.convert.converter.ConditionalGenericConverter;
 
+import no.paneon.api.diagram.DiagramCache;
+import no.paneon.api.diagram.Events;
+import no.paneon.api.diagram.Profiler;
+import no.paneon.api.diagram.Profiler.Measurement;
 import no.paneon.api.diagram.app.args.Common;
 import no.paneon.api.diagram.puml.Comment;
+import no.paneon.api.diagram.puml.CommentSink;
 import no.paneon.api.diagram.puml.Diagram;
 import no.paneon.api.diagram.puml.Extensions;
+import no.paneon.api.diagram.puml.FragmentCache;
+import no.paneon.api.diagram.puml.Template;
 import no.paneon.api.graph.APIGraph;
 import no.paneon.api.graph.APISubGraph;
 import no.paneon.api.graph.CoreAPIGraph;
@@ -28,12 +34,19 @@ import no.paneon.api.logging.LogMethod;
 import no.paneon.api.logging.AspectLogger.LogLevel;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
-import java.security.cert.Extension;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -42,6 +55,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -66,14 +81,24 @@ public class DiagramGenerator
     no.paneon.api.diagram.app.args.Diagram args;
     
 	JSONObject layoutConfig;
-	Layout layout; 
-	
+
 	String file;
 	String target;
 
 	List<String> resources;
 	
 	CoreAPIGraph coreGraph;
+	
+	ComplexityCache complexity;
+	
+	SubGraphPruning pruning;
+
+	Set<String> impactedNodes = null;
+	
+	DiagramCache cache = null;
+	String cacheOptions = "";
+	
+	List<String> generatedFiles = Collections.synchronizedList(new LinkedList<>());
 
 	static String REMOVE_INHERITED = "removeInherited";
 		
@@ -81,6 +106,10 @@ public class DiagramGenerator
 		this.args = args;	
 		this.layoutConfig = Config.getLayout();
 		
+		// options, configuration and API model of this run
+		FragmentCache.clear();
+		Template.clear();
+		
 		this.file = file;    
 		this.target = target;
 								
@@ -100,7 +129,17 @@ public class DiagramGenerator
 			this.resources.addAll(getResources(args));
 		}
 	
+		Measurement stage = Profiler.start(Profiler.STAGES, "coreGraph");
+
 		this.coreGraph = new CoreAPIGraph(this.resources);
+		
+		this.complexity = new ComplexityCache(this.resources);
+		
+		this.pruning = new SubGraphPruning(coreGraph.getCompleteGraph());
+
+		stage.put("nodes", coreGraph.getCompleteGraph().vertexSet().size())
+			 .put("edges", coreGraph.getCompleteGraph().edgeSet().size())
+			 .stop();
 
 		Set<String> allDefinitions = APIModel.getAllDefinitions().stream().collect(toSet());
 		List<String> invalidArguments = this.resources.stream().filter(r -> !allDefinitions.contains(r)).toList();
@@ -132,7 +171,7 @@ public class DiagramGenerator
 		}
 		
 	    createDirectory(target);
-	    if(!Config.getBoolean("keepExistingPuml")) removeExistingFiles(target, ".puml");
+	    if(!Config.getBoolean("keepExistingPuml") && !isIncremental()) removeExistingFiles(target, ".puml");
 
 		LOG.debug("DiagramGenerator() resources={}", this.resources);
 		
@@ -146,7 +185,7 @@ public class DiagramGenerator
 
 		Map<String,String> diagramConfig = new LinkedHashMap<>();
 		
-		LOG.debug("generateDiagramGraph: coreGraph=\n...{}", coreGraph.getCompleteGraph().edgeSet().stream().map(Edge::toString).collect(Collectors.joining("\n... ")));
+		LOG.debug("generateDiagramGraph: coreGraph=\n...{}", () -> coreGraph.getCompleteGraph().edgeSet().stream().map(Edge::toString).collect(Collectors.joining("\n... ")));
 	    		
 		LOG.debug("generateDiagramGraph: coreGraph nodes={}", coreGraph.getNodes() );
 		LOG.debug("generateDiagramGraph: coreGraph edges={}", coreGraph.getCompleteGraph().edgeSet() );
@@ -161,14 +200,21 @@ public class DiagramGenerator
 		LOG.debug("generateDiagramGraph: resources={}", this.resources);
 		LOG.debug("generateDiagramGraph: allResources={}", allResources);
 
+		Measurement stage = Profiler.start(Profiler.STAGES, "complexity");
+
 		ComplexityAdjustedAPIGraph graphs = new ComplexityAdjustedAPIGraph(coreGraph, args.keepTechnicalEdges);
+		
+		// complexity analysis of the resources before the diagram tasks - the tasks only read it
+		complexity.analyse(this.resources, Math.max(1, args.parallelism));
+		
+		stage.stop();
   
 		List<String> resourcesToGenerate = new LinkedList<>(this.resources);
 		
 		if(APIModel.isAsyncAPI()) {
 			List<String> messages = APIModel.getAsyncMessageTypes();
 			
-			LOG.debug("generateDiagramGraph: messages={}", Utils.joining(messages, "\n"));
+			if(LOG.isDebugEnabled()) LOG.debug("generateDiagramGraph: messages={}", Utils.joining(messages, "\n"));
 
 			// messages = messages.stream().map(APIModel::getTypeByReference).toList();
 			
@@ -188,26 +234,44 @@ public class DiagramGenerator
 
 		this.resources = resourcesToGenerate;
 		
+		List<DiagramTask> tasks = new LinkedList<>();
+
 		for(String resource : resourcesToGenerate) {
 					
 			LOG.debug("### generateDiagramGraph: resource={}", resource);
 
+			stage = Profiler.start(Profiler.STAGES, "subGraphs").put("resource", resource);
+			Events.SubGraphs event = new Events.SubGraphs();
+			event.begin();
+			
 			if(subResourceConfig!=null && subResourceConfig.has(resource)) {
 				graphs.generateSubGraphsFromConfig(this.resources, resource, Config.getList(subResourceConfig, resource));
 			} else {
 				graphs.generateSubGraphsForResource(this.resources, resource);
 			}
 			
+			stage.put("subGraphs", graphs.getSubGraphLabels(resource).size()).stop();
+			
+			event.end();
+			if(event.shouldCommit()) {
+				event.resource = resource;
+				event.subGraphs = graphs.getSubGraphLabels(resource).size();
+				event.commit();
+			}
+			
 			LOG.debug("generateDiagramGraph: resource={} subGraphs={}", resource, graphs.getSubGraphLabels(resource));
 
 			List<String> subGraphs = graphs.getSubGraphLabels(resource).stream()
 					                   .filter(r -> r.contentEquals(resource) || !allResources.contains(r))
 					                   .toList();
 			
-			LOG.debug("generateDiagramGraph: resource={} subGraphs={}", resource, Utils.joining(subGraphs,"\n"));
+			if(LOG.isDebugEnabled()) LOG.debug("generateDiagramGraph: resource={} subGraphs={}", resource, Utils.joining(subGraphs,"\n"));
 			
 			subGraphs = APIModel.filterMVOFVO(subGraphs);
 			
+			BitSet otherSubGraphs = pruning.getNodes(subGraphs);
+			otherSubGraphs.or(pruning.getNodes(this.resources));
+			
 			for(String pivot : subGraphs ) {
 				
 				if(Config.getBoolean("onlyFirstSeenSubResource") && seenResources.contains(pivot)) continue;
@@ -229,7 +293,7 @@ public class DiagramGenerator
 				if(GraphComplexity.tooSmallGraph(n,currentGraph)) continue;
 				
 				LOG.debug("generateDiagramGraph: pivot={} currentGraph={}", pivot, currentGraph.vertexSet());
-				LOG.debug("generateDiagramGraph: pivot={} currentGraph=\n{}", pivot, currentGraph.edgeSet().stream().map(Object::toString).collect(Collectors.joining("\n")));
+				LOG.debug("generateDiagramGraph: pivot={} currentGraph=\n{}", () -> pivot, () -> currentGraph.edgeSet().stream().map(Object::toString).collect(Collectors.joining("\n")));
 			
 				boolean onlyDiscriminatorEdges = onlyDiscriminatorEdgesToPivot(currentGraph, resource, pivot);
 				
@@ -237,64 +301,276 @@ public class DiagramGenerator
 
 				if(onlyDiscriminatorEdges) continue;
 
-				removeIndirectDiscriminators(pivot, currentGraph);
-
-				removeOutbounds(pivot, currentGraph, subGraphs, this.resources);
-				
-				removeDisjointSubgraphs(pivot, currentGraph);
-
-				String label; 
-				APIGraph apiGraph;
+				pruning.prune(pivot, currentGraph, otherSubGraphs);
 				
-				if(pivot.contentEquals(resource)) {
-					apiGraph = new APIGraph(this.resources, resource, coreGraph, currentGraph, pivot, args.keepTechnicalEdges);
-					label = resource;
-				} else {
-					apiGraph = new APISubGraph(this.resources, resource, coreGraph, currentGraph, resource, pivot, args.keepTechnicalEdges);
+				if(LOG.isDebugEnabled()) logDisjointSubgraphs(pivot, currentGraph);
 
-					label = resource + "_" + pivot;
-					
-					LOG.debug("allResources: {}", allResources);
-					LOG.debug("resource: {} pivot: {} label: {}", resource, pivot, label);
+				tasks.add(new DiagramTask(resource, pivot, currentGraph, subGraphs));
 					
-				} 
-				
-				removeDisjointSubgraphs(pivot, apiGraph);
+				seenResources.add(pivot);
+			}
+			
+		}
+		
+		// placement state of the nodes as left by an earlier run - the layout keeps its own in LayoutGraph
+		coreGraph.getCompleteGraph().vertexSet().forEach(Node::resetPlacement);
+
+		stage = Profiler.start(Profiler.STAGES, "diagrams").put("diagrams", tasks.size()).put("parallelism", Math.max(1, args.parallelism))
+						.include(Profiler.DIAGRAMS);
 
-				removeMVOFVONodes(pivot, apiGraph);
+		diagramConfig.putAll( generateDiagrams(tasks) );
+		
+		stage.stop();
+		
+		if(isIncremental()) {
+			removeStaleDiagrams(diagramConfig.keySet());
+			Out.printAlways("... updated {} of {} diagrams", generatedFiles.size(), diagramConfig.size());
+		}
 				
-				LOG.debug("generateDiagramGraph:: graph pivot={} nodes={}", pivot, apiGraph.getGraph().vertexSet());
-				LOG.debug("generateDiagramGraph:: graph pivot={} edges={}", pivot, apiGraph.getGraph().edgeSet());
+		return diagramConfig;
 
-				LOG.debug("generateDiagramGraph:: graph pivot={} edges={}", pivot, apiGraph.getGraph().edgeSet().stream().filter(Edge::isDiscriminator).collect(Collectors.toSet()));
+	}
+	
+	private static class DiagramTask {
+		String resource;
+		String pivot;
+		Graph<Node,Edge> graph;
+		List<String> subGraphs;
+		
+		DiagramTask(String resource, String pivot, Graph<Node,Edge> graph, List<String> subGraphs) {
+			this.resource = resource;
+			this.pivot = pivot;
+			this.graph = graph;
+			this.subGraphs = subGraphs;
+		}
+	}
+	
+	/*
+	 * The tasks run concurrently with --parallelism and only read the state shared between them: the core graph, 
+	 * the nodes of the API graph (properties and vendor extensions are set before the tasks), Config and APIModel 
+	 * (loaded and configured as the run starts), the layout configuration and the complexity analyses (ComplexityCache, 
+	 * computed in the planning pass). Each task has its own sub-graph from the planning pass and builds its own 
+	 * APIGraph / APISubGraph from it. All layout state is per diagram - LayoutGraph (placement, circles), Positions, 
+	 * Diagram and the sequence numbers of Core (per thread). The shared caches (FragmentCache, Template, DiagramCache) 
+	 * are concurrent.
+	 * Any new state written by a task must be kept per diagram as well - ParallelDiagramTest compares the output with
+	 * the sequential generation for the bundled specifications
+	 */
+	@LogMethod(level=LogLevel.DEBUG)
+	private Map<String,String> generateDiagrams(List<DiagramTask> tasks) {
+		Map<String,String> diagramConfig = new LinkedHashMap<>();
 
-				addExplicitSubResource(pivot, apiGraph);
-				
-				removeDiscriminatorsWhenInheritance(apiGraph);
-				
-				LOG.debug("generateDiagramGraph:: graph edges={}", apiGraph.getGraph().edgeSet().stream().map(Object::toString).collect(Collectors.joining("\n")));
-				
-				Diagram diagram = generateDiagramForGraph(pivot, apiGraph, subGraphs);
+		int parallelism = Math.max(1, args.parallelism);
+		
+		if(parallelism==1 || tasks.size()<2) {
+			tasks.forEach(task -> diagramConfig.putAll( generateDiagram(task) ));
+			return diagramConfig;
+		}
+		
+		LOG.debug("generateDiagrams: tasks={} parallelism={}", tasks.size(), parallelism);
 
-				label = label.replace(resource, APIModel.getMappedResource(resource) );
-				
-				// Out.printAlways("... generated diagram for " + pivot + " label=" + label);
-				if(pivot.contentEquals(resource)) {
-					Out.debug("... generated diagrams of " + pivot);
-				} else {
-					Out.debug("... generated diagrams of " + pivot + " for " + resource);
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<ForkJoinTask<Map<String,String>>> results = tasks.stream()
+																.map(task -> pool.submit(() -> generateDiagram(task)))
+																.toList();
+			
+			// merge in the same order as the sequential generation
+			results.forEach(result -> diagramConfig.putAll( result.join() ));
+			
+		} finally {
+			pool.shutdown();
+		}
+		
+		return diagramConfig;
+	}
+	
+	@LogMethod(level=LogLevel.DEBUG)
+	private Map<String,String> generateDiagram(DiagramTask task) {
+		Measurement profile = Profiler.start(Profiler.DIAGRAMS, getLabel(task))
+									.put("resource", task.resource)
+									.put("pivot", task.pivot)
+									.put("subGraphNodes", task.graph.vertexSet().size())
+									.put("subGraphEdges", task.graph.edgeSet().size());
+		try {
+			return generateDiagram(task, profile);
+		} finally {
+			profile.stop();
+		}
+	}
+	
+	private static Events.PumlWrite newPumlWrite(DiagramTask task, String label, boolean cached) {
+		Events.PumlWrite event = new Events.PumlWrite();
+		event.resource = task.resource;
+		event.pivot = task.pivot;
+		event.label = label;
+		event.cached = cached;
+		event.begin();
+		return event;
+	}
+	
+	private Map<String,String> generateDiagram(DiagramTask task, Measurement profile) {
+		String resource = task.resource;
+		String pivot = task.pivot;
+		Graph<Node,Edge> currentGraph = task.graph;
+		List<String> subGraphs = task.subGraphs;
+		
+		String label = getLabel(task); 
+		
+		if(!isImpacted(task, label)) {
+			LOG.debug("generateDiagram: not impacted by changes from baseline label={}", label);
+			profile.put("status", "unchanged");
+			Map<String,String> config = new HashMap<>();
+			config.put(label, getDiagramFileName(label));
+			return config;
+		}
+		
+		String cacheKey = null;
+		if(cache!=null) {
+			cacheKey = cache.getKey(label, resource, pivot, 
+									String.valueOf(this.resources), String.valueOf(subGraphs), 
+									ImpactAnalysis.getSignature(currentGraph, coreGraph.getCompleteGraph()), 
+									cacheOptions, getHeaderVariables());
+			
+			Optional<byte[]> puml = cache.get(cacheKey, "puml");
+			if(puml.isPresent()) {
+				profile.put("status", "cached").put("outputBytes", puml.get().length);
+				Events.PumlWrite event = newPumlWrite(task, label, true);
+				try {
+					return writeDiagram(puml.get(), label, target);
+				} finally {
+					event.commit();
 				}
-				
-				diagramConfig.putAll( writeDiagram(diagram, label, target) );
-					
-				seenResources.add(pivot);
 			}
+		}
+		
+		Measurement stage = profile.start("graph");
+		
+		APIGraph apiGraph;
+		
+		if(pivot.contentEquals(resource)) {
+			apiGraph = new APIGraph(this.resources, resource, coreGraph, currentGraph, pivot, args.keepTechnicalEdges);
+		} else {
+			apiGraph = new APISubGraph(this.resources, resource, coreGraph, currentGraph, resource, pivot, args.keepTechnicalEdges);
+			
+			LOG.debug("resource: {} pivot: {} label: {}", resource, pivot, label);
 			
+		} 
+		
+		removeDisjointSubgraphsAndMVOFVONodes(pivot, apiGraph);
+		
+		LOG.debug("generateDiagramGraph:: graph pivot={} nodes={}", pivot, apiGraph.getGraph().vertexSet());
+		LOG.debug("generateDiagramGraph:: graph pivot={} edges={}", pivot, apiGraph.getGraph().edgeSet());
+
+		LOG.debug("generateDiagramGraph:: graph pivot={} edges={}", () -> pivot, () -> apiGraph.getGraph().edgeSet().stream().filter(Edge::isDiscriminator).collect(Collectors.toSet()));
+
+		addExplicitSubResource(pivot, apiGraph);
+		
+		removeDiscriminatorsWhenInheritance(apiGraph);
+		
+		LOG.debug("generateDiagramGraph:: graph edges={}", () -> apiGraph.getGraph().edgeSet().stream().map(Object::toString).collect(Collectors.joining("\n")));
+		
+		stage.put("nodes", apiGraph.getGraph().vertexSet().size()).put("edges", apiGraph.getGraph().edgeSet().size()).stop();
+		
+		stage = profile.start("layout");
+		
+		Diagram diagram = generateDiagramForGraph(pivot, apiGraph, subGraphs);
+		
+		stage.put("classes", diagram.getClasses().size())
+			 .put("edges", diagram.getClasses().stream().mapToInt(c -> c.getEdges().size()).sum())
+			 .stop();
+
+		// Out.printAlways("... generated diagram for " + pivot + " label=" + label);
+		if(pivot.contentEquals(resource)) {
+			Out.debug("... generated diagrams of " + pivot);
+		} else {
+			Out.debug("... generated diagrams of " + pivot + " for " + resource);
 		}
-				
-		return diagramConfig;
+		
+		stage = profile.start("write");
+		Events.PumlWrite event = newPumlWrite(task, label, false);
+		
+		Map<String,String> config;
+		if(cache!=null) {
+			byte[] puml = getBytes(diagram);
+			cache.put(cacheKey, "puml", puml);
+			config = writeDiagram(puml, label, target);
+		} else {
+			config = writeDiagram(diagram, label, target);
+		}
+		
+		event.commit();
+		stage.stop();
+		
+		profile.put("status", "generated").put("outputBytes", getPumlFile(label).length());
+		
+		return config;
 
 	}
+	
+	// existing diagrams are kept and only rewritten when changed
+	private boolean isIncremental() {
+		return args.baseline!=null || args.cacheDirectory!=null;
+	}
+	
+	private String getLabel(DiagramTask task) {
+		String label = task.pivot.contentEquals(task.resource) ? task.resource : task.resource + "_" + task.pivot;
+		return label.replace(task.resource, APIModel.getMappedResource(task.resource) );
+	}
+	
+	/*
+	 * Variables of the diagram header (see puml.Diagram) not given by the graph or the options
+	 */
+	private String getHeaderVariables() {
+		return "FILE=" + new File(file).getName() + " VENDOR_COLOR=" + Extensions.getColor();
+	}
+	
+	public void setCache(DiagramCache cache) {
+		this.cache = cache;
+		if(cache!=null) this.cacheOptions = DiagramCache.getOptions(args) + String.valueOf(layoutConfig);
+	}
+	
+	public void setImpactedNodes(Set<String> impactedNodes) {
+		this.impactedNodes = impactedNodes;
+	}
+	
+	public List<String> getGeneratedFiles() {
+		return new LinkedList<>(generatedFiles);
+	}
+	
+	private boolean isImpacted(DiagramTask task, String label) {
+		if(impactedNodes==null) return true;
+		
+		if(!getPumlFile(label).isFile()) return true;
+		
+		return impactedNodes.contains(task.pivot) 
+				|| task.graph.vertexSet().stream().map(Node::getName).anyMatch(impactedNodes::contains);
+	}
+	
+	private void removeStaleDiagrams(Set<String> labels) {
+		Set<String> current = labels.stream().map(this::getPumlFileName).collect(toSet());
+		
+		File[] files = new File(target).listFiles();
+		if(files==null) return;
+		
+		for(File file: files) 
+		    if (file.isFile() && file.getName().startsWith("Resource_") && file.getName().endsWith(".puml") && !current.contains(file.getName())) 
+		        file.delete();
+	}
+	
+	private File getPumlFile(String label) {
+		return target.isEmpty() ? new File(getPumlFileName(label)) : new File(target, getPumlFileName(label));
+	}
+	
+	private String getPumlFileName(String label) {
+		return "Resource_" + label + ".puml";
+	}
+	
+	private String getDiagramFileName(String label) {
+	    String fileType = Config.getString("diagramFileType");
+	    if(fileType==null || fileType.isEmpty()) fileType = ".png";
+	    return getPumlFileName(label).replace(".puml", fileType);
+	}
 	        	
 
 	private void removeDiscriminatorsWhenInheritance(APIGraph apiGraph) {
@@ -322,29 +598,40 @@ public class DiagramGenerator
 	}
 
 
-	private void removeMVOFVONodes(String pivot, APIGraph graph) {
+	/*
+	 * Nodes not reachable from the pivot, then MVO / FVO nodes (unless keepMVOFVOResources) - removed in one operation
+	 */
+	private void removeDisjointSubgraphsAndMVOFVONodes(String pivot, APIGraph graph) {
+		LOG.debug("removeDisjointSubgraphs:: node={} graph={}", pivot, graph);
+		Set<Node> reachable = CoreAPIGraph.getReachableNew(graph.getGraph(), pivot);
+		Set<Node> toRemove = new HashSet<>(graph.getGraph().vertexSet());
+		toRemove.removeAll(reachable);
+		LOG.debug("removeDisjointSubgraphs:: node={} unreachable={}", pivot, toRemove);
+		
 		if(!Config.getBoolean("keepMVOFVOResources")) {
-			// Predicate<Node> MVO_or_FVO = s -> isExcludedResourceExtensions(s);
-
-			
-			Set<Node> toRemove = graph.getGraphNodes().stream().filter(s -> isExcludedResourceExtensions(s.getName())).collect(toSet());
+			Set<Node> excluded = graph.getGraph().vertexSet().stream()
+									.filter(reachable::contains)
+									.filter(s -> isExcludedResourceExtensions(s.getName()))
+									.collect(toSet());
 			
-			if(!toRemove.isEmpty()) {
+			if(!excluded.isEmpty()) {
 				Predicate<String>  notMVOFVO = s -> !isExcludedResourceExtensions(s);
-				boolean notAll_MVO_FVO = toRemove.stream().map(Node::getName).anyMatch(notMVOFVO);
-				if(notAll_MVO_FVO) Out.debug("... removing from {} {}", pivot, toRemove);
+				boolean notAll_MVO_FVO = excluded.stream().map(Node::getName).anyMatch(notMVOFVO);
+				if(notAll_MVO_FVO) Out.debug("... removing from {} {}", pivot, excluded);
 			}
 			
-			graph.getGraph().removeAllVertices(toRemove);
-			
+			toRemove.addAll(excluded);
 		}
+		
+		graph.getGraph().removeAllVertices(toRemove);
+		
 	}
 
 
-	private void removeDisjointSubgraphs(String node, Graph<Node, Edge> graph) {
+	private void logDisjointSubgraphs(String node, Graph<Node, Edge> graph) {
 		
 		LOG.debug("removeDisjointSubgraphs:: node={} graph={}", node, graph.vertexSet());
-		LOG.debug("removeDisjointSubgraphs:: node={} edges=\n{}", node, graph.edgeSet().stream().map(Edge::toString).collect(Collectors.joining("\n")));
+		LOG.debug("removeDisjointSubgraphs:: node={} edges=\n{}", () -> node, () -> graph.edgeSet().stream().map(Edge::toString).collect(Collectors.joining("\n")));
 
 		Set<Node> reachable = CoreAPIGraph.getReachable(graph, node);
 		Set<Node> unreachable = new HashSet<>(graph.vertexSet());
@@ -357,97 +644,6 @@ public class DiagramGenerator
 		
 	}
 
-	private void removeDisjointSubgraphs(String node, APIGraph graph) {	
-		LOG.debug("removeDisjointSubgraphs:: node={} graph={}", node, graph);
-		Set<Node> reachable = CoreAPIGraph.getReachableNew(graph.getGraph(), node);
-		Set<Node> unreachable = new HashSet<>(graph.getGraph().vertexSet());
-		unreachable.removeAll(reachable);
-		LOG.debug("removeDisjointSubgraphs:: node={} unreachable={}", node, unreachable);
-		
-		graph.getGraph().removeAllVertices(unreachable);
-		
-	}
-
-
-	private void removeOutbounds(String node, Graph<Node, Edge> graph, List<String> subGraphs, List<String> allResources) {
-		
-		Predicate<Node> inOtherSubGraphs = n -> (subGraphs.contains(n.getName()) || allResources.contains(n.getName()) )
-													&& !n.getName().contentEquals(node);
-		
-		Set<Node> otherNodes = graph.vertexSet().stream()
-								.filter(inOtherSubGraphs)
-								.collect(toSet());
-		
-		for(Node n : otherNodes) {
-			Set<Edge> outboundEdges = graph.outgoingEdgesOf(n).stream()
-										.filter(e -> !e.getRelated().getName().contentEquals(node))
-										.collect(toSet());
-						
-			// 634: 2023-06-20
-			if(!Config.getBoolean("keepOutboundEdges")) {
-				graph.removeAllEdges(outboundEdges);		
-			}
-
-		}
-		
-		LOG.debug("removeOutbounds:: node={} otherNodes={} subGraphs={} allResources={}", node, otherNodes, subGraphs, allResources);		
-	
-		
-	}
-
-
-	private void removeIndirectDiscriminators(String pivot, Graph<Node,Edge> graph) {
-		
-		Optional<Node> optnode = APIGraph.getNodeByName(graph, pivot);
-		
-		if(optnode.isEmpty()) return;
-		
-		Node node = optnode.get();
-		
-		Set<Node> discriminators = graph.outgoingEdgesOf(node)
-				                .stream()
-								.filter(Edge::isDiscriminator)
-								.map(Edge::getRelated)
-								.collect(toSet());
-		
-		Predicate<Edge> notFromPivot = e -> !e.getNode().equals(node);
-		
-		Set<Edge> indirectEdges = discriminators.stream()
-									.map(graph::incomingEdgesOf)
-									.flatMap(Set::stream)
-									.filter(Edge::isDiscriminator)
-									.filter(notFromPivot)
-									.collect(toSet());
-		
-		Set<Node> relatedNodes = indirectEdges.stream().map(Edge::getNode).collect(toSet());
-		
-		Predicate<Edge> notToPivot = e -> !e.getRelated().equals(node);
-
-		Set<Edge> additionalDiscriminators = relatedNodes.stream()
-												.map(graph::outgoingEdgesOf)
-												.flatMap(Set::stream)
-												.filter(Edge::isDiscriminator)
-												.filter(notToPivot)
-												.filter(e -> !indirectEdges.contains(e))
-												.collect(toSet());
-		
-		LOG.debug("removeIndirectDiscriminators:: resource={} discriminators={}", pivot, discriminators);		
-		LOG.debug("removeIndirectDiscriminators:: resource={} indirectEdges={}", pivot, indirectEdges);		
-		LOG.debug("removeIndirectDiscriminators:: resource={} relatedNodes={}", pivot, relatedNodes);		
-		LOG.debug("removeIndirectDiscriminators:: resource={} additionalDiscriminators={}", pivot, additionalDiscriminators);		
-
-		// 634: 2023-06-19
-		if(!Config.getBoolean("keepDiscriminators")) {
-			graph.removeAllEdges(indirectEdges);
-			graph.removeAllEdges(additionalDiscriminators);
-			
-		}
-			
-		
-		
-	}
-
-
 	private void addExplicitSubResource(String resource, APIGraph apiGraph) {
 		JSONObject includeSubResources = Config.getConfig("includeSubResources");
 		if(includeSubResources==null || includeSubResources.isEmpty()) return;
@@ -590,12 +786,17 @@ public class DiagramGenerator
 	    //	removeInherited(apiGraph);
 	    }
 	    
-	    layout = new Layout(apiGraph, layoutConfig);
+	    Layout layout = new Layout(apiGraph, layoutConfig);
+	    
+	    return generateDiagramForGraph(diagram, layout, resource, apiGraph, subGraphs);
+	}
+	
+	Diagram generateDiagramForGraph(Diagram diagram, Layout layout, String resource, APIGraph apiGraph, List<String> subGraphs) {
 	            	    	    
 	    List<Node> nodesInGraph = getSequenceOfNodesInGraph(apiGraph,resource);
 	    	   	    
 	    LOG.debug("generateDiagramForGraph:: resource={} nodes={}", resource, nodesInGraph );
-	    LOG.debug("generateDiagramForGraph:: resource={} edges={}", resource, apiGraph.getGraph().edgeSet().stream().map(Object::toString).collect(Collectors.joining("\n") ));
+	    LOG.debug("generateDiagramForGraph:: resource={} edges={}", () -> resource, () -> apiGraph.getGraph().edgeSet().stream().map(Object::toString).collect(Collectors.joining("\n") ));
 
 	    Set<Node> reachable = CoreAPIGraph.getReachable(apiGraph.getGraph(), resource);
 	    
@@ -630,8 +831,10 @@ public class DiagramGenerator
 	    	            
 	    // addOrphanEnums(apiGraph,diagram);
 	      	    	
-  	    List<String> placement = layout.getNodePlacement();
-  	    placement.forEach(line -> diagram.addComment(new Comment(line)));
+  	    if(CommentSink.isActive()) {
+  	    	List<String> placement = layout.getNodePlacement();
+  	    	placement.forEach(line -> diagram.addComment(new Comment(line)));
+  	    }
   	    
 	    LOG.debug("generateDiagramForGraph: resource={} DONE", resource);
 
@@ -746,8 +949,9 @@ public class DiagramGenerator
 		
 	    Complexity analyser = processComplexity(rawGraph.getResource());	
 
-	    Set<Node> baseTypes = analyser.getBaseTypes();
-	    Set<Node> simpleTypes = analyser.getSimpleTypes();
+	    // copies - the analysis is shared
+	    Set<Node> baseTypes = new HashSet<>(analyser.getBaseTypes());
+	    Set<Node> simpleTypes = new HashSet<>(analyser.getSimpleTypes());
 
 	    LOG.debug("complexityAdjustedGraph: baseTypes=" + baseTypes);
 	    LOG.debug("complexityAdjustedGraph: simpleTypes=" + simpleTypes);
@@ -815,15 +1019,7 @@ public class DiagramGenerator
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private Complexity processComplexity(String resource) {
-	    APIGraph graph = new APIGraph(resource);
-	    
-	    Complexity analyser = new Complexity(this.resources, graph.getGraph(),graph.getResourceNode());
-	    	    
-	    analyser.computeGraphComplexity();
-		    						
-    	LOG.debug("processComplexity:: resource={} analyser={}", resource, analyser);
-
-		return analyser;
+		return complexity.get(resource).getAnalyser();
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
@@ -835,24 +1031,60 @@ public class DiagramGenerator
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private Map<String,String> writeDiagram(Diagram diagram, String resource, String target) {
+	    String fileName = getPumlFileName(resource);
+	    if(!target.isEmpty() && !target.endsWith(File.separator)) target = target + File.separator;
+	    File destination = new File(target + fileName);
+
+	    if(cache!=null || destination.exists()) {
+	    	return writeDiagram(getBytes(diagram), resource, target);
+	    }
+	    
 		Map<String,String> config = new HashMap<>();
-		
-	    String puml = diagram.toString();
+
+		// new file - stream directly
+	    try(Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(destination), Charset.defaultCharset())) ) {    
+	    	
+	    	LOG.debug("writeDiagram:: resource={} destination={}", resource, destination);
+	    	diagram.write(writer);
+	    	
+	    	generatedFiles.add(fileName);
+	    	
+    	    config.put(resource, getDiagramFileName(resource));
+
+	    } catch(Exception ex) {
+	    	Out.println("exception: " + ex.getLocalizedMessage());
+	    }
 	    
-	    String fileName = "Resource_" + resource + ".puml";
+	    return config;
+	}
+	
+	private byte[] getBytes(Diagram diagram) {
+		ByteArrayOutputStream res = new ByteArrayOutputStream();
+		try(Writer writer = new OutputStreamWriter(res, Charset.defaultCharset())) {
+			diagram.write(writer);
+		} catch(IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return res.toByteArray();
+	}
+	
+	private Map<String,String> writeDiagram(byte[] puml, String resource, String target) {
+		Map<String,String> config = new HashMap<>();
+		
+	    String fileName = getPumlFileName(resource);
 	    if(!target.isEmpty() && !target.endsWith(File.separator)) target = target + File.separator;
 	    String destination = target + fileName;
 	    
-	    try(BufferedWriter writer = new BufferedWriter(new FileWriter(destination)) ) {    
+	    try {    
 	    	
 	    	LOG.debug("writeDiagram:: resource={} destination={}", resource, destination);
-    	    writer.write(puml);
-    	        	  
-    	    String fileType = Config.getString("diagramFileType");
-    	    if(fileType==null || fileType.isEmpty()) fileType = ".png";
-    	    fileName = fileName.replace(".puml", fileType);
+	    	
+	    	// unchanged files are left untouched (keeps the modification time)
+    	    if(DiagramCache.writeIfChanged(new File(destination), puml)) {
+    	    	generatedFiles.add(fileName);
+    	    }
     	    
-    	    config.put(resource, fileName);
+    	    config.put(resource, getDiagramFileName(resource));
     	    
 	    } catch(Exception ex) {
 	    	Out.println("exception: " + ex.getLocalizedMessage());
@@ -879,6 +1111,8 @@ public class DiagramGenerator
 
 	@LogMethod(level=LogLevel.DEBUG)
 	public void displayComplexity() {
+		complexity.analyse(resources, Math.max(1, args.parallelism));
+		
 		for(String resource : resources) {
 			displayComplexityForResource(resource);
 		}
@@ -887,19 +1121,17 @@ public class DiagramGenerator
 	@LogMethod(level=LogLevel.DEBUG)
 	public void displayComplexityForResource(String resource) {
 		
-	    APIGraph preGraph = new APIGraph(resource);
-	
-	    Complexity analyser = new Complexity(this.resources, preGraph.getGraph(),preGraph.getResourceNode());
+	    ComplexityCache.Analysis analysis = complexity.get(resource);
 	    
-	    displayComplexity(analyser, resource, "Resource diagram complexity", "... Total graph complexity");
+	    displayComplexity(analysis.getContributions(), resource, "Resource diagram complexity", "... Total graph complexity");
 	    		
 	    APIGraph graph = new APIGraph(resource);
 	    
-	    graph.applyComplexity(analyser, resource);
+	    graph.applyComplexity(analysis.getAnalyser(), resource);
 	    		
-	    analyser = new Complexity(this.resources, graph.getGraph(),graph.getResourceNode());
+	    Complexity analyser = new Complexity(this.resources, graph.getGraph(),graph.getResourceNode());
 	    
-	    displayComplexity(analyser, resource, "Complexity after applying configuration of base types", "... Total graph complexity");
+	    displayComplexity(analyser.computeGraphComplexity(), resource, "Complexity after applying configuration of base types", "... Total graph complexity");
 
 		Collection<Node> baseTypes = analyser.getBaseTypes();
 		if(!baseTypes.isEmpty()) {
@@ -920,11 +1152,9 @@ public class DiagramGenerator
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
-	private void displayComplexity(Complexity analyser, String resource, String header1, String header2) {
+	private void displayComplexity(Map<Node,Integer> contributions, String resource, String header1, String header2) {
 		
-	    Map<Node,Integer> complexity = analyser.computeGraphComplexity();
-	    
-	    int graphComplexity = complexity.entrySet().stream().map(Map.Entry::getValue).mapToInt(Integer::intValue).sum();
+	    int graphComplexity = contributions.entrySet().stream().map(Map.Entry::getValue).mapToInt(Integer::intValue).sum();
 	    
 	    if(graphComplexity==0) {
 			Out.println("... Resource: " + resource + " - diagram is not complex (complexity measure=" + graphComplexity + ")");
@@ -935,7 +1165,7 @@ public class DiagramGenerator
 	    Out.println(header2 + ": " + graphComplexity);
 		
 	    Out.println("... Node complexity contributions: ");
-		complexity.entrySet().stream().forEach(entry -> {
+		contributions.entrySet().stream().forEach(entry -> {
 			Out.println("... ... " + entry.getKey() + " : " + entry.getValue());
 		});
 		
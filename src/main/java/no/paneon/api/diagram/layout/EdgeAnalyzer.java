@@ -1,7 +1,6 @@
   package no.paneon.api.diagram.layout;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashSet;
@@ -17,6 +16,7 @@ import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 
 import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
 
 import no.paneon.api.graph.APIGraph;
 import no.paneon.api.graph.AllOf;
@@ -72,7 +72,7 @@ public class EdgeAnalyzer {
 		Status isCandidate(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph);
 	}	
 	
-	static Map<Place,List<Condition>> edgeConditions = new EnumMap<> (Place.class);
+	static Map<Place,DecisionTable> edgeConditions = new EnumMap<> (Place.class);
 	
 	interface PlaceCounter {
 		double get(Set<Node> options, Set<Node> placed);
@@ -82,162 +82,160 @@ public class EdgeAnalyzer {
 
 	static {
 
-		edgeConditions.put(Place.LEFT, Arrays.asList(
+		edgeConditions.put(Place.LEFT, new DecisionTable(Place.LEFT)
+				.reject("notIfMultipleWithSameRelationship", EdgeAnalyzer::notIfMultipleWithSameRelationship)
 				
-				EdgeAnalyzer::notIfMultipleWithSameRelationship,
-				
-				EdgeAnalyzer::ifMultipleToInheritance,
+				.accept("ifMultipleToInheritance", EdgeAnalyzer::ifMultipleToInheritance)
 
-				EdgeAnalyzer::notIfPivotSpecialCase,
+				.reject("notIfPivotSpecialCase", EdgeAnalyzer::notIfPivotSpecialCase).requiresFrom(GraphMetrics.RESOURCE)
 
-				EdgeAnalyzer::notIfFromBelowAndTwoOthers,
+				.reject("notIfFromBelowAndTwoOthers", EdgeAnalyzer::notIfFromBelowAndTwoOthers).requiresFrom(GraphMetrics.RESOURCE, 0)
 
-				EdgeAnalyzer::notIfFromRightAndSingleTo,
+				.reject("notIfFromRightAndSingleTo", EdgeAnalyzer::notIfFromRightAndSingleTo)
 								
-				EdgeAnalyzer::notIfBidirectional,
+				.reject("notIfBidirectional", EdgeAnalyzer::notIfBidirectional)
 
-				EdgeAnalyzer::notIfOneOf,
+				.reject("notIfOneOf", EdgeAnalyzer::notIfOneOf)
 
-				EdgeAnalyzer::notIfDiscriminator,
+				.reject("notIfDiscriminator", EdgeAnalyzer::notIfDiscriminator)
 
-				EdgeAnalyzer::notIfAllOf,
+				.reject("notIfAllOf", EdgeAnalyzer::notIfAllOf)
 
-				EdgeAnalyzer::notIfFromPivotAndFewOutbound,
+				.reject("notIfFromPivotAndFewOutbound", EdgeAnalyzer::notIfFromPivotAndFewOutbound).requiresFrom(GraphMetrics.RESOURCE)
 
-				EdgeAnalyzer::notIfComplexAndLeafExists,
+				.reject("notIfComplexAndLeafExists", EdgeAnalyzer::notIfComplexAndLeafExists)
 
-				EdgeAnalyzer::notIfSelfReference,
+				.reject("notIfSelfReference", EdgeAnalyzer::notIfSelfReference)
 
-				EdgeAnalyzer::notIfMultipleEdges,
+				.reject("notIfMultipleEdges", EdgeAnalyzer::notIfMultipleEdges)
 
-				EdgeAnalyzer::notIfBelowAndFewOutbounds,
+				.reject("notIfBelowAndFewOutbounds", EdgeAnalyzer::notIfBelowAndFewOutbounds)
 				
-				EdgeAnalyzer::notIfSuperclassAndAlternatives,
+				.mixed("notIfSuperclassAndAlternatives", EdgeAnalyzer::notIfSuperclassAndAlternatives)
 
-				EdgeAnalyzer::ifSimple,
+				.accept("ifSimple", EdgeAnalyzer::ifSimple).requiresTo(GraphMetrics.LEAF)
 
-				EdgeAnalyzer::ifPlacedAboveAndLeafNode,
+				.accept("ifPlacedAboveAndLeafNode", EdgeAnalyzer::ifPlacedAboveAndLeafNode).requiresTo(GraphMetrics.LEAF)
 			
-				EdgeAnalyzer::notIfTooManyOutboundNeighbours,
+				.reject("notIfTooManyOutboundNeighbours", EdgeAnalyzer::notIfTooManyOutboundNeighbours)
 
-				EdgeAnalyzer::notIfNodePlacedBelowAndFewNeighbours,
+				.accept("notIfNodePlacedBelowAndFewNeighbours", EdgeAnalyzer::notIfNodePlacedBelowAndFewNeighbours)
 				
-				EdgeAnalyzer::isLeafNodeAndMultipleNeighbours,
+				.accept("isLeafNodeAndMultipleNeighbours", EdgeAnalyzer::isLeafNodeAndMultipleNeighbours).requiresTo(GraphMetrics.LEAF)
 
-				(toNode, node, apiGraph, layoutGraph) -> {	
+				.accept("L01", (toNode, node, apiGraph, layoutGraph) -> {	
 					 
-					boolean res = apiGraph.getInboundNeighbours(node).size()>=3 &&
-							apiGraph.isLeafNode(toNode) && apiGraph.isSingleFromNode(toNode) &&
+					boolean res = layoutGraph.metrics.getInboundCount(node)>=3 &&
+							layoutGraph.metrics.isLeafNode(toNode) && layoutGraph.metrics.isSingleFromNode(toNode) &&
 							(!toNode.startsWith(node) );
 					
 					return acceptWhenTrue(res);
 					
-				},
+				}).requiresTo(GraphMetrics.LEAF | GraphMetrics.SINGLE_FROM)
 
-				(toNode, node, apiGraph, layoutGraph) -> {
+				.accept("L02", (toNode, node, apiGraph, layoutGraph) -> {
 					boolean res =  
-							apiGraph.getOutboundNeighbours(node).size()>=4 &&
-							apiGraph.isLinearPath(toNode,2); 
+							layoutGraph.metrics.getOutboundCount(node)>=4 &&
+							layoutGraph.metrics.isLinearPath(toNode,2); 
 				
 					return acceptWhenTrue(res);
 		
-				},
+				}).requiresTo(GraphMetrics.LINEAR_PATH)
 
-				(toNode, node, apiGraph, layoutGraph) -> {
+				.accept("L03", (toNode, node, apiGraph, layoutGraph) -> {
 					boolean res = 
-							apiGraph.getNeighbours(node).size()>=4 &&
-							apiGraph.isSingleFromNode(toNode) &&
-							apiGraph.isLeafNode(toNode); 
+							layoutGraph.metrics.getNeighbourCount(node)>=4 &&
+							layoutGraph.metrics.isSingleFromNode(toNode) &&
+							layoutGraph.metrics.isLeafNode(toNode); 
 							
 					return acceptWhenTrue(res);
 
-				},
+				}).requiresTo(GraphMetrics.LEAF | GraphMetrics.SINGLE_FROM)
 
-				(toNode, node, apiGraph, layoutGraph) -> {
+				.accept("L04", (toNode, node, apiGraph, layoutGraph) -> {
 					boolean res = 
 							layoutGraph.isPlacedAt(node,Place.ABOVE) && 
 							layoutGraph.isPlacedAt(node,Place.BELOW) && 
-							apiGraph.isSingleFromNode(toNode) &&
-							apiGraph.isLeafNode(toNode);
+							layoutGraph.metrics.isSingleFromNode(toNode) &&
+							layoutGraph.metrics.isLeafNode(toNode);
 					
 					return acceptWhenTrue(res);
 
-				},
+				}).requiresTo(GraphMetrics.LEAF | GraphMetrics.SINGLE_FROM)
 
-				(toNode, node, apiGraph, layoutGraph) -> {
+				.accept("L05", (toNode, node, apiGraph, layoutGraph) -> {
 					boolean res = // !layoutGraph.isPlacedAt(node,Place.LEFT) && 
 							layoutGraph.isPlacedAt(node,Place.ABOVE) && 
-							apiGraph.getNeighbours(node).size()>=3 &&
-							apiGraph.isSingleFromNode(toNode) &&
-							apiGraph.isLeafNode(toNode); 
+							layoutGraph.metrics.getNeighbourCount(node)>=3 &&
+							layoutGraph.metrics.isSingleFromNode(toNode) &&
+							layoutGraph.metrics.isLeafNode(toNode); 
 							
 					return acceptWhenTrue(res);
 
-				}
+				}).requiresTo(GraphMetrics.LEAF | GraphMetrics.SINGLE_FROM)
 
-				));
+				.compile());
 
-		edgeConditions.put(Place.RIGHT, Arrays.asList( 
-				
-				EdgeAnalyzer::notIfMultipleWithSameRelationship,
+		edgeConditions.put(Place.RIGHT, new DecisionTable(Place.RIGHT)
+				.reject("notIfMultipleWithSameRelationship", EdgeAnalyzer::notIfMultipleWithSameRelationship)
 
-				EdgeAnalyzer::ifMultipleToInheritance,
+				.accept("ifMultipleToInheritance", EdgeAnalyzer::ifMultipleToInheritance)
 
-				EdgeAnalyzer::notIfPivotSpecialCase,
+				.reject("notIfPivotSpecialCase", EdgeAnalyzer::notIfPivotSpecialCase).requiresFrom(GraphMetrics.RESOURCE)
 
-				EdgeAnalyzer::notIfToSingleAndLargeSubgraph,
+				.reject("notIfToSingleAndLargeSubgraph", EdgeAnalyzer::notIfToSingleAndLargeSubgraph)
 
-				EdgeAnalyzer::notIfFromBelowAndTwoOthers,
+				.reject("notIfFromBelowAndTwoOthers", EdgeAnalyzer::notIfFromBelowAndTwoOthers).requiresFrom(GraphMetrics.RESOURCE, 0)
 
-				EdgeAnalyzer::notIfFromRightAndBelow,
+				.reject("notIfFromRightAndBelow", EdgeAnalyzer::notIfFromRightAndBelow)
 				
-				EdgeAnalyzer::notIfFromRightAndSingleTo,
+				.reject("notIfFromRightAndSingleTo", EdgeAnalyzer::notIfFromRightAndSingleTo)
 				
-				EdgeAnalyzer::notIfBidirectional,
+				.reject("notIfBidirectional", EdgeAnalyzer::notIfBidirectional)
 
-				EdgeAnalyzer::notIfDiscriminator,
+				.reject("notIfDiscriminator", EdgeAnalyzer::notIfDiscriminator)
 
-				EdgeAnalyzer::notIfOneOf,
+				.reject("notIfOneOf", EdgeAnalyzer::notIfOneOf)
 
-				EdgeAnalyzer::notIfFromPivotAndFewOutbound,
+				.reject("notIfFromPivotAndFewOutbound", EdgeAnalyzer::notIfFromPivotAndFewOutbound).requiresFrom(GraphMetrics.RESOURCE)
 
-				EdgeAnalyzer::notIfMultipleEdges,
+				.reject("notIfMultipleEdges", EdgeAnalyzer::notIfMultipleEdges)
 
-				(toNode, node, apiGraph, layoutGraph) ->  { 
+				.accept("R00", (toNode, node, apiGraph, layoutGraph) ->  { 
 										
 					return acceptWhenTrue(true);
 
-				},
+				})
 				
 				// EdgeAnalyzer::notIfBelowAndFewOutbounds,
 
-				EdgeAnalyzer::notIfInheritance,
+				.reject("notIfInheritance", EdgeAnalyzer::notIfInheritance)
 				
-				EdgeAnalyzer::notIfTooManyOutboundNeighbours,
+				.reject("notIfTooManyOutboundNeighbours", EdgeAnalyzer::notIfTooManyOutboundNeighbours)
 
-				EdgeAnalyzer::notIfNodePlacedBelowAndFewNeighbours,
+				.accept("notIfNodePlacedBelowAndFewNeighbours", EdgeAnalyzer::notIfNodePlacedBelowAndFewNeighbours)
 
-				EdgeAnalyzer::notIfComposite,
+				.reject("notIfComposite", EdgeAnalyzer::notIfComposite).requiresTo(GraphMetrics.COMPOSITE)
 
-				EdgeAnalyzer::ifSimple,
+				.accept("ifSimple", EdgeAnalyzer::ifSimple).requiresTo(GraphMetrics.LEAF)
 
-				EdgeAnalyzer::ifPlacedAbove,
+				.accept("ifPlacedAbove", EdgeAnalyzer::ifPlacedAbove)
 
-				EdgeAnalyzer::isToLeafNodeAndFromComplex,
+				.accept("isToLeafNodeAndFromComplex", EdgeAnalyzer::isToLeafNodeAndFromComplex).requiresTo(GraphMetrics.LEAF)
 
-				EdgeAnalyzer::isLeafNodeAndMultipleNeighbours,
+				.accept("isLeafNodeAndMultipleNeighbours", EdgeAnalyzer::isLeafNodeAndMultipleNeighbours).requiresTo(GraphMetrics.LEAF)
 
 		
-				(toNode, node, apiGraph, layoutGraph) ->  { 
+				.accept("R01", (toNode, node, apiGraph, layoutGraph) ->  { 
 										
-					boolean res = (apiGraph.getOutboundNeighbours(node).size()>1) && (apiGraph.getOutboundNeighbours(toNode).size()>8);
+					boolean res = (layoutGraph.metrics.getOutboundCount(node)>1) && (layoutGraph.metrics.getOutboundCount(toNode)>8);
 					
 					return acceptWhenTrue(res);
 
 
-				},
+				})
 				
-				(toNode, node, apiGraph, layoutGraph) ->  { 
+				.accept("R02", (toNode, node, apiGraph, layoutGraph) ->  { 
 					
 					Set<Node> outboundFromNode=apiGraph.getOutboundNeighbours(node);
 					if(outboundFromNode.size()<2) return INDETERMINATE;
@@ -247,28 +245,28 @@ public class EdgeAnalyzer {
 					Set<Node> common=Utils.intersection(outboundFromToNode,outboundFromNode);
 					if(common.size()!=1) return INDETERMINATE; 
 
-					boolean res = apiGraph.isSingleFromNode(toNode) && common.size()==1 && 
+					boolean res = layoutGraph.metrics.isSingleFromNode(toNode) && common.size()==1 && 
 								  apiGraph.getEdges(node,toNode).size()==1;
 
 					LOG.trace("edgeConditions: R02 toNode={} res={}", toNode, res);
 
 					return acceptWhenTrue(res);
-				},
+				}).requiresTo(GraphMetrics.SINGLE_FROM)
 
-				(toNode, node, apiGraph, layoutGraph) ->  { 
+				.accept("R03", (toNode, node, apiGraph, layoutGraph) ->  { 
 
-					boolean res = apiGraph.isSingleFromNode(toNode) && apiGraph.isLeafNode(toNode) ; // && 
+					boolean res = layoutGraph.metrics.isSingleFromNode(toNode) && layoutGraph.metrics.isLeafNode(toNode) ; // && 
 							// apiGraph.getEdges(node,toNode).size()==1;
 
 					LOG.trace("edgeConditions: R03 toNode={} res={}", toNode, res);
 
 					return acceptWhenTrue(res);
-				},
+				}).requiresTo(GraphMetrics.LEAF | GraphMetrics.SINGLE_FROM)
 
-				(toNode, node, apiGraph, layoutGraph) ->  { 
+				.accept("R04", (toNode, node, apiGraph, layoutGraph) ->  { 
 
-					boolean res= apiGraph.isSingleFromNode(toNode) && 
-								apiGraph.isLeafNode(toNode) && 
+					boolean res= layoutGraph.metrics.isSingleFromNode(toNode) && 
+								layoutGraph.metrics.isLeafNode(toNode) && 
 								apiGraph.getEdges(node,toNode).size()==1 &&
 								(layoutGraph.isPlacedAt(node,Place.ABOVE) && !layoutGraph.isPlacedAt(node,Place.BELOW));
 
@@ -276,25 +274,25 @@ public class EdgeAnalyzer {
 
 					return acceptWhenTrue(res);
 
-				},
+				}).requiresTo(GraphMetrics.LEAF | GraphMetrics.SINGLE_FROM)
 
-				(toNode, node, apiGraph, layoutGraph) -> {
+				.accept("R05", (toNode, node, apiGraph, layoutGraph) -> {
 					
 					boolean res = 
-							apiGraph.getOutboundNeighbours(node).size()>=4 &&
+							layoutGraph.metrics.getOutboundCount(node)>=4 &&
 							apiGraph.getEdges(node,toNode).size()==1 &&
-							apiGraph.isLinearPath(toNode,2);
+							layoutGraph.metrics.isLinearPath(toNode,2);
 
 							LOG.trace("edgeConditions: R05 toNode={} res={}", toNode, res);
 							return acceptWhenTrue(res);
 
-				},
+				}).requiresTo(GraphMetrics.LINEAR_PATH)
 
-				(toNode, node, apiGraph, layoutGraph) -> {
+				.accept("R06", (toNode, node, apiGraph, layoutGraph) -> {
 					
 					boolean res = 
-							apiGraph.isSingleFromNode(toNode) &&
-							apiGraph.isLeafNode(toNode) &&
+							layoutGraph.metrics.isSingleFromNode(toNode) &&
+							layoutGraph.metrics.isLeafNode(toNode) &&
 							apiGraph.getEdges(node,toNode).size()==1 &&
 									layoutGraph.currentlyPlacedAtLevel(node,1) > layoutGraph.currentlyPlacedAtLevel(node,0) + 3;
 
@@ -302,98 +300,96 @@ public class EdgeAnalyzer {
 							
 					return acceptWhenTrue(res);
 
-				},
+				}).requiresTo(GraphMetrics.LEAF | GraphMetrics.SINGLE_FROM)
 
-				(toNode, node, apiGraph, layoutGraph) -> {
+				.accept("R07", (toNode, node, apiGraph, layoutGraph) -> {
 					
-					boolean res =  apiGraph.isSingleFromNode(toNode) && 
-							apiGraph.getOutboundNeighbours(toNode).size()==1 &&
-							apiGraph.isLinearPath(toNode,2) &&
+					boolean res =  layoutGraph.metrics.isSingleFromNode(toNode) && 
+							layoutGraph.metrics.getOutboundCount(toNode)==1 &&
+							layoutGraph.metrics.isLinearPath(toNode,2) &&
 							apiGraph.getEdges(node,toNode).size()==1 &&
-							apiGraph.getNeighbours(node).size()==2;	
+							layoutGraph.metrics.getNeighbourCount(node)==2;	
 					
 					return acceptWhenTrue(res);
 
-				}
+				}).requiresTo(GraphMetrics.SINGLE_FROM | GraphMetrics.LINEAR_PATH)
 
 
-				));
+				.compile());
 
-		edgeConditions.put(Place.ABOVE, Arrays.asList(
-				
+		edgeConditions.put(Place.ABOVE, new DecisionTable(Place.ABOVE)
 				// EdgeAnalyzer::notIfBelowAndFewOutbounds,
 				
 				// EdgeAnalyzer::notIfMultipleEdges, // TEST
 				
-				EdgeAnalyzer::notIfMultipleRegularEdges, // TEST
+				.reject("notIfMultipleRegularEdges", EdgeAnalyzer::notIfMultipleRegularEdges) // TEST
 
-				EdgeAnalyzer::ifMultipleToInheritance,
+				.accept("ifMultipleToInheritance", EdgeAnalyzer::ifMultipleToInheritance)
 				
-				EdgeAnalyzer::notIfPivotSpecialCase,
+				.reject("notIfPivotSpecialCase", EdgeAnalyzer::notIfPivotSpecialCase).requiresFrom(GraphMetrics.RESOURCE)
 
-				EdgeAnalyzer::notFromCircleNodeAndBelowInCircle,
+				.reject("notFromCircleNodeAndBelowInCircle", EdgeAnalyzer::notFromCircleNodeAndBelowInCircle).requiresFrom(GraphMetrics.RESOURCE, 0)
 
-				EdgeAnalyzer::notIfFromRightAndSingleTo,
+				.reject("notIfFromRightAndSingleTo", EdgeAnalyzer::notIfFromRightAndSingleTo)
 				
-				EdgeAnalyzer::notIfFromBelowAndFewOutbound,
+				.reject("notIfFromBelowAndFewOutbound", EdgeAnalyzer::notIfFromBelowAndFewOutbound).requiresFrom(GraphMetrics.RESOURCE, 0)
 
-				EdgeAnalyzer::notIfFromBelowAndToIsLeaf,
+				.reject("notIfFromBelowAndToIsLeaf", EdgeAnalyzer::notIfFromBelowAndToIsLeaf).requiresFrom(GraphMetrics.RESOURCE, 0)
 
-				EdgeAnalyzer::notIfFromBelowAndTwoOthers,
+				.reject("notIfFromBelowAndTwoOthers", EdgeAnalyzer::notIfFromBelowAndTwoOthers).requiresFrom(GraphMetrics.RESOURCE, 0)
 				
-				EdgeAnalyzer::ifFromIsSingleNeighbourOfTo,
+				.accept("ifFromIsSingleNeighbourOfTo", EdgeAnalyzer::ifFromIsSingleNeighbourOfTo)
 				
-				EdgeAnalyzer::notIfFromLeftRightAndTwoOutbound,
+				.reject("notIfFromLeftRightAndTwoOutbound", EdgeAnalyzer::notIfFromLeftRightAndTwoOutbound)
 
-				EdgeAnalyzer::notIfLargeSubGraph,
+				.reject("notIfLargeSubGraph", EdgeAnalyzer::notIfLargeSubGraph)
 
-				EdgeAnalyzer::notFromCircleNode,
+				.reject("notFromCircleNode", EdgeAnalyzer::notFromCircleNode)
 
-				EdgeAnalyzer::notIfBelowPivot,
+				.reject("notIfBelowPivot", EdgeAnalyzer::notIfBelowPivot)
 
-				EdgeAnalyzer::notIfLongPath,
+				.reject("notIfLongPath", EdgeAnalyzer::notIfLongPath)
 				
-				EdgeAnalyzer::notIfOneOf,
+				.reject("notIfOneOf", EdgeAnalyzer::notIfOneOf)
 				
-				EdgeAnalyzer::notIfContainedOneOf,
+				.reject("notIfContainedOneOf", EdgeAnalyzer::notIfContainedOneOf)
 
-				EdgeAnalyzer::notIfDiscriminator,
+				.reject("notIfDiscriminator", EdgeAnalyzer::notIfDiscriminator)
 
-				EdgeAnalyzer::notIfContainedDiscriminator,
+				.reject("notIfContainedDiscriminator", EdgeAnalyzer::notIfContainedDiscriminator)
 
-				EdgeAnalyzer::ifPlacedAboveAndLeafNode,
+				.accept("ifPlacedAboveAndLeafNode", EdgeAnalyzer::ifPlacedAboveAndLeafNode).requiresTo(GraphMetrics.LEAF)
 
 //				EdgeAnalyzer::notIfDirectInheritance,
 
-				EdgeAnalyzer::notIfPartOfCircle,
+				.reject("notIfPartOfCircle", EdgeAnalyzer::notIfPartOfCircle)
 
-				EdgeAnalyzer::notIfSelfReference,
+				.reject("notIfSelfReference", EdgeAnalyzer::notIfSelfReference)
 
-				EdgeAnalyzer::notIfFromPivotAndFewOutbound,
+				.reject("notIfFromPivotAndFewOutbound", EdgeAnalyzer::notIfFromPivotAndFewOutbound).requiresFrom(GraphMetrics.RESOURCE)
 				
-				EdgeAnalyzer::notIfBelowAndInheritance,
+				.reject("notIfBelowAndInheritance", EdgeAnalyzer::notIfBelowAndInheritance)
 
-				EdgeAnalyzer::ifSuperior,
+				.accept("ifSuperior", EdgeAnalyzer::ifSuperior)
 
-				EdgeAnalyzer::notIfSubordinate,
+				.reject("notIfSubordinate", EdgeAnalyzer::notIfSubordinate)
 				
-				EdgeAnalyzer::notIfInheritance,
+				.reject("notIfInheritance", EdgeAnalyzer::notIfInheritance)
 
-				EdgeAnalyzer::notIfComposite,
+				.reject("notIfComposite", EdgeAnalyzer::notIfComposite).requiresTo(GraphMetrics.COMPOSITE)
 
-				EdgeAnalyzer::isSingleFromAndLeafAboveCondition,
+				.accept("isSingleFromAndLeafAboveCondition", EdgeAnalyzer::isSingleFromAndLeafAboveCondition).requiresTo(GraphMetrics.LEAF | GraphMetrics.SINGLE_FROM)
 
-				EdgeAnalyzer::isLinearPathAboveCondition,
+				.accept("isLinearPathAboveCondition", EdgeAnalyzer::isLinearPathAboveCondition).requiresTo(GraphMetrics.SINGLE_FROM | GraphMetrics.LINEAR_PATH)
 						
-				EdgeAnalyzer::anyNode
+				.accept("anyNode", EdgeAnalyzer::anyNode)
 
-				));
+				.compile());
 
-		edgeConditions.put(Place.BELOW, Arrays.asList(
+		edgeConditions.put(Place.BELOW, new DecisionTable(Place.BELOW)
+				.accept("anyNode", EdgeAnalyzer::anyNode)
 				
-				EdgeAnalyzer::anyNode
-				
-				));
+				.compile());
 
 		
 		placeCounter.put(Place.LEFT,  (options,place) -> 1 );
@@ -477,10 +473,10 @@ public class EdgeAnalyzer {
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notFromCircleNodeAndBelowInCircle(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 				
-		boolean res = !from.getCircleNodes().isEmpty() && !from.equals(apiGraph.getResourceNode()) && layoutGraph.isPlaced(from);
+		boolean res = layoutGraph.isPartOfCircle(from) && !from.equals(apiGraph.getResourceNode()) && layoutGraph.isPlaced(from);
 		
 		Set<Node> nodes = apiGraph.getGraphNodes();
-		nodes.retainAll(from.getCircleNodes());
+		nodes.retainAll(layoutGraph.getCircleNodes(from));
 		nodes.remove(from);
 		
 		OptionalInt topY = nodes.stream().filter(layoutGraph::isPlaced).map(layoutGraph::getPosition).map(Position::getY).mapToInt(v->v).min();
@@ -547,11 +543,11 @@ public class EdgeAnalyzer {
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfToSingleAndLargeSubgraph(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 				
-		boolean res = apiGraph.getInboundNeighbours(to).size()==1;
+		boolean res = layoutGraph.metrics.getInboundCount(to)==1;
 		
 		if(res) LOG.debug("notIfToSingleAndLargeSubgraph: from={} to={} #1 res={}",  from, to, res);
 
-		res = res && apiGraph.getSubGraph(to).size()>=5;
+		res = res && layoutGraph.metrics.getSubGraphSize(to)>=5;
 		
 		if(res) LOG.debug("notIfToSingleAndLargeSubgraph: from={} to={} res={}",  from, to, res);
 		
@@ -567,7 +563,7 @@ public class EdgeAnalyzer {
 		
 		if(res) LOG.debug("notIfFromBelowAndTwoOthers: from={} to={} #1 res={}",  from, to, res);
 
-		res = res && apiGraph.getOutboundNeighbours(from).size()==2;
+		res = res && layoutGraph.metrics.getOutboundCount(from)==2;
 		
 		if(res) LOG.debug("notIfFromBelowAndTwoOthers: from={} to={} res={}",  from, to, res);
 		
@@ -582,7 +578,7 @@ public class EdgeAnalyzer {
 		
 		if(res) LOG.debug("notIfFromLeftRightAndTwoOutbound: from={} to={} #1 res={}",  from, to, res);
 
-		res = res && apiGraph.getOutboundNeighbours(to).size()<=2;
+		res = res && layoutGraph.metrics.getOutboundCount(to)<=2;
 		
 		if(res) LOG.debug("notIfFromLeftRightAndTwoOutbound: from={} to={} res={}",  from, to, res);
 		
@@ -593,7 +589,7 @@ public class EdgeAnalyzer {
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status ifFromIsSingleNeighbourOfTo(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 				
-		boolean res = apiGraph.getNeighbours(to).size()==1;
+		boolean res = layoutGraph.metrics.getNeighbourCount(to)==1;
 		
 		LOG.debug("ifFromIsSingleNeighbourOfTo: from={} to={} res={}",  from, to, res);
 		
@@ -615,9 +611,9 @@ public class EdgeAnalyzer {
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfFromRightAndSingleTo(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 				
-		boolean res = layoutGraph.isPlacedAt(from,Place.LEFT)&& apiGraph.getOutboundNeighbours(from).size()==1; 
+		boolean res = layoutGraph.isPlacedAt(from,Place.LEFT)&& layoutGraph.metrics.getOutboundCount(from)==1; 
 		
-		res = res || layoutGraph.isPlacedAt(from,Place.ABOVE)&& apiGraph.getOutboundNeighbours(from).size()==1;
+		res = res || layoutGraph.isPlacedAt(from,Place.ABOVE)&& layoutGraph.metrics.getOutboundCount(from)==1;
 
 		LOG.debug("notIfFromRightAndSingleTo: from={} to={} res={}",  from, to, res);
 		
@@ -628,9 +624,9 @@ public class EdgeAnalyzer {
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfFromLeftAndSingleTo(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 				
-		boolean res = layoutGraph.isPlacedAt(from,Place.RIGHT)&& apiGraph.getOutboundNeighbours(from).size()==1;
+		boolean res = layoutGraph.isPlacedAt(from,Place.RIGHT)&& layoutGraph.metrics.getOutboundCount(from)==1;
 		
-		res = res || layoutGraph.isPlacedAt(from,Place.ABOVE)&& apiGraph.getOutboundNeighbours(from).size()==1;
+		res = res || layoutGraph.isPlacedAt(from,Place.ABOVE)&& layoutGraph.metrics.getOutboundCount(from)==1;
 		
 		LOG.debug("notIfFromLeftAndSingleTo: from={} to={} res={}",  from, to, res);
 		
@@ -641,7 +637,7 @@ public class EdgeAnalyzer {
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfLargeSubGraph(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 		
-		int subGraphSize = apiGraph.getSubGraph(to).size();
+		int subGraphSize = layoutGraph.metrics.getSubGraphSize(to);
 		
 		boolean res = subGraphSize >= 4;
 		
@@ -655,7 +651,7 @@ public class EdgeAnalyzer {
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfBelowPivot(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 		
-		boolean singleInboundAndOutbound = apiGraph.getNeighbours(from).size()==2;
+		boolean singleInboundAndOutbound = layoutGraph.metrics.getNeighbourCount(from)==2;
 		boolean isBelowPivot      = apiGraph.getAllNeighbours(from).contains(apiGraph.getResourceNode());
 		
 		boolean res = singleInboundAndOutbound && isBelowPivot;
@@ -707,13 +703,13 @@ public class EdgeAnalyzer {
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notFromCircleNode(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {
-		boolean isFromCircleNode = from.isPartOfCircle();
+		boolean isFromCircleNode = layoutGraph.isPartOfCircle(from);
 		
 		Predicate<Node> isAbove = n -> layoutGraph.isPositionedAbove(n,from);
 		
-		isFromCircleNode = isFromCircleNode && from.getCircleNodes().stream().anyMatch(isAbove);
+		isFromCircleNode = isFromCircleNode && layoutGraph.getCircleNodes(from).stream().anyMatch(isAbove);
 		
-		if(isFromCircleNode) LOG.debug("notFromCircleNode: from={} to={} circle={} res={}", from, to, from.getCircleNodes(), isFromCircleNode);
+		if(isFromCircleNode) LOG.debug("notFromCircleNode: from={} to={} circle={} res={}", from, to, layoutGraph.getCircleNodes(from), isFromCircleNode);
 		
 		return rejectIfTrue( isFromCircleNode );
 
@@ -776,7 +772,7 @@ public class EdgeAnalyzer {
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfContainedDiscriminator(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {
 		boolean isDiscriminator = apiGraph.getNeighbours(to).stream().map(child -> apiGraph.getEdges(to,child)).flatMap(Set::stream).anyMatch(Edge::isDiscriminator); 
-		boolean hasManyNodes = apiGraph.getNeighbours(from).size()>BALANCE_THRESHOLD;;
+		boolean hasManyNodes = layoutGraph.metrics.getNeighbourCount(from)>BALANCE_THRESHOLD;;
 
 		if(isDiscriminator) LOG.debug("notIfContainedDiscriminator: from={} to={} isDiscriminator={}", from, to, isDiscriminator);
 
@@ -786,7 +782,7 @@ public class EdgeAnalyzer {
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfPartOfCircle(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {
-		boolean inCircle = apiGraph.getCircles().stream().flatMap(List::stream).anyMatch(to::equals);
+		boolean inCircle = layoutGraph.getCircleCatalogue().contains(to);
 
 		LOG.debug("notIfPartOfCircle: from={} to={} inCircle={}", from, to, inCircle);
 
@@ -796,7 +792,7 @@ public class EdgeAnalyzer {
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfFromPivotAndFewOutbound(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {
-		boolean hasManyNodes = apiGraph.getNeighbours(from).size()>=3;
+		boolean hasManyNodes = layoutGraph.metrics.getNeighbourCount(from)>=3;
 		boolean isPivot      = apiGraph.getResourceNode().equals(from);
 		
 		boolean res = !isPivot || hasManyNodes;
@@ -818,7 +814,7 @@ public class EdgeAnalyzer {
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfComplexAndLeafExists(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {
-		boolean hasLeafNodes = apiGraph.getOutboundNeighbours(from).stream().anyMatch(n -> apiGraph.getNeighbours(n).size()==1);
+		boolean hasLeafNodes = apiGraph.getOutboundNeighbours(from).stream().anyMatch(n -> layoutGraph.metrics.getNeighbourCount(n)==1);
 		boolean hasMultipleNeighbours = apiGraph.getAllNeighbours(to).size()>1;
 		
 		LOG.debug("notIfComplexAndLeafExists: to={} from={} hasLeafNodes={}",  to, from, hasLeafNodes);
@@ -839,7 +835,7 @@ public class EdgeAnalyzer {
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfFromNodeInCircle(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {
-		boolean fromNodeInSomeCircle = apiGraph.getCircles().stream().flatMap(List::stream).anyMatch(from::equals);
+		boolean fromNodeInSomeCircle = layoutGraph.getCircleCatalogue().contains(from);
 		return rejectIfFalse( !fromNodeInSomeCircle );
 
 	}
@@ -861,26 +857,26 @@ public class EdgeAnalyzer {
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfBelowAndFewOutbounds(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {
-		boolean placedBelowAndFewNeighbours = layoutGraph.isPlacedAt(from, Place.ABOVE) && apiGraph.getOutboundNeighbours(from).size() <=2;
+		boolean placedBelowAndFewNeighbours = layoutGraph.isPlacedAt(from, Place.ABOVE) && layoutGraph.metrics.getOutboundCount(from) <=2;
 		return rejectIfFalse( !placedBelowAndFewNeighbours );
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfTooManyOutboundNeighbours(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
-		boolean many = apiGraph.getOutboundNeighbours(to).size()>=3;
+		boolean many = layoutGraph.metrics.getOutboundCount(to)>=3;
 		return rejectIfFalse( !many );
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfComposite(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
-		return rejectIfFalse( !apiGraph.isCompositeNode(to));
+		return rejectIfFalse( !layoutGraph.metrics.isCompositeNode(to));
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status notIfNodePlacedBelowAndFewNeighbours(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 		return acceptWhenTrue( layoutGraph.isPlacedAt(from,Place.BELOW) && 
-								  apiGraph.getNeighbours(from).size()>3 && 
-								  apiGraph.getOutboundNeighbours(from).size()>2 );
+								  layoutGraph.metrics.getNeighbourCount(from)>3 && 
+								  layoutGraph.metrics.getOutboundCount(from)>2 );
 
 
 	}
@@ -890,7 +886,7 @@ public class EdgeAnalyzer {
 		boolean isInheritance = apiGraph.getEdges(from, to).stream().anyMatch(edge -> edge instanceof AllOf);
 				
 		boolean isBelow = layoutGraph.isPlacedAt(from,Place.ABOVE);
-		boolean hasManyNodes = apiGraph.getNeighbours(from).size()>BALANCE_THRESHOLD;
+		boolean hasManyNodes = layoutGraph.metrics.getNeighbourCount(from)>BALANCE_THRESHOLD;
 
 		boolean isInheritanceAndBelow = isInheritance && isBelow && !hasManyNodes;
 		
@@ -918,7 +914,7 @@ public class EdgeAnalyzer {
 	private static Status notIfInheritance(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 		Set<Edge> isInheritance = apiGraph.getGraph().outgoingEdgesOf(to).stream().filter(Edge::isInheritance).collect(toSet());
 				
-		boolean hasManyNodes = apiGraph.getNeighbours(from).size()>BALANCE_THRESHOLD;
+		boolean hasManyNodes = layoutGraph.metrics.getNeighbourCount(from)>BALANCE_THRESHOLD;
 
 		Status res = rejectIfFalse(isInheritance.size()>0 && !hasManyNodes);
 		
@@ -932,7 +928,7 @@ public class EdgeAnalyzer {
 	private static Status notIfSuperclassAndAlternatives(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 		boolean isInheritance = apiGraph.getGraph().getAllEdges(from, to).stream().anyMatch(Edge::isInheritance);
 		
-		Predicate<Node> filterSimpleNodes = n -> apiGraph.isLeafNode(n) && !n.isEnumNode() && !n.equals(to);
+		Predicate<Node> filterSimpleNodes = n -> layoutGraph.metrics.isLeafNode(n) && !n.isEnumNode() && !n.equals(to);
 		
 		Set<Node> simpleNodes = apiGraph.getNeighbours(from).stream().filter(filterSimpleNodes).collect(toSet());
 		
@@ -997,7 +993,7 @@ public class EdgeAnalyzer {
 	private static Status isLeafNodeAndFromIsBelow(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {	
         LOG.debug("isLeafNodeAndFromIsBelow: to={}, from={}", to, from);
 
-		boolean res = apiGraph.isLeafNode(to) && layoutGraph.isPlaced(from, Place.BELOW);
+		boolean res = layoutGraph.metrics.isLeafNode(to) && layoutGraph.isPlaced(from, Place.BELOW);
 		
 		return acceptWhenTrue(res);
 
@@ -1005,7 +1001,7 @@ public class EdgeAnalyzer {
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status isLeafNodeAndMultipleNeighbours(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
-		boolean res = apiGraph.isLeafNode(to) && apiGraph.getNeighbours(to).size()>2;
+		boolean res = layoutGraph.metrics.isLeafNode(to) && layoutGraph.metrics.getNeighbourCount(to)>2;
 			   
 		return acceptWhenTrue(res);
 
@@ -1013,13 +1009,13 @@ public class EdgeAnalyzer {
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status isToLeafNodeAndFromComplex(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
-		boolean res = apiGraph.isLeafNode(to) && apiGraph.getNeighbours(from).size()>=3;	   
+		boolean res = layoutGraph.metrics.isLeafNode(to) && layoutGraph.metrics.getNeighbourCount(from)>=3;	   
 		return acceptWhenTrue(res);
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status ifSimple(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
-		return acceptWhenTrue( apiGraph.isLeafNode(to) && apiGraph.getNeighbours(from).size()>4 );   
+		return acceptWhenTrue( layoutGraph.metrics.isLeafNode(to) && layoutGraph.metrics.getNeighbourCount(from)>4 );   
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
@@ -1029,14 +1025,14 @@ public class EdgeAnalyzer {
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status ifPlacedAboveAndLeafNode(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {	
-		return acceptWhenTrue( layoutGraph.isPlacedAt(from, Place.BELOW) && apiGraph.isLeafNode(to) );   // TBD BELOW
+		return acceptWhenTrue( layoutGraph.isPlacedAt(from, Place.BELOW) && layoutGraph.metrics.isLeafNode(to) );   // TBD BELOW
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private static Status isSingleFromAndLeafAboveCondition(Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {		
 		boolean res = !apiGraph.isPivotNodeAndSimpleStructure(from) &&
-				apiGraph.isLeafNode(to) && 
-				apiGraph.isSingleFromNode(to);
+				layoutGraph.metrics.isLeafNode(to) && 
+				layoutGraph.metrics.isSingleFromNode(to);
 		
 		return acceptWhenTrue(res);
 	}
@@ -1046,10 +1042,10 @@ public class EdgeAnalyzer {
 		
 		boolean res = !apiGraph.isPivotNodeAndSimpleStructure(from) &&  
 			   !apiGraph.isItemSubResource(from, to) &&
-				apiGraph.isSingleFromNode(to) && 
-				apiGraph.getOutboundNeighbours(to).size()<=1 &&
-				apiGraph.isLinearPath(to,2) &&
-				apiGraph.getSubGraph(to).size()<2;	
+				layoutGraph.metrics.isSingleFromNode(to) && 
+				layoutGraph.metrics.getOutboundCount(to)<=1 &&
+				layoutGraph.metrics.isLinearPath(to,2) &&
+				layoutGraph.metrics.getSubGraphSize(to)<2;	
 		
         LOG.debug("isLinearPathAboveCondition: to={}, from={} res={}", to, from, res);
 
@@ -1064,49 +1060,44 @@ public class EdgeAnalyzer {
 
         LOG.trace("computeLayout: node={}, neighbours={}", node, neighbours);
 
-	    for(Node toNode: neighbours) {
-
-	        // populate edgesPlaced property
+	    // populate edgesPlaced property - the placement of node does not change while the conditions are evaluated
+	    if(!neighbours.isEmpty()) {
 	        Map<Place, Set<Node>> placed = layoutGraph.getPlaced(node);
 	        	        
 	        for(Place v : Place.coreValues() )  {           
-	            if(placed.containsKey(v)) {
-	            	for( Node n : placed.get(v) ) {
-	                    if(!edgesPlaced.containsKey(v)) {
-	                    	edgesPlaced.put(v, new HashSet<>());
-	                    }
-	                    if(!edgesPlaced.get(v).contains(n)) edgesPlaced.get(v).add(n);
-	                }
-	            }
+	        	Set<Node> nodes = placed.get(v);
+	            if(nodes!=null) edgesPlaced.computeIfAbsent(v, p -> new HashSet<>()).addAll(nodes);
 	        }
-	        
+	    }
+	    
+	    for(Node toNode: neighbours) {
 	        for(Place place : Place.coreValues()) {
-	        	List<Condition> conditions = edgeConditions.get(place);
-	        	if(!edgeOptions.get(place).contains(toNode)) {
-	        			        		
-		        	for(Condition condition: conditions) {
-		        		Status cond = condition.isCandidate(toNode, node, apiGraph, layoutGraph); 
-		        		LOG.debug("computeLayout: node={} qualified direction={} toNode={} cond={}", node, place, toNode, cond);
-		        		
-		        		if(cond!=INDETERMINATE) {
-		        			if(cond==ACCEPT) {
-		        				edgeOptions.get(place).add(toNode);
-		        			} else {
-		        				break;
-		        			}
-		        		}
-		        	}
-		        	
+	        	Set<Node> options = edgeOptions.get(place);
+	        	if(!options.contains(toNode) && edgeConditions.get(place).isCandidate(toNode, node, apiGraph, layoutGraph)) {
+	        		options.add(toNode);
 	        	}
-	        	
 	        }
-	        
 	    }
 	    
 	    LOG.debug("computeLayout: node={} edgeOptions={}",  node, edgeOptions);
 	    			    
 	}
 	
+	/*
+	 * Per rule statistics of the decision tables (hits, accepts, rejects, and time when profiling)
+	 */
+	public static JSONArray getRuleStatistics() {
+		JSONArray res = new JSONArray();
+		for(Place place : Place.coreValues()) {
+			edgeConditions.get(place).getStatistics().forEach(res::put);
+		}
+		return res;
+	}
+	
+	public static void clearRuleStatistics() {
+		edgeConditions.values().forEach(DecisionTable::clearStatistics);
+	}
+	
 	@LogMethod(level=LogLevel.DEBUG)
 	boolean isUnbalanced() {
 		return layoutGraph.isUnbalancedLevel(this.node);		
@@ -1200,7 +1191,7 @@ public class EdgeAnalyzer {
 			
 			Set<Node> inheritsFrom = options.stream().filter(n -> isSuperClass(n,node)).collect(toSet());
 			
-			boolean possiblyUnbalanced = apiGraph.getOutboundNeighbours(node).size()>BALANCE_THRESHOLD;
+			boolean possiblyUnbalanced = layoutGraph.metrics.getOutboundCount(node)>BALANCE_THRESHOLD;
 			
 			if(!inheritsFrom.isEmpty() && !possiblyUnbalanced) {
 				return inheritsFrom;
@@ -1352,7 +1343,7 @@ public class EdgeAnalyzer {
 		
 	    int inbound=apiGraph.getEdges(node,nodeA).size();
 	    
-	    int outbound=apiGraph.getOutboundNeighbours(nodeA).size();
+	    int outbound=layoutGraph.metrics.getOutboundCount(nodeA);
 	    
 	    int subGraph=apiGraph.getSubGraph(node, nodeA).size();
 
@@ -0,0 +1,154 @@
+package no.paneon.api.diagram.layout;
+
+import java.util.BitSet;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import no.paneon.api.graph.APIGraph;
+import no.paneon.api.graph.CoreAPIGraph;
+import no.paneon.api.graph.Node;
+
+/*
+ * Structural facts of the API graph of a diagram, computed once as the layout graph is created
+ * (the API graph does not change during layout) - by the node ids of LayoutGraph (NodeTable)
+ * Nodes outside the table are passed on to the API graph
+ */
+public class GraphMetrics {
+
+    static final Logger LOG = LogManager.getLogger(GraphMetrics.class);
+
+	private static final int LINEAR_PATH_LENGTH = 2;
+
+	/*
+	 * Feature bits of a node (getFeatures) - used by the decision tables of EdgeAnalyzer to skip rules that cannot apply
+	 */
+	public static final int LEAF        = 1;
+	public static final int SINGLE_FROM = 1<<1;
+	public static final int LINEAR_PATH = 1<<2;
+	public static final int COMPOSITE   = 1<<3;
+	public static final int RESOURCE    = 1<<4;
+
+	private APIGraph apiGraph;
+	private NodeTable table;
+
+	private int[] outbound;
+	private int[] inbound;
+	private int[] neighbours;
+	private int[] subGraph;
+	private int[] subGraphNodes;
+
+	private BitSet leaf;
+	private BitSet singleFrom;
+	private BitSet linearPath;
+	private BitSet composite;
+
+	private int[] features;
+
+	GraphMetrics(APIGraph apiGraph, NodeTable table) {
+		this.apiGraph = apiGraph;
+		this.table = table;
+
+		int size = table.size();
+
+		this.outbound = new int[size];
+		this.inbound = new int[size];
+		this.neighbours = new int[size];
+		this.subGraph = new int[size];
+		this.subGraphNodes = new int[size];
+
+		this.leaf = new BitSet(size);
+		this.singleFrom = new BitSet(size);
+		this.linearPath = new BitSet(size);
+		this.composite = new BitSet(size);
+
+		this.features = new int[size];
+
+		for(int id=0; id<size; id++) {
+			Node node = table.getNode(id);
+
+			outbound[id] = apiGraph.getOutboundNeighbours(node).size();
+			inbound[id] = apiGraph.getInboundNeighbours(node).size();
+			neighbours[id] = apiGraph.getNeighbours(node).size();
+			subGraph[id] = apiGraph.getSubGraph(node).size();
+			subGraphNodes[id] = CoreAPIGraph.getSubGraphNodes(apiGraph.getGraph(), node).size();
+
+			leaf.set(id, apiGraph.isLeafNode(node));
+			singleFrom.set(id, apiGraph.isSingleFromNode(node));
+			linearPath.set(id, apiGraph.isLinearPath(node, LINEAR_PATH_LENGTH));
+			composite.set(id, apiGraph.isCompositeNode(node));
+
+			features[id] = getFeatures(leaf.get(id), singleFrom.get(id), linearPath.get(id), composite.get(id), node.equals(apiGraph.getResourceNode()));
+		}
+
+		LOG.debug("GraphMetrics:: nodes={}", size);
+	}
+
+	public int getOutboundCount(Node node) {
+		int id = table.getId(node);
+		return id>=0 ? outbound[id] : apiGraph.getOutboundNeighbours(node).size();
+	}
+
+	public int getInboundCount(Node node) {
+		int id = table.getId(node);
+		return id>=0 ? inbound[id] : apiGraph.getInboundNeighbours(node).size();
+	}
+
+	public int getNeighbourCount(Node node) {
+		int id = table.getId(node);
+		return id>=0 ? neighbours[id] : apiGraph.getNeighbours(node).size();
+	}
+
+	/*
+	 * Size of APIGraph.getSubGraph(node)
+	 */
+	public int getSubGraphSize(Node node) {
+		int id = table.getId(node);
+		return id>=0 ? subGraph[id] : apiGraph.getSubGraph(node).size();
+	}
+
+	/*
+	 * Size of CoreAPIGraph.getSubGraphNodes(graph, node)
+	 */
+	public int getSubGraphNodesSize(Node node) {
+		int id = table.getId(node);
+		return id>=0 ? subGraphNodes[id] : CoreAPIGraph.getSubGraphNodes(apiGraph.getGraph(), node).size();
+	}
+
+	public boolean isLeafNode(Node node) {
+		int id = table.getId(node);
+		return id>=0 ? leaf.get(id) : apiGraph.isLeafNode(node);
+	}
+
+	public boolean isSingleFromNode(Node node) {
+		int id = table.getId(node);
+		return id>=0 ? singleFrom.get(id) : apiGraph.isSingleFromNode(node);
+	}
+
+	public boolean isLinearPath(Node node, int length) {
+		int id = table.getId(node);
+		return id>=0 && length==LINEAR_PATH_LENGTH ? linearPath.get(id) : apiGraph.isLinearPath(node, length);
+	}
+
+	public boolean isCompositeNode(Node node) {
+		int id = table.getId(node);
+		return id>=0 ? composite.get(id) : apiGraph.isCompositeNode(node);
+	}
+
+	public int getFeatures(Node node) {
+		int id = table.getId(node);
+		if(id>=0) return features[id];
+
+		return getFeatures(apiGraph.isLeafNode(node), apiGraph.isSingleFromNode(node), apiGraph.isLinearPath(node, LINEAR_PATH_LENGTH),
+							apiGraph.isCompositeNode(node), node.equals(apiGraph.getResourceNode()));
+	}
+
+	private static int getFeatures(boolean isLeaf, boolean isSingleFrom, boolean isLinearPath, boolean isComposite, boolean isResource) {
+		return (isLeaf ? LEAF : 0)
+				| (isSingleFrom ? SINGLE_FROM : 0)
+				| (isLinearPath ? LINEAR_PATH : 0)
+				| (isComposite ? COMPOSITE : 0)
+				| (isResource ? RESOURCE : 0);
+	}
+
+}
@@ -0,0 +1,173 @@
+package no.paneon.api.diagram.layout;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jgrapht.Graph;
+
+import no.paneon.api.graph.CoreAPIGraph;
+import no.paneon.api.graph.Edge;
+import no.paneon.api.graph.EnumNode;
+import no.paneon.api.graph.Node;
+import no.paneon.api.graph.OtherProperty;
+import no.paneon.api.graph.Property;
+import no.paneon.api.logging.LogMethod;
+import no.paneon.api.logging.AspectLogger.LogLevel;
+
+/*
+ * Difference between a baseline and the current API - used to regenerate only affected diagrams
+ */
+public class ImpactAnalysis {
+
+    static final Logger LOG = LogManager.getLogger(ImpactAnalysis.class);
+
+	Map<String,String> baseline;
+
+	public ImpactAnalysis(CoreAPIGraph baseline) {
+		this.baseline = getSignatures(baseline);
+	}
+
+	/*
+	 * Nodes changed compared to the baseline, including nodes inheriting from changed nodes
+	 * (their rendering includes the inherited details)
+	 */
+	@LogMethod(level=LogLevel.DEBUG)
+	public Set<String> getImpactedNodes(CoreAPIGraph current) {
+		Map<String,String> signatures = getSignatures(current);
+
+		Set<String> changed = new HashSet<>();
+
+		signatures.forEach((node,signature) -> {
+			if(!Objects.equals(signature, baseline.get(node))) changed.add(node);
+		});
+
+		baseline.keySet().stream().filter(node -> !signatures.containsKey(node)).forEach(changed::add);
+
+		Map<String,Set<String>> inheriting = getInheriting(current.getCompleteGraph());
+
+		LinkedList<String> queue = new LinkedList<>(changed);
+		while(!queue.isEmpty()) {
+			String node = queue.removeFirst();
+
+			for(String inheritingNode : inheriting.getOrDefault(node, Collections.emptySet())) {
+				if(changed.add(inheritingNode)) queue.add(inheritingNode);
+			}
+		}
+
+		LOG.debug("getImpactedNodes: changed={}", changed);
+
+		return changed;
+	}
+
+	/*
+	 * Nodes inheriting (allOf) from each node - built once, one pass over the edges
+	 */
+	private static Map<String,Set<String>> getInheriting(Graph<Node,Edge> graph) {
+		Map<String,Set<String>> res = new HashMap<>();
+
+		graph.edgeSet().stream()
+			.filter(Edge::isAllOf)
+			.forEach(e -> res.computeIfAbsent(e.getRelated().getName(), k -> new HashSet<>()).add(graph.getEdgeSource(e).getName()));
+
+		return res;
+	}
+
+	private static Map<String,String> getSignatures(CoreAPIGraph api) {
+		Graph<Node,Edge> graph = api.getCompleteGraph();
+
+		Map<String,String> res = new HashMap<>();
+		graph.vertexSet().forEach(node -> res.put(node.getName(), getSignature(graph, node)));
+
+		return res;
+	}
+
+	/*
+	 * Signature of a sub-graph, with node details from the complete graph
+	 */
+	public static String getSignature(Graph<Node,Edge> subGraph, Graph<Node,Edge> completeGraph) {
+		String nodes = subGraph.vertexSet().stream()
+							.map(node -> node.getName() + "\n" + getSignature(completeGraph, node))
+							.sorted()
+							.collect(Collectors.joining("\n"));
+		
+		String edges = subGraph.edgeSet().stream()
+							.map(e -> subGraph.getEdgeSource(e).getName() + "=" + e)
+							.sorted()
+							.collect(Collectors.joining("\n"));
+		
+		return nodes + "\n" + edges;
+	}
+
+	/*
+	 * The details of the node rendered in a diagram (ClassEntity, ClassProperty, EnumEntity) and its outgoing edges
+	 */
+	private static String getSignature(Graph<Node,Edge> graph, Node node) {
+		StringBuilder res = new StringBuilder();
+
+		append(res, node.getClass().getSimpleName(), node.getDescription(), node.isDynamic(), node.getInline());
+		append(res, ordered(node.getInheritance()), ordered(node.getActualInheritance()), ordered(node.getCustomFlatten()));
+		append(res, ordered(node.getLocalDiscriminators()), ordered(node.getInheritedDiscriminatorMapping()), ordered(node.getAllDiscriminatorMapping()));
+		append(res, node.getVendorExtension(), node.getDiscriminatorExtension(), node.getInheritanceExtension());
+
+		node.getProperties().stream()
+			.sorted(Comparator.comparing(Property::getName))
+			.forEach(p -> append(res, p));
+
+		node.getInheritedProperties().stream()
+			.sorted(Comparator.comparing(Property::getName))
+			.forEach(p -> append(res, "inherited", p));
+
+		node.getOtherProperties().stream()
+			.sorted(Comparator.comparing(OtherProperty::getName))
+			.forEach(p -> append(res, p.getName(), p.getValue(), p.isRequired(), p.isNullable()));
+
+		if(node instanceof EnumNode) {
+			EnumNode enumNode = (EnumNode) node;
+			append(res, enumNode.getType(), enumNode.getValues(), enumNode.getNullable());
+		}
+
+		if(!graph.containsVertex(node)) return res.toString();
+
+		res.append( graph.outgoingEdgesOf(node).stream()
+						.map(e -> e.getRelated().getName() + "=" + e)
+						.sorted()
+						.collect(Collectors.joining("\n")) );
+
+		return res.toString();
+	}
+
+	private static void append(StringBuilder res, Property p) {
+		append(res, p.getName(), p.getType(), p.getCardinality(), p.isRequired(), p.isNullable(), p.isEnum(), p.getValues(),
+				p.getVisibility(), p.getDefaultValue(), p.getDeprected(),
+				p.getVendorExtension(), p.getRequiredExtension(), p.getTypeExtension(), p.getCardinalityExtension());
+	}
+
+	private static void append(StringBuilder res, String prefix, Property p) {
+		res.append(prefix).append(':');
+		append(res, p);
+	}
+
+	/*
+	 * Sets in a stable order - the baseline is from another run
+	 */
+	private static Object ordered(Collection<?> values) {
+		if(!(values instanceof Set)) return values;
+		return values.stream().map(String::valueOf).sorted().collect(Collectors.toList());
+	}
+
+	private static void append(StringBuilder res, Object ... parts) {
+		for(Object part : parts) res.append(part).append(':');
+		res.append('\n');
+	}
+
+}
@@ -13,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -26,10 +27,12 @@ import org.jgrapht.Graph;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
+import no.paneon.api.diagram.Events.LayoutPhase;
 import no.paneon.api.diagram.puml.Entity;
+import no.paneon.api.diagram.puml.FragmentCache;
+import no.paneon.api.diagram.puml.FragmentCache.ClassModel;
 import no.paneon.api.diagram.puml.ClassEntity;
 import no.paneon.api.diagram.puml.ClassProperty;
-import no.paneon.api.diagram.puml.Comment;
 import no.paneon.api.diagram.puml.Diagram;
 import no.paneon.api.diagram.puml.DiscriminatorEntity;
 import no.paneon.api.diagram.puml.EnumEntity;
@@ -127,8 +130,6 @@ public class Layout {
 
 	private List<ClassProperty> getPropertiesForClass(APIGraph apiGraph, Node node, Collection<String> incomplete) {
 		
-		List<ClassProperty> properties = new LinkedList<>();
-		
 		Collection<Node> referencedNodes = apiGraph.getOutboundNeighbours(node);
 		
 		LOG.debug("getPropertiesForClass:: node={} referencedNodes={} ", node, referencedNodes);								
@@ -150,6 +151,24 @@ public class Layout {
 		LOG.debug("node={} allOfs={} ", node, allOfsProperties);								
 		LOG.debug("node={} getProperties={} ", node, node.getProperties());								
 
+		// the same for the node in all diagrams with the same properties, referenced nodes and allOfs
+		String key = FragmentCache.getKey("properties", node.getName(), node.getClass().getName(), 
+									getPropertiesKey(node.getProperties()), getOtherPropertiesKey(node.getOtherProperties()),
+									new TreeSet<>(referenced), new TreeSet<>(allOfsProperties));
+		
+		ClassModel model = FragmentCache.getClassModel(key, () -> getClassModel(node, referenced, allOfsProperties));
+		
+		if(model.isIncomplete()) incomplete.add(node.getName());
+		
+		return model.getProperties();
+
+	}
+	
+	private ClassModel getClassModel(Node node, Collection<String> referenced, Collection<String> allOfsProperties) {
+		
+		List<ClassProperty> properties = new LinkedList<>();
+		Collection<String> incomplete = new HashSet<>();
+		
 		node.getProperties().stream()
 			.filter(p -> !referenced.contains(p.getType()))
 			.filter(p -> !allOfsProperties.contains(p.getName()))
@@ -175,14 +194,27 @@ public class Layout {
 		
 		});	 
 		
-		return properties;
+		return new ClassModel(properties, !incomplete.isEmpty());
 
 	}
 	
 	
 	private List<ClassProperty> getInheritedPropertiesForClass(APIGraph apiGraph, Node node, Collection<String> incomplete) {
 		
+		String key = FragmentCache.getKey("inherited", node.getName(), node.getClass().getName(), getPropertiesKey(node.getInheritedProperties()));
+		
+		ClassModel model = FragmentCache.getClassModel(key, () -> getInheritedClassModel(node));
+		
+		if(model.isIncomplete()) incomplete.add(node.getName());
+		
+		return model.getProperties();
+		
+	}
+	
+	private ClassModel getInheritedClassModel(Node node) {
+		
 		List<ClassProperty> properties = new LinkedList<>();
+		Collection<String> incomplete = new HashSet<>();
 		
 		node.getInheritedProperties().stream()
 			.forEach(p -> {
@@ -198,8 +230,23 @@ public class Layout {
 			});	  
 		
 		
-		return properties;
+		return new ClassModel(properties, !incomplete.isEmpty());
+
+	}
 
+	/*
+	 * Name, type and visibility of the properties, in order - part of the class model key
+	 */
+	private String getPropertiesKey(Collection<? extends Property> properties) {
+		return properties.stream()
+					.map(p -> p.getName() + ":" + p.getType() + ":" + getClassPropertyVisibility(p))
+					.collect(Collectors.joining(","));
+	}
+
+	private String getOtherPropertiesKey(Collection<? extends OtherProperty> properties) {
+		return properties.stream()
+					.map(p -> p.getName() + ":" + p.getValue() + ":" + ClassProperty.VISIBLE)
+					.collect(Collectors.joining(","));
 	}
 
 	private Visibility getClassPropertyVisibility(Property prop) {
@@ -223,11 +270,11 @@ public class Layout {
 	public void processEdgesForCoreGraph(Diagram diagram, List<String> subGraphs) {
 	    List<Node> coreGraph = layoutGraph.extractCoreGraph();
 
-        diagram.addComment(new Comment("layout of the core: " + coreGraph));
+        diagram.addComment(() -> "layout of the core: " + coreGraph);
 
 	    List<Node> processed = processEdgesForInheritance(diagram, subGraphs);
 
-    	List<List<Node>> circles = apiGraph.getCircles();
+    	CircleCatalogue circles = layoutGraph.getCircleCatalogue();
     	
         List<Node> nodesToProcess = getNodesToProcess(Utils.copyList(coreGraph), resourceNode).stream()
         								.filter(n -> !processed.contains(n))
@@ -237,14 +284,16 @@ public class Layout {
         
     	LOG.debug("generateDiagram:: processing resource={} nodes={}", resourceNode, nodesToProcess);
              
-        Optional<Node> nextNode = getNextNode(nodesToProcess);
+        NodeQueue queue = layoutGraph.newNodeQueue(nodesToProcess);
+        
+        Optional<Node> nextNode = queue.poll();
         while(nextNode.isPresent()) {
         	                    	            		                	
         	Node node = nextNode.get();
         	        	
         	LOG.debug("generateDiagram:: processing node={}", node);
         	        	
-        	Map<Integer, List<List<Node>> > circlesForNode = GraphAlgorithms.getCirclesForNode(circles, node);
+        	Map<Integer, List<List<Node>> > circlesForNode = GraphAlgorithms.getCirclesForNode(circles.getActiveCircles(node), node);
         	        	
         	LOG.debug("generateDiagram:: node={} circlesForNode={}", node, circlesForNode);
 
@@ -252,18 +301,17 @@ public class Layout {
 
         	LOG.debug("generateDiagram:: processing edges for node={}", node);
 
-    		circles = GraphAlgorithms.removeCirclesForNode(circles, node);	
+    		circles.consume(node);
 
-    		LOG.debug("generateDiagram:: processing edges for node={} circles={}", node, circles);
+    		LOG.debug("generateDiagram:: processing edges for node={} active circles={}", node, circles.getActiveCount());
 
-    		nodesToProcess.remove(node);
-    		nextNode = getNextNode(nodesToProcess);
+    		nextNode = queue.poll();
             
         	LOG.debug("generateDiagram:: processing nextNode={}", nextNode);
 
         }	
         
-        diagram.addComment(new Comment("finished layout of the core"));
+        diagram.addComment(() -> "finished layout of the core");
 
         
 	}
@@ -284,7 +332,7 @@ public class Layout {
 		
 		int edgeCount = cls.getEdgeCount();
 
-		cls.addComment(new Comment("'processing edges for " + node));
+		cls.addComment(() -> "'processing edges for " + node);
 
 		EdgeAnalyzer edgeAnalyzer = new EdgeAnalyzer(this.layoutGraph, node, circles);
 		edgeAnalyzer.computeLayout();
@@ -300,11 +348,15 @@ public class Layout {
 			LOG.debug("generateUMLEdges: vertex={} isCompositeNode={}", vertex, apiGraph.isCompositeNode(vertex));
 		}
 		
+		LayoutPhase phase = LayoutPhase.start(apiGraph.getResource(), getPivot(), node.getName(), cls.getEdgeCount());
+
 		//
 		// first process based on configuration details (manual override)
 		//
 		processManualOverride(cls, node);
 		
+		phase = phase.next("manualOverride", cls.getEdgeCount());
+		
 		// special case of recursive?
 		//
 		
@@ -312,6 +364,8 @@ public class Layout {
 
 		boolean isRecursive = processRecursive(cls, node);
 		
+		phase = phase.next("recursive", cls.getEdgeCount());
+		
 		//
 		// special case of 'Item' sub-resource - this we try to place to the right
 		//
@@ -320,6 +374,8 @@ public class Layout {
 
 		boolean hasItem = processItemSpecialCase(cls, node);
 		
+		phase = phase.next("itemSpecialCase", cls.getEdgeCount());
+		
 		// 
 		// start layout with identified circles
 		//
@@ -331,6 +387,8 @@ public class Layout {
 		} else {
 			layoutCircleNodes(node,cls,circles);
 		}
+		
+		phase = phase.next("circles", cls.getEdgeCount());
 
 		//
 		// layout in multiple steps / phases:
@@ -349,34 +407,48 @@ public class Layout {
 		LOG.debug("generateUMLEdges: node={} #1",  node);
 
 		layoutBetweenAlreadyPlacedNodes(node,cls,neighbours,includeNodes);
+		phase = phase.next("betweenAlreadyPlacedNodes", cls.getEdgeCount());
 
 		layoutOutboundToPlacedNodes(node,cls,neighbours,includeNodes);
+		phase = phase.next("outboundToPlacedNodes", cls.getEdgeCount());
 
 		layoutOutboundEdgesWithPlacedNodes(node,cls,includeNodes);
+		phase = phase.next("outboundEdgesWithPlacedNodes", cls.getEdgeCount());
 
 		layoutBetweenCommonNode(node,cls,neighbours,includeNodes);
+		phase = phase.next("betweenCommonNode", cls.getEdgeCount());
 
 		layoutEnums(node, diagram, cls, isRecursive);
+		phase = phase.next("enums", cls.getEdgeCount());
 		
-		layoutLeft(node,cls,includeNodes, edgeAnalyzer);    
+		layoutLeft(node,cls,includeNodes, edgeAnalyzer);
+		phase = phase.next("left", cls.getEdgeCount());
 
 		layoutRight(node,cls,includeNodes, edgeAnalyzer, hasItem || isRecursive);
+		phase = phase.next("right", cls.getEdgeCount());
 
 		layoutAbove(node,cls,includeNodes, edgeAnalyzer);
+		phase = phase.next("above", cls.getEdgeCount());
 
 		layoutUnbalancedAboveBelow(node,cls,includeNodes, edgeAnalyzer);
+		phase = phase.next("unbalancedAboveBelow", cls.getEdgeCount());
 
 		// layoutBelowLeftRight(node,cls,includeNodes, edgeAnalyzer);
 
 		layoutBelowRemaining(node,cls,includeNodes, edgeAnalyzer);
+		phase.complete("belowRemaining", cls.getEdgeCount());
 
-		cls.addComment(new Comment("'completed processing of edges for " + node));
+		cls.addComment(() -> "'completed processing of edges for " + node);
 
 		return cls.getEdgeCount()>edgeCount;
 
 	}
 
 	
+	private String getPivot() {
+		return resourceNode!=null ? resourceNode.getName() : "";
+	}
+	
 	private boolean isDiscriminatorNode(Node node) {
 		boolean res=false;
 	    Set<String> neighbours = this.apiGraph.getNeighbours(node).stream().map(Node::getName).collect(toSet());
@@ -429,7 +501,7 @@ public class Layout {
     	
     	// TBD - or > 1 ?
     	
-        diagram.addComment(new Comment("layout of the inheritance: " + coreGraph));
+        diagram.addComment(() -> "layout of the inheritance: " + coreGraph);
      
         Set<Node> allSuperclassSubGraphNodes = nodesToProcess.stream()
         										.map(n -> CoreAPIGraph.getOutboundEdges(this.apiGraph.getGraph(),n))
@@ -480,7 +552,7 @@ public class Layout {
             
         }	
         
-        diagram.addComment(new Comment("finished layout of the inheritance"));
+        diagram.addComment(() -> "finished layout of the inheritance");
         
 	}
 	
@@ -744,28 +816,7 @@ public class Layout {
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private int subGraphSize(Node node) {
-		return CoreAPIGraph.getSubGraphNodes(this.apiGraph.getGraph(), node).size();
-	}
-	
-	@LogMethod(level=LogLevel.DEBUG)
-	private Optional<Node> getNextNode(List<Node> nodesToProcess) {
-		List<Node> sorted = nodesToProcess.stream()
-					.sorted(Comparator.comparing(n -> - this.layoutGraph.getInboundEdgesFromPlaced(n) ))
-					.toList()
-					;
-		
-		LOG.debug("getNextNode: sorted={}", sorted);
-
-		Optional<Node> found = sorted.stream()
-							.filter(this.layoutGraph::isPlaced)
-							.findFirst();	
-		
-		if(!found.isPresent()) {
-			found = sorted.stream().findFirst();
-		}
-		
-		return found;
-		
+		return layoutGraph.metrics.getSubGraphNodesSize(node);
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
@@ -791,7 +842,7 @@ public class Layout {
 		
 		
 		if(!circleMap.isEmpty()) {
-			LOG.debug("layoutCircleNodes:: node={} circleMap=\n ... {}", node, circleMap.values().stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
+			LOG.debug("layoutCircleNodes:: node={} circleMap=\n ... {}", () -> node, () -> circleMap.values().stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
 		}
 				
 		List<List<Node>> sortedCircles = circleMap.values().stream()
@@ -802,7 +853,7 @@ public class Layout {
 
 						
  		if(!sortedCircles.isEmpty()) {
-			LOG.debug("layoutCircleNodes:: node={}, sorted==\n ... {}", node, sortedCircles.stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
+			LOG.debug("layoutCircleNodes:: node={}, sorted==\n ... {}", () -> node, () -> sortedCircles.stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
 		}
 		
 		Map<Node, Long> commonNodeCount = sortedCircles.stream()
@@ -824,7 +875,7 @@ public class Layout {
 		LOG.debug("layoutCircleNodes: node={} commonNodes={}", node, commonNodes);
 		
 		for(List<Node> circle : sortedCircles) {
-			if(commonNodes.contains(circle.get(1)) || !apiGraph.isLeafNode(circle.get(1))) {
+			if(commonNodes.contains(circle.get(1)) || !layoutGraph.metrics.isLeafNode(circle.get(1))) {
 				LOG.debug("layoutCircleNodes:: node={}, circle={}", node, circle);
 				Collections.reverse(circle);
 				LOG.debug("layoutCircleNodes:: node={}, reversed circle={}", node, circle);
@@ -833,7 +884,7 @@ public class Layout {
 		}
 		
 		if(!sortedCircles.isEmpty()) {
-			LOG.debug("layoutCircleNodes:: node={}, sorted==\n ... {}", node, sortedCircles.stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
+			LOG.debug("layoutCircleNodes:: node={}, sorted==\n ... {}", () -> node, () -> sortedCircles.stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
 		}
 
 		sortedCircles.forEach(circle -> {
@@ -856,7 +907,7 @@ public class Layout {
 		
 		
 		if(!circleMap.isEmpty()) {
-			LOG.debug("layoutCircleDiscriminatorNodes:: node={} circleMap=\n ... {}", node, circleMap.values().stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
+			LOG.debug("layoutCircleDiscriminatorNodes:: node={} circleMap=\n ... {}", () -> node, () -> circleMap.values().stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
 		}
 			
 		Set<String> mapping = node.getAllDiscriminatorMapping();
@@ -888,7 +939,7 @@ public class Layout {
 		// sortedCircles.addAll(sortedCirclesSomeMapped);
 
  		if(!sortedCircles.isEmpty()) {
-			LOG.debug("layoutCircleDiscriminatorNodes:: node={}, sorted==\n ... {}", node, sortedCircles.stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
+			LOG.debug("layoutCircleDiscriminatorNodes:: node={}, sorted==\n ... {}", () -> node, () -> sortedCircles.stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
 		} else {
 			LOG.debug("layoutCircleDiscriminatorNodes:: node={} #sorted circles={}", node, sortedCircles.size() );
 			return;
@@ -913,7 +964,7 @@ public class Layout {
 		LOG.debug("layoutCircleDiscriminatorNodes: node={} commonNodes={}", node, commonNodes);
 		
 		for(List<Node> circle : sortedCircles) {
-			if(commonNodes.contains(circle.get(1)) || !apiGraph.isLeafNode(circle.get(1))) {
+			if(commonNodes.contains(circle.get(1)) || !layoutGraph.metrics.isLeafNode(circle.get(1))) {
 				LOG.debug("layoutCircleDiscriminatorNodes:: node={}, circle={}", node, circle);
 				Collections.reverse(circle);
 				LOG.debug("layoutCircleDiscriminatorNodes:: node={}, reversed circle={}", node, circle);
@@ -922,7 +973,7 @@ public class Layout {
 		}
 		
 		if(!sortedCircles.isEmpty()) {
-			LOG.debug("layoutCircleDiscriminatorNodes:: node={}, sorted==\n ... {}", node, sortedCircles.stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
+			LOG.debug("layoutCircleDiscriminatorNodes:: node={}, sorted==\n ... {}", () -> node, () -> sortedCircles.stream().map(Object::toString).collect(Collectors.joining("\n ... ")));
 		}
 
 		sortedCircles.forEach(circle -> {
@@ -1133,15 +1184,16 @@ public class Layout {
 
 	@LogMethod(level=LogLevel.DEBUG) 
 	private int maximumLinkedCircles(Node start, List<Node> circle) {
-		Map<Node,Long> countOfNodes = apiGraph.getCircles().stream()
-							.flatMap(List::stream)
+		CircleCatalogue circles = layoutGraph.getCircleCatalogue();
+		
+		Map<Node,Integer> countOfNodes = circle.stream()
 							.filter(node -> !node.equals(start))
-							.filter(circle::contains)
-							.collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+							.distinct()
+							.collect(Collectors.toMap(Function.identity(), circles::getOccurrences));
 	
 		LOG.debug("maximumLinkedCircles:: start={} countOfNodes={}",  start, countOfNodes);
 		
-		return countOfNodes.values().stream().mapToInt(Math::toIntExact).max().orElse(0);
+		return countOfNodes.values().stream().mapToInt(Integer::intValue).max().orElse(0);
 		
 	}
 	
@@ -1203,7 +1255,7 @@ public class Layout {
 			
 			Node toNode = circleIterator.next();
 			
-			toNode.addCircleElements(circle);
+			layoutGraph.addCircleElements(toNode, circle);
 			
 			LOG.debug("#0 placeCircleSegment: toNode={} ",  toNode);
 
@@ -1286,7 +1338,7 @@ public class Layout {
 						Collections.reverse(toRightLeft);
 					}
 					LOG.debug("placeCircleSegment: toRightLeft={}", toRightLeft);
-					LOG.debug("placeCircleSegment: toRightLeft={}", toRightLeft.stream().map(this::xPositionOfNode));
+					LOG.debug("placeCircleSegment: toRightLeft={}", () -> toRightLeft.stream().map(this::xPositionOfNode).toList());
 
 					Node pivot = toRightLeft.get(0);
 					if(layoutGraph.isAtSameLevel(pivot, fromNode)) {
@@ -1544,7 +1596,7 @@ public class Layout {
 		LOG.debug("layoutBelowRemaining:: includeNodes: {}", includeNodes);
 
 		Set<Node> candidatesList = candidatesBelow.stream()
-				.sorted(Comparator.comparing(n -> apiGraph.getOutboundNeighbours(n).size()))
+				.sorted(Comparator.comparing(n -> layoutGraph.metrics.getOutboundCount(n)))
 				.filter(includeNodes::contains)
 				.collect(toSet());
 
@@ -1555,7 +1607,7 @@ public class Layout {
 
 	@LogMethod(level=LogLevel.DEBUG)
 	private int outboundSpan(Node n) {
-		return apiGraph.getOutboundNeighbours(n).size();
+		return layoutGraph.metrics.getOutboundCount(n);
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
@@ -1712,7 +1764,7 @@ public class Layout {
 			Set<Node> candidates = edgeAnalyzer.getEdgesForPosition(direction);
 			
 			candidates = candidates.stream()
-					.sorted(Comparator.comparing(n -> apiGraph.getOutboundNeighbours(n).size()))
+					.sorted(Comparator.comparing(n -> layoutGraph.metrics.getOutboundCount(n)))
 					.filter(includeNodes::contains)
 					.collect(toSet());
 
@@ -1795,7 +1847,7 @@ public class Layout {
 							LOG.debug("layoutBelowLeftRight:: pivotNode={} candidates for below: {}", pivotNode, candidates);
 
 							candidates = candidates.stream()
-									.sorted(Comparator.comparing(n -> apiGraph.getOutboundNeighbours(n).size()))
+									.sorted(Comparator.comparing(n -> layoutGraph.metrics.getOutboundCount(n)))
 									.filter(includeNodes::contains)
 									.collect(toSet());
 
@@ -1868,7 +1920,7 @@ public class Layout {
 			
 			candidates = candidates.stream()
 					.filter(includeNodes::contains)
-					.sorted(Comparator.comparing(n -> 100 - apiGraph.getOutboundNeighbours(n).size()))
+					.sorted(Comparator.comparing(n -> 100 - layoutGraph.metrics.getOutboundCount(n)))
 					.collect(toSet());
 		
 			LOG.debug("layoutAbove: node={} check for above - candidates={}", node, candidates);
@@ -1914,7 +1966,7 @@ public class Layout {
 	
 					Optional<Node> directConnection = pivot.stream().filter(n -> layoutGraph.hasDirectConnection(nodeAbove,n)).findFirst();
 					
-					if(!directConnection.isPresent() || apiGraph.isLeafNode(directConnection.get())) {
+					if(!directConnection.isPresent() || layoutGraph.metrics.isLeafNode(directConnection.get())) {
 						LOG.debug("layoutAbove: check for above - no direction connection found with nodeAbove={}", nodeAbove);
 						Node pivotNode = layoutGraph.getEdgeBoundary(pivot,direction);
 						LOG.debug("layoutAbove: check for above - using pivotNode={}", pivotNode);
@@ -2116,8 +2168,8 @@ public class Layout {
 		candidates = candidates.stream()
 				.filter( n -> apiGraph.getInboundNeighbours(n).size()==2 && 
 				(apiGraph.getOutboundNeighbours(n).isEmpty() ||
-				(apiGraph.getOutboundNeighbours(n).size()==1 && 
-				apiGraph.isLeafNode(apiGraph.getOutboundNeighbours(n).iterator().next()))))
+				(layoutGraph.metrics.getOutboundCount(n)==1 && 
+				layoutGraph.metrics.isLeafNode(apiGraph.getOutboundNeighbours(n).iterator().next()))))
 				.toList()
 				;
 
@@ -2126,7 +2178,7 @@ public class Layout {
 
 		if(candidates.size()>1) { // NOTE - maybe only one non-simpe candidates ?
 			candidates = candidates.stream()
-					.sorted(Comparator.comparing(n -> apiGraph.getOutboundNeighbours(n).size()))
+					.sorted(Comparator.comparing(n -> layoutGraph.metrics.getOutboundCount(n)))
 					.toList()
 					;
 
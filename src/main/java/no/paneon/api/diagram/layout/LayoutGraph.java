@@ -2,12 +2,15 @@ package no.paneon.api.diagram.layout;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -26,7 +29,6 @@ import org.jgrapht.traverse.BreadthFirstIterator;
 
 import no.paneon.api.diagram.puml.AllOfEdge;
 import no.paneon.api.diagram.puml.ClassEntity;
-import no.paneon.api.diagram.puml.Comment;
 import no.paneon.api.diagram.puml.Diagram;
 import no.paneon.api.diagram.puml.DiscriminatorEdge;
 import no.paneon.api.diagram.puml.EdgeEntity;
@@ -36,7 +38,6 @@ import no.paneon.api.diagram.puml.ForcedHiddenEdge;
 import no.paneon.api.diagram.puml.HiddenEdge;
 import no.paneon.api.graph.APIGraph;
 import no.paneon.api.graph.AllOf;
-import no.paneon.api.graph.CoreAPIGraph;
 import no.paneon.api.graph.Discriminator;
 import no.paneon.api.graph.Edge;
 import no.paneon.api.graph.EnumNode;
@@ -76,6 +77,51 @@ public class LayoutGraph extends Positions {
 	Node resourceNode;
 	
 	private Set<Edge> placedEdges;
+	
+	private Map<Node,Set<Node>> circleNodes;
+	
+	/*
+	 * Memoised getPlacePaths(source, targets) - aggregated direction of the path found and the nodes explored to find it
+	 * Removed when a layout edge is added to one of the explored nodes (found through placePathsByNode)
+	 */
+	static class PlacePath {
+		final Node from;
+		final Set<Node> targets;
+		final List<Place> directions;
+		final BitSet explored;
+		
+		PlacePath(Node from, Set<Node> targets, List<Place> directions, BitSet explored) {
+			this.from = from;
+			this.targets = targets;
+			this.directions = Collections.unmodifiableList(directions);
+			this.explored = explored;
+		}
+	}
+	
+	private Map<Node,Map<Set<Node>,PlacePath>> placePaths;
+	private List<List<PlacePath>> placePathsByNode;
+	
+	/*
+	 * Nodes by id, API graph adjacency and the placement edges in compact form (NodeTable)
+	 * Reachability over placed nodes (isPath) - placed nodes and union-find of placed nodes connected in the API graph, 
+	 * maintained as nodes are placed
+	 */
+	NodeTable table;
+	private BitSet placedIds;
+	private int[] component;
+	
+	/*
+	 * Structural facts of the API graph, and the inbound edges from placed nodes maintained as nodes are placed
+	 * (for the queue of nodes to process, if any)
+	 */
+	GraphMetrics metrics;
+	private int[] inboundFromPlaced;
+	private NodeQueue queue;
+	
+	/*
+	 * Circles of the API graph by node (computed on first use)
+	 */
+	private CircleCatalogue circleCatalogue;
 		
 	public LayoutGraph(APIGraph graph) {
 		
@@ -90,9 +136,21 @@ public class LayoutGraph extends Positions {
 		
 		graph.getGraphNodes().forEach(this.layoutGraph::addVertex);
 		
-		graph.getGraphNodes().forEach(Node::resetPlacement);
-
 		this.placedEdges = new HashSet<>();
+		this.circleNodes = new HashMap<>();
+		this.placePaths = new HashMap<>();
+		
+		this.table = new NodeTable(apiGraph, new ArrayList<>(this.layoutGraph.vertexSet()));
+		
+		this.placePathsByNode = new ArrayList<>(table.size());
+		for(int i=0; i<table.size(); i++) placePathsByNode.add(new LinkedList<>());
+		
+		this.placedIds = new BitSet(table.size());
+		this.component = new int[table.size()];
+		for(int i=0; i<component.length; i++) component[i]=i;
+		
+		this.metrics = new GraphMetrics(apiGraph, table);
+		this.inboundFromPlaced = new int[table.size()];
 				
 		this.setPosition(resourceNode);
 		
@@ -110,6 +168,21 @@ public class LayoutGraph extends Positions {
 		return this.resource;
 	}
 	
+	@LogMethod(level=LogLevel.DEBUG)
+	public void addCircleElements(Node node, List<Node> circle) {
+		this.circleNodes.computeIfAbsent(node, n -> new HashSet<>()).addAll(circle);
+	}
+
+	@LogMethod(level=LogLevel.DEBUG)
+	public Set<Node> getCircleNodes(Node node) {
+		return this.circleNodes.getOrDefault(node, Collections.emptySet());
+	}
+
+	@LogMethod(level=LogLevel.DEBUG)
+	public boolean isPartOfCircle(Node node) {
+		return !getCircleNodes(node).isEmpty();
+	}
+	
 	@LogMethod(level=LogLevel.DEBUG)
 	public List<Node> extractCoreGraph() {
 		return extractCoreGraph(this.getResourceNode());
@@ -298,7 +371,7 @@ public class LayoutGraph extends Positions {
 	    addPlacedEdge(edge);
 	    
 	    LOG.debug("placeEdgeHelper:: edge={}", edge);
-	    LOG.debug("placeEdgeHelper:: placedEdges=\n{}", this.placedEdges.stream().map(Object::toString).collect(Collectors.joining("\n")));
+	    LOG.debug("placeEdgeHelper:: placedEdges=\n{}", () -> this.placedEdges.stream().map(Object::toString).collect(Collectors.joining("\n")));
 	    LOG.debug("");
 	    
 	    return true;
@@ -332,7 +405,7 @@ public class LayoutGraph extends Positions {
 	@LogMethod(level=LogLevel.DEBUG)
 	void placeAtHelper(Node node, Place direction, Node pivot) {	
 		LayoutEdge edge = new LayoutEdge(direction, node, pivot);
-		layoutGraph.addEdge(node,pivot,edge);
+		addLayoutEdge(node,pivot,edge);
 		
 	    if(!node.equals(pivot)) position(node, pivot, direction);
 
@@ -342,23 +415,105 @@ public class LayoutGraph extends Positions {
 	void placeAtHelperReverse(Node node, Place direction, Node pivot) {	
 		Place reverse = Place.getMapping().get(direction);
 		LayoutEdge edge = new LayoutEdge(reverse, pivot, node);
-		layoutGraph.addEdge(pivot,node,edge);
+		addLayoutEdge(pivot,node,edge);
 		
 	    if(!node.equals(pivot)) position(node, pivot, reverse);
 
 	}
 
+	private void addLayoutEdge(Node source, Node target, LayoutEdge edge) {
+		layoutGraph.addEdge(source,target,edge);
+		
+		Place direction = edge.getDirection();
+		
+		int sourceId = table.getId(source);
+		int targetId = table.getId(target);
+		table.addPlaced(sourceId, targetId, direction);
+		
+		addPlaced(sourceId);
+		addPlaced(targetId);
+		
+		invalidatePlacePaths(sourceId, targetId);
+	}
+	
+	private void invalidatePlacePaths(int source, int target) {
+		invalidatePlacePaths(source);
+		if(target!=source) invalidatePlacePaths(target);
+	}
+	
+	/*
+	 * The memoised paths explored through the node - an entry may already be replaced (listed for each explored node)
+	 */
+	private void invalidatePlacePaths(int id) {
+		List<PlacePath> explored = placePathsByNode.get(id);
+		
+		for(PlacePath path : explored) {
+			Map<Set<Node>,PlacePath> paths = placePaths.get(path.from);
+			if(paths!=null && paths.get(path.targets)==path) paths.remove(path.targets);
+		}
+		
+		explored.clear();
+	}
+	
+	private void addPlaced(int id) {
+		if(placedIds.get(id)) return;
+		
+		placedIds.set(id);
+		int[] neighbours = table.getNeighbourTargets();
+		for(int i=table.getNeighbourStart(id); i<table.getNeighbourEnd(id); i++) {
+			if(placedIds.get(neighbours[i])) union(id, neighbours[i]);
+		}
+		
+		int[] outbound = table.getOutboundTargets();
+		int start = table.getOutboundStart(id);
+		int end = table.getOutboundEnd(id);
+		for(int i=start; i<end; i++) inboundFromPlaced[outbound[i]]++;
+		
+		if(queue!=null) {
+			queue.update(table.getNode(id));
+			for(int i=start; i<end; i++) queue.update(table.getNode(outbound[i]));
+		}
+	}
+	
+	/*
+	 * Queue of nodes to process - kept up to date as nodes are placed (replaces any previous queue)
+	 */
+	public NodeQueue newNodeQueue(List<Node> nodesToProcess) {
+		this.queue = new NodeQueue(this, nodesToProcess);
+		return this.queue;
+	}
+	
+	public GraphMetrics getMetrics() {
+		return metrics;
+	}
+	
+	public CircleCatalogue getCircleCatalogue() {
+		if(circleCatalogue==null) circleCatalogue = new CircleCatalogue(apiGraph, table);
+		return circleCatalogue;
+	}
+	
+	private int find(int id) {
+		while(component[id]!=id) {
+			component[id] = component[component[id]];
+			id = component[id];
+		}
+		return id;
+	}
+	
+	private void union(int a, int b) {
+		component[find(a)] = find(b);
+	}
+	
 	@LogMethod(level=LogLevel.DEBUG)
 	public boolean isPlaced(Node node) {	
-		boolean contained = layoutGraph.vertexSet().contains(node);
-		
-		return contained && (!layoutGraph.outgoingEdgesOf(node).isEmpty() || !layoutGraph.incomingEdgesOf(node).isEmpty() ); 			        
+		int id = table.getId(node);
+		return id>=0 && placedIds.get(id);
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	public boolean isPlaced(String name) {	
-		Optional<Node> node = CoreAPIGraph.getNodeByName(this.apiGraph.getGraph(), name);
-		return node.isPresent() && isPlaced(node.get());			        
+		int id = table.getId(name);
+		return id>=0 && placedIds.get(id);			        
 	}
 	
 	
@@ -367,36 +522,48 @@ public class LayoutGraph extends Positions {
 		return !getPlacedAt(node, direction).isEmpty();
 	}
 
+	/*
+	 * Targets of the layout edges from the node in the direction, then the sources of layout edges to the node placed
+	 * in the direction seen from the node (edges in the reverse direction) - in the order added (NodeTable)
+	 */
 	@LogMethod(level=LogLevel.DEBUG)
 	public List<Node> getPlacedAt(Node node, Place direction) {
 		
 		List<Node> res = new LinkedList<>();
-				
-		if(!layoutGraph.containsVertex(node)) {
+		
+		int id = table.getId(node);
+		if(id<0 || direction==null) {
 			return res;
 		}
-				
-		res.addAll( layoutGraph.outgoingEdgesOf(node).stream()
-						.filter(edge -> edge.isSameDirection(direction))
-						.map(layoutGraph::getEdgeTarget)
-						.filter(n -> !n.equals(node))
-						.toList()
-						 );
-		
-		res.addAll( layoutGraph.incomingEdgesOf(node).stream()
-						.filter(edge -> edge.isSameDirection(Place.getReverse(direction)))
-						.map(layoutGraph::getEdgeSource)
-						.filter(n -> !n.equals(node))
-						.filter(n -> !res.contains(n))
-						.toList()
-						 );
-					
-		res.remove(node);
+		
+		int code = NodeTable.getCode(direction);
+		int[] outbound = table.getPlacedEdges(id);
+		int outboundCount = table.getPlacedCount(id);
+		
+		for(int i=0; i<outboundCount; i++) {
+			int target = NodeTable.getNodeId(outbound[i]);
+			if(NodeTable.getCode(outbound[i])==code && target!=id) res.add(table.getNode(target));
+		}
+		
+		int reverse = NodeTable.getCode(Place.getReverse(direction));
+		int[] inbound = table.getPlacedByEdges(id);
+		
+		for(int i=0; i<table.getPlacedByCount(id); i++) {
+			int source = NodeTable.getNodeId(inbound[i]);
+			if(NodeTable.getCode(inbound[i])==reverse && !isPlaced(outbound, outboundCount, source, code)) res.add(table.getNode(source));
+		}
 				
 		return res;
 		
 	}
 	
+	private static boolean isPlaced(int[] edges, int count, int target, int code) {
+		for(int i=0; i<count; i++) {
+			if(edges[i]==(target<<NodeTable.PLACE_BITS | code)) return true;
+		}
+		return false;
+	}
+	
 	@LogMethod(level=LogLevel.DEBUG)
 	Node getEnumPlacedAt(Node node, Place direction) {
 		Node res = null;
@@ -418,20 +585,22 @@ public class LayoutGraph extends Positions {
 		return layoutGraph.vertexSet().stream().filter(this::isPlaced).distinct().collect(toSet());
 	}
 
+	/*
+	 * Targets of the layout edges from the node by direction (including self references)
+	 */
 	@LogMethod(level=LogLevel.DEBUG)
 	public Map<Place,Set<Node>> getPlaced(Node node) {
 		Map<Place,Set<Node>> res = new EnumMap<>(Place.class);
 		
-		Set<Place> directions = layoutGraph.outgoingEdgesOf(node).stream()
-									.map(LayoutEdge::getDirection)
-									.collect(toSet());
-									
-		directions.stream().forEach(direction -> res.put(direction,  new HashSet<>()));
-									
-		for(LayoutEdge edge : layoutGraph.outgoingEdgesOf(node)) {
-			res.get(edge.getDirection()).add(layoutGraph.getEdgeTarget(edge));
+		int id = table.getId(node);
+		if(id<0) return res;
+		
+		int[] outbound = table.getPlacedEdges(id);
+		for(int i=0; i<table.getPlacedCount(id); i++) {
+			Place direction = NodeTable.getPlace(NodeTable.getCode(outbound[i]));
+			if(direction!=null) res.computeIfAbsent(direction, d -> new LinkedHashSet<>()).add(table.getNode(NodeTable.getNodeId(outbound[i])));
 		}
-
+		
 		return res;
 	}
 	
@@ -494,9 +663,7 @@ public class LayoutGraph extends Positions {
 	}
 		
 	private boolean isOnlySelfReference(Node node) {
-		List<Node> right = getPlacedAt(node, Place.RIGHT);
-		right.remove(node);
-		return right.isEmpty();
+		return !isPlacedAt(node, Place.RIGHT);
 	}
 
 	private int compareXPosition(Node n1, Node n2) {
@@ -795,7 +962,8 @@ public class LayoutGraph extends Positions {
 //            	cls.addEdge(new ForcedHiddenEdge(enumNode, func.get(0), nodeA, rule));
 //    		}
     		res = placeEdgePackage(cls,nodeA,nodeB,func,rule);
-	    	cls.addComment(new Comment("' finished with " + rule));
+	    	String finished = rule;
+	    	cls.addComment(() -> "' finished with " + finished);
     		LOG.debug("rule: {} finished", rule);
 	    }
 	   
@@ -809,10 +977,9 @@ public class LayoutGraph extends Positions {
 	private boolean isPlacedEnumAt(Node node, Place direction) {
 		boolean res = false;
 		
-		List<Node> placed = getPlacedAt(node, direction);	
 		Set<EnumNode> enums = apiGraph.getEnumsForNode(node);
 
-		res = placed.stream().anyMatch(enums::contains);
+		res = getPlacedAt(node, direction).stream().anyMatch(enums::contains);
 		
         return res;
 	}
@@ -1327,49 +1494,89 @@ public class LayoutGraph extends Positions {
 
 	@LogMethod(level=LogLevel.DEBUG)
 	public int getInboundEdgesFromPlaced(Node node) {
-		return apiGraph.getInboundNeighbours(node).stream()
-				.filter(this::isPlaced)
-				.collect(Collectors.reducing(0, e -> 1, Integer::sum));
+		int id = table.getId(node);
+		return id>=0 ? inboundFromPlaced[id] : 0;
 	}
 	
+	/*
+	 * Path of at least two steps from one node to another over placed nodes (neighbours in the API graph),
+	 * not passing any of the excluded nodes
+	 */
 	@LogMethod(level=LogLevel.DEBUG)
 	public boolean isPath(Node from, Node to, List<Node> exclude) {
-		return isPath(from, to, exclude, new ArrayList<>(), true);
-	}
 	
+	    LOG.debug("isPath: from={} to={} exclude={}", from, to, exclude);
 
-	
-	@LogMethod(level=LogLevel.DEBUG)
-	boolean isPath(Node from, Node to, List<Node> exclude, List<Node> seen, boolean first) {
-	
-	    LOG.debug("isPath: from={} to={} exclude={} seen={} first={}", from, to, exclude, seen, first);
+		int fromId = table.getId(from);
+		int toId = table.getId(to);
 
-		if(exclude.contains(to) || to.equals(from) || seen.contains(from)) {
+		if(fromId<0 || toId<0 || exclude.contains(to) || to.equals(from) || !placedIds.get(toId)) {
 			return false;
 		}
 		
-	    seen.add(from);
-
-	    Optional<Node> res = apiGraph.getOutboundNeighbours(from).stream()
-			    					.filter(this::isPlaced)
-			    					.filter(n -> !exclude.contains(n))
-			    					.filter(n -> (n.equals(to) &&!first) || isPath(n,to,exclude,seen,false))
-			    					.findFirst();
-	    
-	    if(!res.isPresent()) {
-		    res = apiGraph.getInboundNeighbours(from).stream()
-					.filter(this::isPlaced)
-					.filter(n -> !exclude.contains(n))
-					.filter(n -> (n.equals(to) && !first) || isPath(n,to,exclude,seen,false))
-					.findFirst();
-	    }
-	    
-	    return res.isPresent();
+		BitSet excluded = new BitSet(table.size());
+		for(Node n : exclude) {
+			int id = table.getId(n);
+			if(id>=0 && placedIds.get(id)) excluded.set(id);
+		}
+		
+		// the first step is to a placed neighbour (not the target), which must be connected to the target
+		int target = find(toId);
+		boolean candidate = false;
+		int[] neighbours = table.getNeighbourTargets();
+		for(int i=table.getNeighbourStart(fromId); i<table.getNeighbourEnd(fromId); i++) {
+			int n = neighbours[i];
+			if(n!=toId && placedIds.get(n) && !excluded.get(n) && find(n)==target) {
+				candidate = true;
+				break;
+			}
+		}
+		
+		if(!candidate) return false;
+		
+		// without exclusions and with the start node outside the placed nodes, the connection is a path
+		if(excluded.isEmpty() && !placedIds.get(fromId)) return true;
+				
+		return isPathSearch(fromId, toId, excluded);
+	}
+	
+	private boolean isPathSearch(int from, int to, BitSet excluded) {
+		BitSet seen = new BitSet(table.size());
+		int[] stack = new int[table.size()];
+		int top = 0;
+		
+		int[] neighbours = table.getNeighbourTargets();
+		
+		seen.set(from);
+		for(int i=table.getNeighbourStart(from); i<table.getNeighbourEnd(from); i++) {
+			int n = neighbours[i];
+			if(n!=to && placedIds.get(n) && !excluded.get(n) && !seen.get(n)) {
+				seen.set(n);
+				stack[top++] = n;
+			}
+		}
+		
+		while(top>0) {
+			int current = stack[--top];
+			for(int i=table.getNeighbourStart(current); i<table.getNeighbourEnd(current); i++) {
+				int n = neighbours[i];
+				if(!placedIds.get(n) || excluded.get(n)) continue;
+				if(n==to) return true;
+				if(!seen.get(n)) {
+					seen.set(n);
+					stack[top++] = n;
+				}
+			}
+		}
+		
+		return false;
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	public boolean hasDirectConnection(Node from, Node to) {
-	    return !layoutGraph.getAllEdges(from, to).isEmpty();
+		int fromId = table.getId(from);
+		int toId = table.getId(to);
+	    return fromId>=0 && toId>=0 && table.hasPlaced(fromId, toId);
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
@@ -1562,7 +1769,7 @@ public class LayoutGraph extends Positions {
 		
 		LOG.debug("getDirectionNotBothPlaced: nodeA={} res={} pos={}", nodeA, res, pos); 
 
-		Set<Node> placedInPosition = this.position.entrySet().stream().filter(entry -> entry.getValue().equals(pos)).map(Map.Entry::getKey).collect(toSet());
+		Set<Node> placedInPosition = getNodesAt(pos);
 		
 		LOG.debug("getDirectionNotBothPlaced: pos={} placedInPosition={}", pos, placedInPosition); 
 
@@ -1571,7 +1778,7 @@ public class LayoutGraph extends Positions {
 			allDirections.remove(res);
 			for(Place candidate : allDirections) {
 				Position candidatePos = getPositionFromNode(nodeA, candidate);
-				placedInPosition = this.position.entrySet().stream().filter(entry -> entry.getValue().equals(candidatePos)).map(entry -> entry.getKey()).collect(toSet());
+				placedInPosition = getNodesAt(candidatePos);
 				LOG.debug("getDirectionNotBothPlaced: candidate={} pos={} placedInPosition={}", candidate, candidatePos, placedInPosition); 
 				if(placedInPosition.isEmpty() && !this.isPlacedAt(nodeA, candidate) ) {
 					res = candidate;
@@ -1703,7 +1910,7 @@ public class LayoutGraph extends Positions {
 		return pos;
 	}
 
-	private Set<Node> getNeighbours(Node node) {
+	Set<Node> getNeighbours(Node node) {
 		return GraphAlgorithms.getNeighbours(layoutGraph, node);
 	}
 
@@ -1719,46 +1926,13 @@ public class LayoutGraph extends Positions {
 	}
 
 	private List<Place> getAggregatedDirectionOfSteps(List<Place> steps) {
-		List<Place> res = new LinkedList<>();
-		
-		int x=0;
-		int y=0;
+		int[] delta = new int[3];
 		
 		for(Place step : steps) {
-			switch(step) {
-			case ABOVE:
-			case FORCEABOVE:
-				y++;
-				break;
-				
-			case BELOW:
-			case FORCEBELOW:
-				y--;
-				break;
-				
-			case LEFT:
-			case FORCELEFT:
-				x--;
-				break;
-				
-			case RIGHT:
-			case FORCERIGHT:
-				x++;
-				break;
-				
-			default:
-				
-			}
+			addStep(delta, step);
 		}
 		
-		if(x<0) res.add(Place.LEFT);
-		if(x>0) res.add(Place.RIGHT);
-		
-		if(y<0) res.add(Place.BELOW);
-		if(y>0) res.add(Place.ABOVE);
-		
-		return res;
-		
+		return getAggregatedDirection(delta);
 	}
 	
 	private boolean isDirectionOf(Node node, Node pivot, Place direction) {
@@ -1890,10 +2064,11 @@ public class LayoutGraph extends Positions {
 	
 	
 	@LogMethod(level=LogLevel.DEBUG)
-    private List<List<Place>> getPlacePaths(Set<Node> sources, Set<Node> targets) 
+    List<List<Place>> getPlacePaths(Set<Node> sources, Set<Node> targets) 
     { 
 		List<List<Place>> paths = new LinkedList<>();		
 
+		targets = new HashSet<>(targets);
 		targets.removeAll(sources);
 
 		LOG.debug("getPlacePaths:: sources={} targets={}",  sources, targets);
@@ -1907,120 +2082,169 @@ public class LayoutGraph extends Positions {
     } 
 	
 	
+	/*
+	 * Aggregated direction (getAggregatedDirectionOfSteps) of the steps from a node to the first of the targets reached
+	 * depth first, neighbours in the order of getOtherNeighbours. Steps to a direct neighbour among the targets are the 
+	 * layout edges to it, otherwise the path starts at a neighbour and includes the layout edges in both directions for 
+	 * every step 
+	 */
 	@LogMethod(level=LogLevel.DEBUG)
     private List<Place> getPlacePaths(Node from, Set<Node> targets) 
     { 
-		List<Place> path = new LinkedList<>();	
-		
-		Map<Node,Boolean> visited = new HashMap<>();
-		layoutGraph.vertexSet().forEach(node -> visited.put(node, false));
-		
-		LOG.debug("getPlacePaths: from={} targets={} ", from, targets);
+		Map<Set<Node>,PlacePath> paths = placePaths.computeIfAbsent(from, n -> new HashMap<>());
+
+		PlacePath path = paths.get(targets);
+		if(path==null) {
+			path = searchPlacePath(from, Set.copyOf(targets));
+			paths.put(path.targets, path);
+			
+			BitSet explored = path.explored;
+			for(int id=explored.nextSetBit(0); id>=0; id=explored.nextSetBit(id+1)) placePathsByNode.get(id).add(path);
+		}
 
-		Set<Node> neighbours = getNeighbours(from).stream().filter(n -> !n.equals(from)).collect(toSet());
+		LOG.debug("getPlacePaths: from={} targets={} res={}", from, targets, path.directions);
+
+		return path.directions; 
+    } 
+
+	private PlacePath searchPlacePath(Node from, Set<Node> targets) {
+		BitSet visited = new BitSet(table.size());
+		List<Place> directions = Collections.emptyList();
 		
-        Set<Node> common = Utils.intersection(neighbours, targets);
-        
-        if(!common.isEmpty()) {
-        	      	
-    		path = common.stream()
-    							.map(node -> layoutGraph.getAllEdges(from, node))
-    							.flatMap(Set::stream)
-    							.map(LayoutEdge::getDirection)
-    							.toList();
-       		 		
-    		LOG.debug("getPlacePaths: from={} targets={} res={}", from, targets, path);
-
-    		return path;
-        	
-        } else {   
+		Set<Node> neighbours = getOtherNeighbours(from);
+		Set<Node> common = Utils.intersection(neighbours, targets);
+
+		if(!common.isEmpty()) {
+			int[] delta = new int[3];
+			common.stream()
+				.map(node -> layoutGraph.getAllEdges(from, node))
+				.flatMap(Set::stream)
+				.map(LayoutEdge::getDirection)
+				.forEach(step -> addStep(delta, step));
+			
+			if(delta[2]>0) directions = getAggregatedDirection(delta);
+			
+		} else {
 			for(Node node : neighbours) {
-				if(Boolean.FALSE.equals(visited.get(node))) {			
-					path = getPlacePathsUtil(node, targets, visited, new LinkedList<>() ); 
-					if(!path.isEmpty()) return path;
+				if(!visited.get(table.getId(node))) {
+					int[] delta = searchPlacePath(node, targets, visited, new int[3]);
+					if(delta!=null) {
+						directions = getAggregatedDirection(delta);
+						break;
+					}
 				}
 			}
-        }
-		return path; 
-    } 
-
-	@LogMethod(level=LogLevel.DEBUG)
-    private List<Place>  getPlacePathsUtil(Node node, Set<Node> targets, Map<Node,Boolean> visited, List<Place> path) 
-    {   
-        if( Boolean.TRUE.equals(visited.get(node)) || targets.contains(node)) return path;
-      
-        visited.put(node, true); 
-
-		Set<Node> neighbours = getNeighbours(node).stream().filter(n -> !n.equals(node)).collect(toSet());
-      
-        if(neighbours.size() > 1) {
-	        for(Node neighbour : neighbours) {
-	        	if(Boolean.FALSE.equals(visited.get(neighbour))) {
-	        		
-	        		List<Place> subPath = new LinkedList<>();
-	        		subPath.addAll(path);
+		}
+		
+		// the nodes with neighbours read to find the path
+		visited.set(table.getId(from));
+		
+		return new PlacePath(from, targets, directions, visited);
+	}
 	
-	        		Set<Place> steps = layoutGraph.getAllEdges(node,  neighbour).stream().map(LayoutEdge::getDirection).collect(toSet());
-	        			        		    
-	        		subPath.addAll(steps);
-
-	                LOG.debug("getPlacePathsUtil: #1 node={} targets={} neighbour={} subPath={}", node, targets, neighbour, subPath);
-
-	        		// and the other direction
-	                Set<Place> reverseSteps = layoutGraph.getAllEdges(neighbour, node).stream().map(LayoutEdge::getDirection).collect(toSet());
-
-//	                retractStep = new HashSet<>();
-//	                retractStep.addAll(reverseSteps);
-//	                retractStep.removeAll(subPath);
-//	                
-//	        		reverseSteps.removeAll(retractStep);
-//	        		// subPath.removeAll(retractStep);
-	        		
-	        		steps = reverseSteps.stream().map(Place::getReverse).collect(toSet());
-	        		    
-	        		subPath.addAll(steps);
-	        		
-	        		
-//	        		reverseSteps.retainAll(subPath);
-//	        		subPath.removeAll(reverseSteps);
-//	        		
-//	        		steps = reverseSteps.stream().map(Place::getReverse).collect(toSet());
-//	        		    
-//	        		subPath.addAll(steps);
-
-	                LOG.debug("getPlacePathsUtil: #2 node={} targets={} neighbour={} subPath={}", node, targets, neighbour, subPath);
-
-					List<Place> candidate = getPlacePathsUtil(neighbour, targets, visited, subPath);
-					if(!candidate.isEmpty()) return candidate;
+	/*
+	 * The aggregated steps (x, y, number of steps) to the first target reached from node, null if none
+	 * Targets are not visited, and neither is the source node until reached through one of its neighbours
+	 */
+	private int[] searchPlacePath(Node node, Set<Node> targets, BitSet visited, int[] delta) {
+		int id = table.getId(node);
+		
+		if(visited.get(id) || targets.contains(node)) return delta[2]>0 ? delta : null;
+		
+		visited.set(id);
+		
+		Set<Node> neighbours = getOtherNeighbours(node);
+		if(neighbours.size()>1) {
+			for(Node neighbour : neighbours) {
+				if(!visited.get(table.getId(neighbour))) {
+					int[] steps = delta.clone();
+					addSteps(steps, node, neighbour);
 					
-					// path = subPath;
+					int[] candidate = searchPlacePath(neighbour, targets, visited, steps);
+					if(candidate!=null) return candidate;
 					
-	            } else if(targets.contains(neighbour)) {
-	                LOG.debug("getPlacePathsUtil: found path node={} targets={} path={}", node, targets, path);
-	                return path; 
-	            }
-	        } 
-        }
-        return new LinkedList<>(); 
-    }
-
-	public boolean hasPlacedCircle(Node node) {
-		List<List<Node>> circles = this.apiGraph.getCircles();
-		List<Node> placedLeft = this.getPlacedAt(node, Place.LEFT);
-		List<Node> placedRight = this.getPlacedAt(node, Place.RIGHT);
+				} else if(targets.contains(neighbour)) {
+					return delta[2]>0 ? delta : null;
+				}
+			}
+		}
 		
-		boolean res=false;
-		for(List<Node> circle : circles) {
-			Set<Node> commonLeft = Utils.intersection(circle,  placedLeft);
-			Set<Node> commonRight = Utils.intersection(circle,  placedRight);
+		return null;
+	}
+	
+	/*
+	 * Neighbours in the layout graph except the node itself (hash set order - decides the target reached first)
+	 */
+	private Set<Node> getOtherNeighbours(Node node) {
+		return getNeighbours(node).stream().filter(n -> !n.equals(node)).collect(toSet());
+	}
+	
+	/*
+	 * The distinct directions of layout edges from node to neighbour, and the distinct reverse of the directions 
+	 * from neighbour to node
+	 */
+	private void addSteps(int[] delta, Node node, Node neighbour) {
+		layoutGraph.getAllEdges(node, neighbour).stream()
+			.map(LayoutEdge::getDirection)
+			.collect(toSet())
+			.forEach(step -> addStep(delta, step));
+		
+		layoutGraph.getAllEdges(neighbour, node).stream()
+			.map(LayoutEdge::getDirection)
+			.collect(toSet()).stream()
+			.map(Place::getReverse)
+			.collect(toSet())
+			.forEach(step -> addStep(delta, step));
+	}
 
-			res = !commonLeft.isEmpty() && !commonRight.isEmpty();
+	private static void addStep(int[] delta, Place step) {
+		delta[2]++;
+		if(step==null) return;
+		
+		switch(step) {
+		case ABOVE:
+		case FORCEABOVE:
+			delta[1]++;
+			break;
+			
+		case BELOW:
+		case FORCEBELOW:
+			delta[1]--;
+			break;
+			
+		case LEFT:
+		case FORCELEFT:
+			delta[0]--;
+			break;
+			
+		case RIGHT:
+		case FORCERIGHT:
+			delta[0]++;
+			break;
 			
-			if(res) break;
+		default:
 		}
+	}
+	
+	private static List<Place> getAggregatedDirection(int[] delta) {
+		List<Place> res = new LinkedList<>();
+		
+		if(delta[0]<0) res.add(Place.LEFT);
+		if(delta[0]>0) res.add(Place.RIGHT);
+		
+		if(delta[1]<0) res.add(Place.BELOW);
+		if(delta[1]>0) res.add(Place.ABOVE);
 		
 		return res;
+	}
+
+	public boolean hasPlacedCircle(Node node) {
+		List<Node> placedLeft = this.getPlacedAt(node, Place.LEFT);
+		List<Node> placedRight = this.getPlacedAt(node, Place.RIGHT);
+		
+		if(placedLeft.isEmpty() || placedRight.isEmpty()) return false;
 		
+		return getCircleCatalogue().hasCircleWithBoth(placedLeft, placedRight);
 	}
 
 	public boolean isPlacedBelow(Node node) {
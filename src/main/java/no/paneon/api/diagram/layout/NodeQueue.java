@@ -0,0 +1,83 @@
+package no.paneon.api.diagram.layout;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import no.paneon.api.graph.Node;
+
+/*
+ * Nodes to process in layout order - placed nodes first, then by the number of inbound edges from placed nodes,
+ * then by the order given
+ * Keys only increase as nodes are placed; LayoutGraph adds a new entry when a key changes and outdated entries are skipped
+ */
+public class NodeQueue {
+
+    static final Logger LOG = LogManager.getLogger(NodeQueue.class);
+
+	static class Entry {
+		final Node node;
+		final boolean placed;
+		final int inbound;
+		final int order;
+
+		Entry(Node node, boolean placed, int inbound, int order) {
+			this.node = node;
+			this.placed = placed;
+			this.inbound = inbound;
+			this.order = order;
+		}
+	}
+
+	static final Comparator<Entry> PRIORITY = Comparator.<Entry,Boolean>comparing(e -> !e.placed)
+													.thenComparing(e -> -e.inbound)
+													.thenComparing(e -> e.order);
+
+	private LayoutGraph layoutGraph;
+	private Map<Node,Integer> remaining;
+	private PriorityQueue<Entry> queue;
+
+	NodeQueue(LayoutGraph layoutGraph, List<Node> nodes) {
+		this.layoutGraph = layoutGraph;
+		this.remaining = new HashMap<>();
+		this.queue = new PriorityQueue<>(Math.max(1, nodes.size()), PRIORITY);
+
+		for(Node node : nodes) {
+			if(remaining.putIfAbsent(node, remaining.size())==null) update(node);
+		}
+	}
+
+	void update(Node node) {
+		Integer order = remaining.get(node);
+		if(order!=null) {
+			queue.add(new Entry(node, layoutGraph.isPlaced(node), layoutGraph.getInboundEdgesFromPlaced(node), order));
+		}
+	}
+
+	public Optional<Node> poll() {
+		while(!queue.isEmpty()) {
+			Entry entry = queue.poll();
+
+			if(!remaining.containsKey(entry.node)) continue;
+			if(entry.placed!=layoutGraph.isPlaced(entry.node) || entry.inbound!=layoutGraph.getInboundEdgesFromPlaced(entry.node)) continue;
+
+			remaining.remove(entry.node);
+
+			LOG.debug("poll: node={} placed={} inbound={}", entry.node, entry.placed, entry.inbound);
+
+			return Optional.of(entry.node);
+		}
+		return Optional.empty();
+	}
+
+	public boolean isEmpty() {
+		return remaining.isEmpty();
+	}
+
+}
@@ -0,0 +1,268 @@
+package no.paneon.api.diagram.layout;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import no.paneon.api.graph.APIGraph;
+import no.paneon.api.graph.Node;
+
+/*
+ * Compact representation of the API graph of a diagram for the layout - computed once as the layout graph is created
+ *
+ * - nodes are dense ids (the order of the layout graph vertices) with an interned name table; nodes are looked up by name
+ *   (sameName only holds nodes sharing the name of an earlier node), nodes and names outside the table have id -1
+ * - adjacency of the API graph in CSR form (offsets / targets) - outbound in the order of the API graph, and the
+ *   neighbours in either direction
+ * - placement (layout) edges by source, packed as target<<PLACE_BITS | code of the direction (0 - no direction), and
+ *   by target (from other nodes), packed as source<<PLACE_BITS | code - both in the order added
+ */
+public class NodeTable {
+
+    static final Logger LOG = LogManager.getLogger(NodeTable.class);
+
+	static final int PLACE_BITS = 4;
+	static final int PLACE_MASK = (1<<PLACE_BITS)-1;
+
+	private static final Place[] PLACES = Place.values();
+
+	private final Node[] nodes;
+	private final String[] names;
+	private final Map<String,Integer> ids;
+	private final Map<Node,Integer> sameName;
+
+	private final int[] outboundOffsets;
+	private final int[] outboundTargets;
+	private final int[] neighbourOffsets;
+	private final int[] neighbourTargets;
+
+	private final int[][] placed;
+	private final int[] placedCount;
+	private final int[][] placedBy;
+	private final int[] placedByCount;
+
+	NodeTable(APIGraph apiGraph, List<Node> nodeList) {
+		int size = nodeList.size();
+
+		this.nodes = nodeList.toArray(new Node[size]);
+		this.names = new String[size];
+		this.ids = new HashMap<>(size*2);
+		this.sameName = new HashMap<>();
+
+		for(int id=0; id<size; id++) {
+			names[id] = nodes[id].getName().intern();
+			if(ids.putIfAbsent(names[id], id)!=null) sameName.put(nodes[id], id);
+		}
+
+		this.outboundOffsets = new int[size+1];
+		this.neighbourOffsets = new int[size+1];
+
+		int[][] outbound = new int[size][];
+		int[][] neighbours = new int[size][];
+		for(int id=0; id<size; id++) {
+			outbound[id] = toIds(apiGraph.getOutboundNeighbours(nodes[id]));
+
+			int[] inbound = toIds(apiGraph.getInboundNeighbours(nodes[id]));
+			neighbours[id] = union(outbound[id], inbound, size);
+
+			outboundOffsets[id+1] = outboundOffsets[id] + outbound[id].length;
+			neighbourOffsets[id+1] = neighbourOffsets[id] + neighbours[id].length;
+		}
+
+		this.outboundTargets = new int[outboundOffsets[size]];
+		this.neighbourTargets = new int[neighbourOffsets[size]];
+		for(int id=0; id<size; id++) {
+			System.arraycopy(outbound[id], 0, outboundTargets, outboundOffsets[id], outbound[id].length);
+			System.arraycopy(neighbours[id], 0, neighbourTargets, neighbourOffsets[id], neighbours[id].length);
+		}
+
+		this.placed = new int[size][];
+		this.placedCount = new int[size];
+		this.placedBy = new int[size][];
+		this.placedByCount = new int[size];
+
+		LOG.debug("NodeTable:: nodes={} outbound={} neighbours={}", size, outboundTargets.length, neighbourTargets.length);
+	}
+
+	private int[] toIds(Iterable<Node> neighbours) {
+		int[] res = new int[8];
+		int count = 0;
+		for(Node node : neighbours) {
+			int id = getId(node);
+			if(id<0) continue;
+			if(count==res.length) res = Arrays.copyOf(res, count*2);
+			res[count++] = id;
+		}
+		return Arrays.copyOf(res, count);
+	}
+
+	private static int[] union(int[] first, int[] second, int size) {
+		int[] res = new int[first.length + second.length];
+		BitSet seen = new BitSet(size);
+		int count = 0;
+		for(int[] ids : new int[][] {first, second}) {
+			for(int id : ids) {
+				if(!seen.get(id)) {
+					seen.set(id);
+					res[count++] = id;
+				}
+			}
+		}
+		return Arrays.copyOf(res, count);
+	}
+
+	public int size() {
+		return nodes.length;
+	}
+
+	public Node getNode(int id) {
+		return nodes[id];
+	}
+
+	public String getName(int id) {
+		return names[id];
+	}
+
+	public int getId(String name) {
+		Integer id = name!=null ? ids.get(name) : null;
+		return id!=null ? id : -1;
+	}
+
+	/*
+	 * Id of a node of the table - -1 for other nodes (including other nodes with the same name)
+	 */
+	public int getId(Node node) {
+		int id = getId(node.getName());
+		if(id<0 || nodes[id].equals(node)) return id;
+
+		Integer other = sameName.get(node);
+		return other!=null ? other : -1;
+	}
+
+	/*
+	 * Outbound neighbours in the API graph - offsets into getOutboundTargets
+	 */
+	int getOutboundStart(int id) {
+		return outboundOffsets[id];
+	}
+
+	int getOutboundEnd(int id) {
+		return outboundOffsets[id+1];
+	}
+
+	int[] getOutboundTargets() {
+		return outboundTargets;
+	}
+
+	int getOutboundCount(int id) {
+		return outboundOffsets[id+1] - outboundOffsets[id];
+	}
+
+	/*
+	 * Neighbours in the API graph (outbound and inbound) - offsets into getNeighbourTargets
+	 */
+	int getNeighbourStart(int id) {
+		return neighbourOffsets[id];
+	}
+
+	int getNeighbourEnd(int id) {
+		return neighbourOffsets[id+1];
+	}
+
+	int[] getNeighbourTargets() {
+		return neighbourTargets;
+	}
+
+	/*
+	 * Adds a placement edge - same target and direction only once
+	 */
+	void addPlaced(int source, int target, Place direction) {
+		int code = getCode(direction);
+		int packed = target<<PLACE_BITS | code;
+
+		int[] edges = placed[source];
+		for(int i=0; i<placedCount[source]; i++) {
+			if(edges[i]==packed) return;
+		}
+
+		append(placed, placedCount, source, packed);
+
+		if(source!=target) append(placedBy, placedByCount, target, source<<PLACE_BITS | code);
+	}
+
+	private static void append(int[][] edges, int[] count, int id, int packed) {
+		if(edges[id]==null) {
+			edges[id] = new int[4];
+		} else if(count[id]==edges[id].length) {
+			edges[id] = Arrays.copyOf(edges[id], count[id]*2);
+		}
+		edges[id][count[id]++] = packed;
+	}
+
+	/*
+	 * Placement edges from the node - packed, the first getPlacedCount entries
+	 */
+	int[] getPlacedEdges(int id) {
+		return placed[id];
+	}
+
+	int getPlacedCount(int id) {
+		return placedCount[id];
+	}
+
+	/*
+	 * Placement edges to the node from other nodes - packed with the source, the first getPlacedByCount entries
+	 */
+	int[] getPlacedByEdges(int id) {
+		return placedBy[id];
+	}
+
+	int getPlacedByCount(int id) {
+		return placedByCount[id];
+	}
+
+	static int getNodeId(int packed) {
+		return packed>>>PLACE_BITS;
+	}
+
+	static int getCode(int packed) {
+		return packed & PLACE_MASK;
+	}
+
+	/*
+	 * Some placement edge from source to target (with or without direction)
+	 */
+	boolean hasPlaced(int source, int target) {
+		int[] edges = placed[source];
+		for(int i=0; i<placedCount[source]; i++) {
+			if(edges[i]>>>PLACE_BITS == target) return true;
+		}
+		return false;
+	}
+
+	/*
+	 * Directions of the placement edges from source to target as a bitmask over the direction codes (without no direction)
+	 */
+	int getPlacedDirections(int source, int target) {
+		int res = 0;
+		int[] edges = placed[source];
+		for(int i=0; i<placedCount[source]; i++) {
+			if(edges[i]>>>PLACE_BITS == target && (edges[i] & PLACE_MASK)!=0) res |= 1<<(edges[i] & PLACE_MASK);
+		}
+		return res;
+	}
+
+	static int getCode(Place direction) {
+		return direction!=null ? direction.ordinal()+1 : 0;
+	}
+
+	static Place getPlace(int code) {
+		return code!=0 ? PLACES[code-1] : null;
+	}
+
+}
@@ -1,10 +1,16 @@
 package no.paneon.api.diagram.layout;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import static java.util.stream.Collectors.toList;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
@@ -21,13 +27,100 @@ public class Positions {
 
 	Map<Node,Position> position;
 	
+	/*
+	 * Index of the positions above - levels (y) by x, and the nodes in each cell
+	 * All updates of position (and of the Position objects) go through put / move
+	 */
+	NavigableMap<Integer,Row> rows;
+	Map<Position,Set<Node>> cells;
+	
+	static class Row {
+		final NavigableMap<Integer,Set<Node>> columns = new TreeMap<>();
+		int size = 0;
+	}
+	
 	public Positions() {
 		this.position = new HashMap<>();
+		this.rows = new TreeMap<>();
+		this.cells = new HashMap<>();
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	void setPosition(Node node) {
-		position.put(node, new Position(true));
+		put(node, new Position(true));
+	}
+	
+	private void put(Node node, Position pos) {
+		Position current = position.put(node, pos);
+		if(current!=null) unindex(node, current);
+		index(node, pos);
+	}
+	
+	private void move(Node node, Position pos, Position to, Place direction) {
+		unindex(node, pos);
+		pos.moveTo(to);
+		pos.move(direction);
+		index(node, pos);
+	}
+	
+	private void index(Node node, Position pos) {
+		Set<Node> cell = cells.computeIfAbsent(new Position(pos), p -> {
+			Set<Node> nodes = new LinkedHashSet<>();
+			rows.computeIfAbsent(p.getY(), y -> new Row()).columns.put(p.getX(), nodes);
+			return nodes;
+		});
+		if(cell.add(node)) rows.get(pos.getY()).size++;
+	}
+	
+	private void unindex(Node node, Position pos) {
+		Set<Node> cell = cells.get(pos);
+		if(cell==null || !cell.remove(node)) return;
+		
+		Row row = rows.get(pos.getY());
+		row.size--;
+		if(cell.isEmpty()) {
+			cells.remove(pos);
+			row.columns.remove(pos.getX());
+			if(row.size==0) rows.remove(pos.getY());
+		}
+	}
+	
+	/*
+	 * Nodes at the given coordinates - more than one is a collision
+	 */
+	@LogMethod(level=LogLevel.DEBUG)
+	public Set<Node> getNodesAt(Position pos) {
+		Set<Node> res = cells.get(pos);
+		return res!=null ? Collections.unmodifiableSet(res) : Collections.emptySet();
+	}
+	
+	@LogMethod(level=LogLevel.DEBUG)
+	public boolean hasCollision(Node node) {
+		Position pos = position.get(node);
+		return pos!=null && cells.get(pos).size()>1;
+	}
+	
+	/*
+	 * Nodes at level y with x in the given range, ordered by x
+	 */
+	private List<Node> placedAt(int y, int fromX, boolean fromInclusive, int toX, boolean toInclusive) {
+		Row row = rows.get(y);
+		if(row==null || fromX>toX || (fromX==toX && !(fromInclusive && toInclusive))) return Collections.emptyList();
+		
+		List<Node> res = new LinkedList<>();
+		for(Set<Node> cell : row.columns.subMap(fromX, fromInclusive, toX, toInclusive).values()) {
+			res.addAll(cell);
+		}
+		return res;
+	}
+	
+	private List<Node> placedAt(int y) {
+		Row row = rows.get(y);
+		if(row==null) return Collections.emptyList();
+		
+		List<Node> res = new LinkedList<>();
+		row.columns.values().forEach(res::addAll);
+		return res;
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
@@ -37,12 +130,12 @@ public class Positions {
 		if(pos.isPositioned()) {
 			pos=new Position(pos);
 			pos.setX(pos.getX() - 1);
-			position.put(to, pos);
+			put(to, pos);
 		} else {
 			pos=getPosition(to);
 			pos=new Position(pos);
 			pos.setX(pos.getX() + 1);
-			position.put(from, pos);
+			put(from, pos);
 		}
 		
 		LOG.trace("positionToLeft: from={} to={} positionFrom={} positionTo={}", from, to, getPosition(from), getPosition(to));
@@ -57,12 +150,12 @@ public class Positions {
 		if(pos.isPositioned()) {
 			pos=new Position(pos);
 			pos.setX(pos.getX() + 1);
-			position.put(to, pos);
+			put(to, pos);
 		} else {
 			pos=getPosition(to);
 			pos=new Position(pos);
 			pos.setX(pos.getX() - 1);
-			position.put(from, pos);
+			put(from, pos);
 		}
 		
 		LOG.trace("positionToRight: from={} to={} positionFrom={} positionTo={}", from, to, getPosition(from), getPosition(to));
@@ -79,16 +172,16 @@ public class Positions {
 			if(!toPos.isPositioned()) {
 				Position pos=new Position(fromPos);
 				pos.setY(pos.getY() - 1);
-				position.put(to, pos);
+				put(to, pos);
 			} else {
 				Position pos=new Position(toPos);
 				pos.setY(pos.getY() + 1);
-				position.put(from, pos);
+				put(from, pos);
 			}
 		} else {
 			Position pos=new Position(toPos);
 			pos.setY(pos.getY() + 1);
-			position.put(from, pos);
+			put(from, pos);
 		}
 		
 		LOG.trace("positionToAbove: from={} to={} positionFrom={} positionTo={}", from, to, getPosition(from), getPosition(to));
@@ -102,12 +195,12 @@ public class Positions {
 		if(pos.isPositioned()) {
 			pos=new Position(pos);
 			pos.setY(pos.getY() + 1);
-			position.put(to, pos);
+			put(to, pos);
 		} else {
 			pos=getPosition(to);
 			pos=new Position(pos);
 			pos.setY(pos.getY() - 1);
-			position.put(from, pos);
+			put(from, pos);
 		}
 		
 		LOG.trace("positionToBelow: from={} to={} positionFrom={} positionTo={}", from, to, getPosition(from), getPosition(to));
@@ -116,10 +209,12 @@ public class Positions {
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	public Position getPosition(Node node) {
-		if(!position.containsKey(node)) {
-			position.put(node,new Position());
+		Position res = position.get(node);
+		if(res==null) {
+			res = new Position();
+			put(node,res);
 		}
-		return position.get(node);
+		return res;
 	}
 	
 	 
@@ -189,15 +284,10 @@ public class Positions {
 	public int currentlyPlacedAtLevel(Node node, int offset) {
 		int res=0;
 		if(position.containsKey(node)) {
-			Position pos = getPosition(node);
-			List<Node> nodes = position.keySet().stream()
-									.filter(n -> getPosition(n).getY()==pos.getY()+offset)
-									.distinct()
-									.collect(toList());
+			Row row = rows.get(getPosition(node).getY()+offset);
+			res = row!=null ? row.size : 0;
 			
-            LOG.debug("currentlyPlacedAtLevel: node={} offset={} nodes={}", node, offset, nodes);
-            
-            res = nodes.size();
+            LOG.debug("currentlyPlacedAtLevel: node={} offset={} res={}", node, offset, res);
 		}
 		return res;
 	}
@@ -206,14 +296,10 @@ public class Positions {
 	public List<Node> placedAtLevel(Node node) {
 		List<Node> res = new LinkedList<>();
 		if(position.containsKey(node)) {
-			Position pos = getPosition(node);
-			res = position.keySet().stream()
-						.filter(n -> getPosition(n).getY()==pos.getY())
-						.toList();
+			res = placedAt(getPosition(node).getY());
 		}
 		
         LOG.debug("placedAtLevel: node={} res={}", node, res);
-        res.forEach(n -> LOG.debug("placedAtLevel: node={} n={} pos={}", node, n, getPosition(n)) );
 
 		return res;
 	}
@@ -233,15 +319,13 @@ public class Positions {
 		
 		if(!posTo.isPositioned()) {
 			
-			posTo.moveTo(posFrom);
-			posTo.move(direction);		
+			move(to, posTo, posFrom, direction);
 			
 			LOG.debug("position: from={} to={} direction={} posTo={} posFrom={}", from, to, direction, posTo, posFrom);
 
 		} else if(!posFrom.isPositioned()) {
 			
-			posFrom.moveTo(posTo);
-			posFrom.move(direction.reverse());		
+			move(from, posFrom, posTo, direction.reverse());
 			
 			LOG.debug("position: from={} to={} direction={} posTo={} posFrom={}", from, to, direction, posTo, posFrom);
 
@@ -279,97 +363,85 @@ public class Positions {
 		if(!isAtSameLevel(nodeA,nodeB)) return res;
 		Position posA = getPosition(nodeA);
 		Position posB = getPosition(nodeB);
-		res = placedAtLevel(nodeA).stream()
-				.filter(n -> {
-					Position p = getPosition(n);
-			        LOG.debug("currentlyPlacedBetween: n={} p={} posA={} posB={}", n, p, posA, posB);
-					if(posA.getX()<posB.getX()) return posA.getX()<p.getX() && p.getX()<posB.getX();
-					if(posB.getX()<posA.getX()) return posB.getX()<p.getX() && p.getX()<posA.getX();
-					return false;
-				}).toList();
+		res = placedAt(posA.getY(), Math.min(posA.getX(), posB.getX()), false, Math.max(posA.getX(), posB.getX()), false);
+		
+        LOG.debug("currentlyPlacedBetween: nodeA={} nodeB={} posA={} posB={} res={}", nodeA, nodeB, posA, posB, res);
 		return res;
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
 	public List<Node> currentPlaced(Node node, Place direction) {
-		return placedAtLevel(node).stream()
-				.filter(n -> !n.equals(node))
-				.filter(n -> isPlaced(n,node,direction)) 
-				.toList();
-	}
-	
-	@LogMethod(level=LogLevel.DEBUG)
-	private boolean isPlaced(Node nodeA, Node nodeB, Place direction) {
-		Position posA = getPosition(nodeA);
-		Position posB = getPosition(nodeB);
+		if(!position.containsKey(node)) return Collections.emptyList();
+		
+		Position pos = getPosition(node);
 
-		boolean res=false;
+		// only nodes at the same level - none of these are above or below
 		switch(direction) {
 		case LEFT: 
-			res = posA.getX()<posB.getX();
-			break;
+			return placedAt(pos.getY(), Integer.MIN_VALUE, true, pos.getX(), false);
 
 		case RIGHT: 
-			res = posA.getX()>posB.getX();
-			break;			
+			return placedAt(pos.getY(), pos.getX(), false, Integer.MAX_VALUE, true);
 
-		case ABOVE: 
-			res = posA.getY()<posB.getY();
-			break;
-
-		case BELOW:
-			res = posA.getY()>posB.getY();
-			break;
 		default:
+			return Collections.emptyList();
 		}
-
-		return res;
-
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
 	public List<Node> currentPlacedRightOf(Node node) {
 		Position pos = getPosition(node);
-		return placedAtLevel(node).stream()
-				.filter(n -> !n.equals(node))
-				.filter(n -> { Position p = getPosition(n); return p.getX()>=pos.getX();}) 
-				.toList();
+		return without(node, placedAt(pos.getY(), pos.getX(), true, Integer.MAX_VALUE, true));
 	}
 	
+	/*
+	 * In the order of the position map (as before the index) - the segments of addHiddenIfGroup depend on the order
+	 */
 	@LogMethod(level=LogLevel.DEBUG)
 	public List<Node> currentPlacedLeftOf(Node node) {
 		Position pos = getPosition(node);
-		return placedAtLevel(node).stream()
-				.filter(n -> !n.equals(node))
-				.filter(n -> { Position p = getPosition(n); return p.getX()<=pos.getX();}) 
-				.toList();
+		List<Node> res = without(node, placedAt(pos.getY(), Integer.MIN_VALUE, true, pos.getX(), true));
+		if(res.size()<2) return res;
+		
+		Set<Node> leftOf = new HashSet<>(res);
+		return position.keySet().stream().filter(leftOf::contains).toList();
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	public List<Node> currentPlacedAbove(Node node) {
 		Position pos = getPosition(node);
-		return placedAtLevel(node).stream()
-				.filter(n -> !n.equals(node))
-				.filter(n -> { Position p = getPosition(n); return p.getY()<=pos.getY();}) 
-				.toList();
+		return without(node, placedAt(pos.getY()));
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	public List<Node> currentPlacedBelow(Node node) {
 		Position pos = getPosition(node);
-		return placedAtLevel(node).stream()
-				.filter(n -> !n.equals(node))
-				.filter(n -> { Position p = getPosition(n); return p.getY()>=pos.getY();}) 
-				.toList();
+		return without(node, placedAt(pos.getY()));
+	}
+	
+	private List<Node> without(Node node, Collection<Node> nodes) {
+		List<Node> res = new LinkedList<>(nodes);
+		res.remove(node);
+		return res;
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	public boolean isPlaced(Node node, Place direction) {
-		List<Node> placed = currentPlaced(node,direction);
-	
+		if(!position.containsKey(node)) return false;
+		
+		Position pos = getPosition(node);
+		Row row = rows.get(pos.getY());
 
-		return !placed.isEmpty();
+		switch(direction) {
+		case LEFT: 
+			return row.columns.firstKey()<pos.getX();
 
+		case RIGHT: 
+			return row.columns.lastKey()>pos.getX();
+
+		default:
+			return false;
+		}
 	}
 	
 }
@@ -0,0 +1,132 @@
+package no.paneon.api.diagram.layout;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jgrapht.Graph;
+
+import no.paneon.api.graph.APIGraph;
+import no.paneon.api.graph.Edge;
+import no.paneon.api.graph.Node;
+import no.paneon.api.utils.Config;
+
+/*
+ * Pruning of the sub-graph of a pivot before the diagram is generated - the edges removed by the rules
+ * (indirect discriminators, outbound edges of nodes in other sub-graphs / resources) are collected in one sweep
+ * over the sub-graph and removed in one operation
+ *
+ * Nodes are identified by a run-wide index of the names of the nodes of the core graph; node sets are bitsets over the index
+ * (the sub-graphs are extracted one at a time)
+ */
+public class SubGraphPruning {
+
+    static final Logger LOG = LogManager.getLogger(SubGraphPruning.class);
+
+	static final String KEEP_DISCRIMINATORS = "keepDiscriminators";
+	static final String KEEP_OUTBOUND_EDGES = "keepOutboundEdges";
+
+	private Map<String,Integer> index;
+
+	SubGraphPruning(Graph<Node,Edge> completeGraph) {
+		this.index = new HashMap<>();
+
+		completeGraph.vertexSet().forEach(node -> getId(node.getName()));
+
+		LOG.debug("SubGraphPruning:: nodes={}", index.size());
+	}
+
+	/*
+	 * Names not in the core graph are added to the index
+	 */
+	private int getId(String name) {
+		return index.computeIfAbsent(name, n -> index.size());
+	}
+
+	public BitSet getNodes(Collection<String> nodeNames) {
+		BitSet res = new BitSet(index.size());
+		nodeNames.forEach(name -> res.set(getId(name)));
+		return res;
+	}
+
+	public boolean contains(BitSet nodes, Node node) {
+		Integer id = index.get(node.getName());
+		return id!=null && nodes.get(id);
+	}
+
+	/*
+	 * Removes the edges of the rules from the graph of the pivot - otherSubGraphs are the nodes of other sub-graphs and resources
+	 */
+	public void prune(String pivot, Graph<Node,Edge> graph, BitSet otherSubGraphs) {
+		Set<Edge> edges = getEdgesToRemove(pivot, graph, otherSubGraphs);
+
+		if(!edges.isEmpty()) graph.removeAllEdges(edges);
+	}
+
+	Set<Edge> getEdgesToRemove(String pivot, Graph<Node,Edge> graph, BitSet otherSubGraphs) {
+		Set<Edge> res = new HashSet<>();
+
+		Optional<Node> pivotNode = APIGraph.getNodeByName(graph, pivot);
+
+		if(pivotNode.isPresent() && !Config.getBoolean(KEEP_DISCRIMINATORS)) {
+			addIndirectDiscriminators(pivotNode.get(), graph, res);
+		}
+
+		if(!Config.getBoolean(KEEP_OUTBOUND_EDGES)) {
+			addOutbounds(pivot, graph, otherSubGraphs, res);
+		}
+
+		LOG.debug("getEdgesToRemove:: pivot={} edges={}", pivot, res);
+
+		return res;
+	}
+
+	/*
+	 * Discriminator edges to the discriminators of the pivot from other nodes, and the other discriminator edges of these nodes
+	 */
+	private void addIndirectDiscriminators(Node pivot, Graph<Node,Edge> graph, Set<Edge> res) {
+		Set<Edge> indirectEdges = new HashSet<>();
+		Set<Node> relatedNodes = new HashSet<>();
+
+		for(Edge edge : graph.outgoingEdgesOf(pivot)) {
+			if(!edge.isDiscriminator()) continue;
+
+			for(Edge indirect : graph.incomingEdgesOf(edge.getRelated())) {
+				if(indirect.isDiscriminator() && !indirect.getNode().equals(pivot)) {
+					indirectEdges.add(indirect);
+					relatedNodes.add(indirect.getNode());
+				}
+			}
+		}
+
+		for(Node node : relatedNodes) {
+			for(Edge edge : graph.outgoingEdgesOf(node)) {
+				if(edge.isDiscriminator() && !edge.getRelated().equals(pivot)) res.add(edge);
+			}
+		}
+
+		res.addAll(indirectEdges);
+
+		LOG.debug("addIndirectDiscriminators:: pivot={} indirectEdges={} relatedNodes={}", pivot, indirectEdges, relatedNodes);
+	}
+
+	/*
+	 * Outbound edges of nodes in other sub-graphs - except edges to the pivot
+	 */
+	private void addOutbounds(String pivot, Graph<Node,Edge> graph, BitSet otherSubGraphs, Set<Edge> res) {
+		for(Node node : graph.vertexSet()) {
+			if(node.getName().contentEquals(pivot) || !contains(otherSubGraphs, node)) continue;
+
+			for(Edge edge : graph.outgoingEdgesOf(node)) {
+				if(!edge.getRelated().getName().contentEquals(pivot)) res.add(edge);
+			}
+		}
+	}
+
+}
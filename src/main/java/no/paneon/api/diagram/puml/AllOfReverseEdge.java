@@ -28,12 +28,12 @@ public class AllOfReverseEdge extends AllOfEdge {
 	
 	public AllOfReverseEdge(Node from, Place place, Node to, boolean required, String id, String rule) {
 		this(from,place,to);
-		addComment(new Comment("'rule: " + rule));
+		addComment(() -> "'rule: " + rule);
 	}
 
 	public AllOfReverseEdge(Place direction, Edge edge, String rule) {
 		this(direction, edge);
-		addComment(new Comment("'rule: " + rule));
+		addComment(() -> "'rule: " + rule);
 	}
 
 	@Override
@@ -35,7 +35,7 @@ public class ClassEntity extends Entity {
 	List<EnumEntity> enumEntities;
 	List<EdgeEntity> edges;
 
-	static List<String> processedEnums = new LinkedList<>();
+	static final ThreadLocal<List<String>> processedEnums = ThreadLocal.withInitial(LinkedList::new);
 	
 	String name;
 	String stereotype = "";
@@ -166,7 +166,7 @@ public class ClassEntity extends Entity {
 	public boolean addEnum(EnumEntity c) {
 		if(c!=null) {
 			enumEntities.add(c);
-			processedEnums.add(c.type);
+			processedEnums.get().add(c.type);
 		}
 		return c!=null;
 	}
@@ -203,6 +203,21 @@ public class ClassEntity extends Entity {
             res.append( getCommentsBefore(this.seq) );
         }
 
+        if(FragmentCache.isActive() && isCacheable()) {
+        	res.append( FragmentCache.getFragment(getFragmentKey(), () -> getClassPuml(new StringBuilder()).toString()) );
+        	applyWriteState();
+        } else {
+        	getClassPuml(res);
+        }
+        
+        return res.toString();
+	}
+	
+	/*
+	 * The class without the comments - the same for the same content (see FragmentCache)
+	 */
+	private StringBuilder getClassPuml(StringBuilder res) {
+
         String vendorExtensionStereoType="";
         
         if(this.vendorExtension) {
@@ -335,8 +350,41 @@ public class ClassEntity extends Entity {
 	    
 	    res.append( "}" + NEWLINE );
 	    
-	    return res.toString();
+	    return res;
+	    
+	}
+
+	/*
+	 * Changes to the properties made as the class is written - also applied when the class is from the cache
+	 */
+	private void applyWriteState() {
+	    if(this.stereotype.contains(SUBRESOURCEREFERENCE) && !Config.getBoolean("showSubResourceProperties")) {
+	    	classProperties.clear();
+	    }
 	    
+	    if(!getDiscriminatorsToShow().isEmpty() && !Config.getBoolean("keepDefaultValueForAtType")) {
+	    	classProperties.stream()
+				.filter(ClassProperty::isAtTypeProperty)
+				.forEach(ClassProperty::resetDefaultValue);
+	    }
+	}
+	
+	/*
+	 * Values of deprecated properties are modified each time they are written - not cached
+	 */
+	private boolean isCacheable() {
+		return classProperties.stream().noneMatch(ClassProperty::isModifiedWhenWritten);
+	}
+	
+	private String getFragmentKey() {
+		StringBuilder properties = new StringBuilder();
+		classProperties.forEach(p -> p.appendKey(properties));
+		
+		return FragmentCache.getKey("class", name, isDynamic, description, inline, stereotype, vendorExtension,
+							inheritance, actualInheritance, customFlatten, 
+							discriminatorMapping, inheritedDiscriminatorMapping, allDiscriminatorMapping,
+							discriminatorExtension, inheritanceExtension,
+							properties);
 	}
 
 
@@ -462,7 +510,7 @@ public class ClassEntity extends Entity {
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	public boolean isEnumProcessed(String type) {
-		return processedEnums.contains(type);
+		return processedEnums.get().contains(type);
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
@@ -472,7 +520,7 @@ public class ClassEntity extends Entity {
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	public static void clear() {
-		processedEnums.clear();
+		processedEnums.get().clear();
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
@@ -102,6 +102,32 @@ public class ClassProperty extends Entity {
 	}
 	
 	
+	/*
+	 * Copy for another diagram (FragmentCache)
+	 */
+	public ClassProperty(ClassProperty property) {
+		super();
+		
+		this.name = property.name;
+		this.type = property.type;
+		this.cardinality = property.cardinality;
+		this.required = property.required;
+		this.isNullable = property.isNullable;
+		
+		this.values = new LinkedList<>(property.values);
+		this.enumStatus = property.enumStatus;
+		
+		this.visibility = property.visibility;
+		
+		this.defaultValue = property.defaultValue;
+		
+		this.vendorExtension = property.vendorExtension;
+		this.requiredExtension = property.requiredExtension;
+		this.typeExtension = property.typeExtension;
+		this.cardinalityExtension = property.cardinalityExtension;
+		this.deprecated = property.deprecated;
+	}
+	
 	@Override
 	@LogMethod(level=LogLevel.DEBUG)
 	public String getName() {
@@ -285,6 +311,15 @@ public class ClassProperty extends Entity {
 		return res;
 	}
 	
+	void appendKey(StringBuilder res) {
+		res.append(FragmentCache.getKey(name, type, cardinality, required, visibility, values, defaultValue, isNullable, enumStatus, 
+							vendorExtension, requiredExtension, typeExtension, cardinalityExtension, deprecated));
+	}
+	
+	boolean isModifiedWhenWritten() {
+		return this.deprecated && !this.values.isEmpty();
+	}
+	
 	private boolean hasPartialExtension() {
 		return this.requiredExtension || this.typeExtension || this.cardinalityExtension;
 	}
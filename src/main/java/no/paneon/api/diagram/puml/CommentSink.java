@@ -0,0 +1,86 @@
+package no.paneon.api.diagram.puml;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import no.paneon.api.utils.Config;
+
+/*
+ * Comments of an entity - only kept when the comments are part of the output (--include-puml-comments or includeCommentsInRules)
+ * Messages are suppliers, only called when active; at most commentBufferSize comments are kept (the oldest are dropped,
+ * and a line with the number dropped takes their place in the output)
+ */
+public class CommentSink {
+
+	static final String BUFFER_SIZE = "commentBufferSize";
+
+	private final int capacity;
+	private final ArrayDeque<Comment> buffer;
+
+	// dropped comments - sequence numbers of the first and the last
+	private int dropped;
+	private int firstDropped;
+	private int lastDropped;
+
+	private CommentSink() {
+		this.capacity = Math.max(1, Config.getInteger(BUFFER_SIZE, 1000));
+		this.buffer = new ArrayDeque<>(Math.min(capacity, 16));
+	}
+
+	public static boolean isActive() {
+		return Config.getIncludeDebug() || Config.getBoolean(Diagram.INCLUDE_COMMENTS);
+	}
+
+	/*
+	 * The sink to add to - created on first use, null when comments are not active
+	 */
+	static CommentSink of(CommentSink sink) {
+		if(sink!=null) return sink;
+		return isActive() ? new CommentSink() : null;
+	}
+
+	void add(Comment comment) {
+		if(buffer.size()>=capacity) drop(buffer.pollFirst());
+		buffer.addLast(comment);
+	}
+
+	private void drop(Comment comment) {
+		if(dropped==0) firstDropped = comment.seq;
+		lastDropped = comment.seq;
+		dropped++;
+	}
+
+	// resolved as added - the text reflects the state at that point
+	void add(Supplier<String> text) {
+		add(new Comment(text.get()));
+	}
+
+	void appendBetween(StringBuilder res, int from, int to) {
+		if(dropped>0 && from<=lastDropped && to>=firstDropped) {
+			res.append( getDropped() );
+			res.append( Core.NEWLINE );
+		}
+		
+		for(Comment c : buffer) {
+			if(c.seq>=from && c.seq<=to) {
+				res.append( c.getComment() );
+				res.append( Core.NEWLINE );
+			}
+		}
+	}
+
+	/*
+	 * The line in place of the dropped comments, null if none
+	 */
+	String getDropped() {
+		if(dropped==0) return null;
+		return "'... " + dropped + " comments dropped (" + BUFFER_SIZE + "=" + capacity + ")";
+	}
+
+	List<Comment> getComments() {
+		return new ArrayList<>(buffer);
+	}
+
+}
@@ -17,12 +17,14 @@ public class Core {
 
 	protected static final String NEWLINE = "\n";
 	
-	static int sequenceNumber = 0;
+	// sequence numbers are per thread - a diagram is always generated by a single thread
+	static final ThreadLocal<Integer> sequenceNumber = ThreadLocal.withInitial(() -> 0);
 			
 	int seq;
 		
 	Core() {
-		this.seq = (++sequenceNumber);
+		this.seq = sequenceNumber.get() + 1;
+		sequenceNumber.set(this.seq);
 	}
 	
 	@LogMethod(level=LogLevel.TRACE)
@@ -32,7 +34,7 @@ public class Core {
 			
 	@LogMethod(level=LogLevel.TRACE)
 	public static void reset() {
-		sequenceNumber = 0;
+		sequenceNumber.set(0);
 	}
 
 }
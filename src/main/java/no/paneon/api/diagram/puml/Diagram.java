@@ -1,7 +1,11 @@
 package no.paneon.api.diagram.puml;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
@@ -14,6 +18,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.toList;
@@ -24,7 +29,6 @@ import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 import org.json.JSONObject;
-import org.springframework.core.io.ClassPathResource;
 
 import no.paneon.api.diagram.app.Args;
 import no.paneon.api.graph.APIGraph;
@@ -46,8 +50,6 @@ public class Diagram extends Entity {
 	Map<String,String> variables;
 	String resource;
 	
-	List<Comment> comments;
-
 	Complexity analyser;
 	
 	List<Diagram> subDiagrams;
@@ -65,7 +67,6 @@ public class Diagram extends Entity {
 		this.file = file;
 		this.resource = resource;
 		
-		this.comments = new LinkedList<>();
 		this.subDiagrams = new LinkedList<>();
 		this.baseTypes = new HashSet<>();
 		this.simpleTypes = new HashSet<>();
@@ -118,14 +119,20 @@ public class Diagram extends Entity {
 
 	@LogMethod(level=LogLevel.DEBUG)
 	public Diagram addComment(Comment c) {
-		comments.add(c);
+		super.addComment(c);
+		return this;
+	}
+
+	@LogMethod(level=LogLevel.DEBUG)
+	public Diagram addComment(Supplier<String> text) {
+		super.addComment(text);
 		return this;
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
 	public static void usage() {
 	 	try {
-    		InputStream is = new ClassPathResource("layout.json").getInputStream();
+    		InputStream is = Diagram.class.getClassLoader().getResourceAsStream("layout.json");
     	    String config = IOUtils.toString(is, StandardCharsets.UTF_8.name());
     	    JSONObject json = new JSONObject(config); 
     	    
@@ -143,6 +150,17 @@ public class Diagram extends Entity {
 
 	@LogMethod(level=LogLevel.DEBUG)
 	public String toString() {
+		StringWriter res = new StringWriter();
+		try {
+			write(res);
+		} catch(IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return res.toString();
+	}
+	
+	@LogMethod(level=LogLevel.DEBUG)
+	public void write(Writer out) throws IOException {
 						
     	String footer="";
 	    if(args.source>0) {
@@ -160,19 +178,21 @@ public class Diagram extends Entity {
 	    }
 	    if(footer.length()>0) footer = footer + NEWLINE;
 	    		
-	    String puml = Config.getPuml();
+	    boolean includeLegend = Config.getBoolean("includeDiagramLegend");
 	    
-	    puml = Utils.replaceParagraph(puml, variables);
+	    LegendWriter legendWriter = includeLegend ? new LegendWriter(out, Config.get("legendSequence")) : null;
 	    
+	    Writer res = includeLegend ? legendWriter : out;
 	    
-	    StringBuilder res = new StringBuilder();
+	    Template.compile(Config.getPuml()).write(res, variables);
 	    
-	    res.append( puml );
-		res.append( footer ); 
+		res.write( footer ); 
 		
 		if(Config.processComplexity()) {
-			addComplexityNote(res);
-			addComplexityComments(res);
+			StringBuilder complexity = new StringBuilder();
+			addComplexityNote(complexity);
+			addComplexityComments(complexity);
+			res.append( complexity );
 		}
 		
 		getPumlForClasses(res);
@@ -181,27 +201,31 @@ public class Diagram extends Entity {
 
 		getPumlForEdges(res);
 		
-		res.append( NEWLINE );
+		res.write( NEWLINE );
 		
 		if(Config.getIncludeDebug()) {
-			comments.forEach(line -> {
-				res.append( line );
-				res.append( NEWLINE );
-	
-			});
+			String dropped = getDroppedComments();
+			if(dropped!=null) {
+				res.write( dropped );
+				res.write( NEWLINE );
+			}
+			
+			for(Comment line : getComments()) {
+				res.write( line.toString() );
+				res.write( NEWLINE );
+			}
 		}
 		
-		if(Config.getBoolean("includeDiagramLegend")) {
-			getLegend(res);			
+		if(includeLegend) {
+			getLegend(out, legendWriter);			
 		}
 
-		res.append( "@enduml" );
-				
-		return res.toString();
+		out.write( "@enduml" );
+		out.flush();
 	
 	}
 
-	private void getLegend(StringBuilder puml) {
+	private void getLegend(Writer puml, LegendWriter stereoTypes) throws IOException {
 		List<String> legendPrefix = Config.get("legendPrefix");
 		String legendBody = Config.getString("legendBody");
 		List<String> legendPostfix = Config.get("legendPostfix");
@@ -209,27 +233,20 @@ public class Diagram extends Entity {
 		List<String> legendSequence = Config.get("legendSequence");
 		JSONObject legendConfig = Config.getConfig("legendConfig");
 
-		String content = puml.toString();
-		
-		String[] lines = content.split("\n");
-		
 		StringBuilder legends = new StringBuilder();
 		
 		int legendCount=0;
 		
 		for(String stereoType : legendSequence) {
-			for(String line : lines) {
-				if(line.contains(stereoType) && line.contains("class ")) {
-					JSONObject config = Config.getConfig(legendConfig,  stereoType);
-					if(config!=null) {
-						String item = legendBody.replace("$COLOR", config.optString("color"));
-						item = item.replace("$TEXT", config.optString("text"));
-						
-						if(legends.length()>0) legends.append(NEWLINE);
-						legends.append(item);
-						legendCount++;
-						break;
-					}
+			if(stereoTypes.isSeen(stereoType)) {
+				JSONObject config = Config.getConfig(legendConfig,  stereoType);
+				if(config!=null) {
+					String item = legendBody.replace("$COLOR", config.optString("color"));
+					item = item.replace("$TEXT", config.optString("text"));
+					
+					if(legends.length()>0) legends.append(NEWLINE);
+					legends.append(item);
+					legendCount++;
 				}
 			}
 		}
@@ -276,16 +293,16 @@ public class Diagram extends Entity {
 			legends.append( legendPostfix.stream().collect(Collectors.joining(NEWLINE)) );
 			legends.append(NEWLINE); 
 		
-			puml.append(NEWLINE);
+			puml.write(NEWLINE);
 			puml.append(legends);
-			puml.append(NEWLINE);
+			puml.write(NEWLINE);
 		}
 		
 		
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
-	private void getPumlForEdges(StringBuilder res) {
+	private void getPumlForEdges(Writer res) throws IOException {
 		
 		List<EdgeEntity> edges = getClassEntitiesSortedBySequence().stream()
 										.map(ClassEntity::getEdges)
@@ -301,37 +318,37 @@ public class Diagram extends Entity {
 			Entity containedIn = edge.getContainingEntity();
 			if(!seenEntities.contains(containedIn.getName())) {
 				if(Config.getBoolean(INCLUDE_COMMENTS)) {
-					res.append( containedIn.getCommentsBefore(edge.getSeq()) );
+					res.write( containedIn.getCommentsBefore(edge.getSeq()) );
 				}
 				seenEntities.add( containedIn.getName());
 			}
 		
-			res.append( edge.toString() );
+			res.write( edge.toString() );
 			
-			LOG.debug("getPumlForEdges: edge={} comments={}",  edge, edge.getComments());
+			LOG.debug("getPumlForEdges: edge={} comments={}",  () -> edge, edge::getComments);
 			
-			res.append( NEWLINE );
+			res.write( NEWLINE );
 		}
 		
-		res.append( NEWLINE );
+		res.write( NEWLINE );
 
 	}
 
 	@LogMethod(level=LogLevel.DEBUG)
-	private void getPumlForClasses(StringBuilder res) {
+	private void getPumlForClasses(Writer res) throws IOException {
 		
-		List<String> processed = new LinkedList<>();
+		Set<String> processed = new HashSet<>();
 		
 		for(ClassEntity entity : getClassEntitiesSortedBySequence() ) {
 			                                  
-			res.append(entity.toString());
-			res.append(NEWLINE);
+			res.write(entity.toString());
+			res.write(NEWLINE);
 			
 			for(EnumEntity e : entity.enumEntities) {
 				if(!processed.contains(e.type)) {
 	
-		 			res.append( e.toString() );
-					res.append( NEWLINE );
+		 			res.write( e.toString() );
+					res.write( NEWLINE );
 					
 					processed.add(e.type);
 
@@ -575,10 +592,10 @@ public class Diagram extends Entity {
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
-	private void getPumlForDiscriminatorNodes(StringBuilder res) {		
+	private void getPumlForDiscriminatorNodes(Writer res) throws IOException {		
 		for(Entity entity : this.discriminators.values() ) {                                  
-			res.append(entity.toString());
-			res.append(NEWLINE);
+			res.write(entity.toString());
+			res.write(NEWLINE);
 		}		
 	}
 	
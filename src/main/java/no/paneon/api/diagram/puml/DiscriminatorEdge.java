@@ -29,12 +29,12 @@ public class DiscriminatorEdge extends HiddenEdge {
 	
 	public DiscriminatorEdge(Node from, Place place, Node to, boolean required, String id, String rule) {
 		this(from,place,to);
-		addComment(new Comment("'rule: " + rule));
+		addComment(() -> "'rule: " + rule);
 	}
 
 	public DiscriminatorEdge(Place direction, Edge edge, String rule) {
 		this(direction, edge);
-		addComment(new Comment("'rule: " + rule));
+		addComment(() -> "'rule: " + rule);
 	}
 
 	@Override
@@ -75,12 +75,12 @@ public class EdgeEntity extends Entity {
 	
 	public EdgeEntity(Node from, Place place, Node to, boolean required, String id, String rule) {
 		this(from,place,to,required,id);
-		addComment(new Comment("'rule: " + rule));
+		addComment(() -> "'rule: " + rule);
 	}
 
 	public EdgeEntity(Place direction, Edge edge, String rule) {
 		this(direction, edge);
-		addComment(new Comment("'rule: " + rule));
+		addComment(() -> "'rule: " + rule);
 		
 		this.isMarked = edge.isMarked;
 		
@@ -1,7 +1,8 @@
 package no.paneon.api.diagram.puml;
 
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import no.paneon.api.logging.LogMethod;
 import no.paneon.api.logging.AspectLogger.LogLevel;
@@ -10,15 +11,24 @@ import static java.util.stream.Collectors.toList;
 
 public class Entity extends Core {
 	
-	private List<Comment> comments;
+	// null unless comments are part of the output (CommentSink)
+	private CommentSink comments;
 	
 	public Entity() {
-		comments = new LinkedList<>();
+		comments = null;
 	}
 	
 	@LogMethod(level=LogLevel.DEBUG)
 	public Entity addComment(Comment c) {
-		comments.add(c);
+		comments = CommentSink.of(comments);
+		if(comments!=null) comments.add(c);
+		return this;
+	}
+	
+	@LogMethod(level=LogLevel.DEBUG)
+	public Entity addComment(Supplier<String> text) {
+		comments = CommentSink.of(comments);
+		if(comments!=null) comments.add(text);
 		return this;
 	}
 	
@@ -37,10 +47,7 @@ public class Entity extends Core {
 		StringBuilder res = new StringBuilder();
 		res.append("'sequence: " + this.seq);
 		res.append( NEWLINE );
-		for(Comment c : comments.stream().filter(c -> c.seq>=from && c.seq<=to).toList()) {
-			res.append( c.getComment() );
-			res.append( NEWLINE );
-		}
+		if(comments!=null) comments.appendBetween(res, from, to);
 
 		return res.toString();
 	}
@@ -50,9 +57,15 @@ public class Entity extends Core {
 		return getCommentInfo(Integer.MIN_VALUE, Integer.MAX_VALUE);
 	}
 	
+	// line in place of the comments dropped from the buffer, null if none
+	@LogMethod(level=LogLevel.DEBUG)
+	public String getDroppedComments() {
+		return comments!=null ? comments.getDropped() : null;
+	}
+	
 	@LogMethod(level=LogLevel.DEBUG)
 	public List<Comment> getComments() {
-		return this.comments;
+		return comments!=null ? comments.getComments() : Collections.emptyList();
 	}
 
 	static final String NONAME = "";
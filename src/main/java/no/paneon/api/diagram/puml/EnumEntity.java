@@ -58,6 +58,16 @@ public class EnumEntity extends Entity {
 			res.append( getCommentInfo() );
 		}
 
+		if(FragmentCache.isActive()) {
+			res.append( FragmentCache.getFragment(FragmentCache.getKey("enum", type, values, nullable), () -> getEnumPuml(new StringBuilder()).toString()) );
+		} else {
+			getEnumPuml(res);
+		}
+		
+		return res.toString();
+	}
+	
+	private StringBuilder getEnumPuml(StringBuilder res) {
 		res.append( "class " + this.type + " <<Enumeration>> {");
 		res.append( NEWLINE );
 	    
@@ -96,7 +106,7 @@ public class EnumEntity extends Entity {
 	    res.append("}");
 	    res.append( NEWLINE );
 	    	
-	    return res.toString();
+	    return res;
 	}
 		
 	@LogMethod(level=LogLevel.DEBUG)
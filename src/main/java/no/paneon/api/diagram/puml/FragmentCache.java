@@ -0,0 +1,124 @@
+package no.paneon.api.diagram.puml;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import no.paneon.api.utils.Config;
+
+/*
+ * Run-wide cache of the parts of the diagrams that do not depend on the diagram - shared types (e.g. Money, RelatedParty)
+ * are part of many of the diagrams of an API
+ *
+ * - class model: the properties of a node (by node and the referenced nodes that are not shown as properties);
+ *   each diagram gets its own copies as the properties are modified as the diagram is written
+ * - fragments: the PUML of classes (without the edges) and enums, by the content of the entity
+ *
+ * The formatting options and the API model do not change within a run - the cache is cleared as a run starts (clear).
+ * Not used when comments are part of the output (sequence numbers) - see CommentSink
+ */
+public class FragmentCache {
+
+    static final Logger LOG = LogManager.getLogger(FragmentCache.class);
+
+	static final String MAX_ENTRIES = "fragmentCacheSize";
+
+	static final char SEPARATOR = '\u0000';
+
+	public static class ClassModel {
+		final List<ClassProperty> properties;
+		final boolean incomplete;
+		boolean shared = false;
+
+		public ClassModel(List<ClassProperty> properties, boolean incomplete) {
+			this.properties = properties;
+			this.incomplete = incomplete;
+		}
+
+		/*
+		 * Copies of the properties for a diagram when cached
+		 */
+		public List<ClassProperty> getProperties() {
+			return shared ? properties.stream().map(ClassProperty::new).toList() : properties;
+		}
+
+		public boolean isIncomplete() {
+			return incomplete;
+		}
+	}
+
+	static final Map<String,ClassModel> models = new ConcurrentHashMap<>();
+	static final Map<String,String> fragments = new ConcurrentHashMap<>();
+
+	static final LongAdder hits = new LongAdder();
+	static final LongAdder misses = new LongAdder();
+
+	private FragmentCache() {
+	}
+
+	public static boolean isActive() {
+		return !CommentSink.isActive();
+	}
+
+	/*
+	 * The class model for the key - created by the supplier when not cached
+	 */
+	public static ClassModel getClassModel(String key, Supplier<ClassModel> model) {
+		if(!isActive()) return model.get();
+
+		ClassModel res = models.get(key);
+		if(res==null) {
+			misses.increment();
+			res = model.get();
+			res.shared = true;
+			if(hasRoom(models)) models.putIfAbsent(key, res);
+		} else {
+			hits.increment();
+		}
+		return res;
+	}
+
+	static String getFragment(String key, Supplier<String> fragment) {
+		String res = fragments.get(key);
+		if(res==null) {
+			misses.increment();
+			res = fragment.get();
+			if(hasRoom(fragments)) fragments.putIfAbsent(key, res);
+		} else {
+			hits.increment();
+		}
+		return res;
+	}
+
+	private static boolean hasRoom(Map<String,?> cache) {
+		return cache.size() < Config.getInteger(MAX_ENTRIES, 10000);
+	}
+
+	/*
+	 * Key of the parts (in order)
+	 */
+	public static String getKey(Object ... parts) {
+		StringBuilder res = new StringBuilder();
+		for(Object part : parts) {
+			res.append(part).append(SEPARATOR);
+		}
+		return res.toString();
+	}
+
+	public static void clear() {
+		models.clear();
+		fragments.clear();
+		hits.reset();
+		misses.reset();
+	}
+
+	public static String getSummary() {
+		return "hits=" + hits.sum() + " misses=" + misses.sum() + " classModels=" + models.size() + " fragments=" + fragments.size();
+	}
+
+}
@@ -73,7 +73,7 @@ public class HiddenEdge extends EdgeEntity {
 			res = res.replace("<-", "-").replace("->", "-");
 		}
 		
-		LOG.debug("HiddenEdge: comment={}", getCommentInfo());
+		LOG.debug("HiddenEdge: comment={}", this::getCommentInfo);
 		
 		if(Config.getIncludeDebug()) {
 			res = getCommentInfo() + res;
@@ -0,0 +1,70 @@
+package no.paneon.api.diagram.puml;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/*
+ * Pass-through writer recording the stereotypes used in class declarations (lines with 'class ')
+ * while the diagram is written - the legend is then added without rescanning the output
+ */
+class LegendWriter extends FilterWriter {
+
+	Collection<String> stereoTypes;
+	Set<String> seen;
+
+	StringBuilder line;
+
+	LegendWriter(Writer out, Collection<String> stereoTypes) {
+		super(out);
+		this.stereoTypes = stereoTypes;
+		this.seen = new HashSet<>();
+		this.line = new StringBuilder();
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		out.write(c);
+		collect(String.valueOf((char) c));
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		out.write(cbuf, off, len);
+		collect(new String(cbuf, off, len));
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		out.write(str, off, len);
+		collect(str.substring(off, off+len));
+	}
+
+	private void collect(String text) {
+		int pos = 0;
+		int idx;
+		while((idx = text.indexOf('\n', pos))>=0) {
+			line.append(text, pos, idx);
+			processLine();
+			pos = idx+1;
+		}
+		line.append(text, pos, text.length());
+	}
+
+	private void processLine() {
+		if(line.indexOf("class ")>=0) {
+			String s = line.toString();
+			stereoTypes.stream().filter(s::contains).forEach(seen::add);
+		}
+		line.setLength(0);
+	}
+
+	boolean isSeen(String stereoType) {
+		if(line.length()>0) processLine();
+		return seen.contains(stereoType);
+	}
+
+}
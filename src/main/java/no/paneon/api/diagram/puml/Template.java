@@ -0,0 +1,66 @@
+package no.paneon.api.diagram.puml;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Template with ${VARIABLE} placeholders - split into literal and variable parts once, 
+ * then written for each diagram without rescanning the text
+ *
+ * Compiled templates are kept for the run (cleared as a new run starts, e.g. for each request when serving)
+ */
+public class Template {
+
+	static final Map<String,Template> compiled = new ConcurrentHashMap<>();
+
+	static final String START = "${";
+	static final String END = "}";
+
+	List<String> parts;
+	List<String> variables;
+
+	private Template(String source) {
+		this.parts = new LinkedList<>();
+		this.variables = new LinkedList<>();
+
+		int pos = 0;
+		int start;
+		while((start = source.indexOf(START, pos))>=0) {
+			int end = source.indexOf(END, start + START.length());
+			if(end<0) break;
+
+			// innermost placeholder, as found by replacing the ${VARIABLE} text
+			start = source.lastIndexOf(START, end - START.length());
+
+			parts.add(source.substring(pos, start));
+			variables.add(source.substring(start + START.length(), end));
+
+			pos = end + END.length();
+		}
+		parts.add(source.substring(pos));
+	}
+
+	public static Template compile(String source) {
+		return compiled.computeIfAbsent(source, Template::new);
+	}
+
+	public static void clear() {
+		compiled.clear();
+	}
+
+	public void write(Writer out, Map<String,String> values) throws IOException {
+		for(int i=0; i<variables.size(); i++) {
+			out.write(parts.get(i));
+
+			String variable = variables.get(i);
+			String value = values.get(variable);
+			out.write(value!=null ? value : START + variable + END);
+		}
+		out.write(parts.get(parts.size()-1));
+	}
+
+}
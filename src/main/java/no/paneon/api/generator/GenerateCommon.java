@@ -47,7 +47,7 @@ public class GenerateCommon {
 			Config.setConfigSources(common.configs);
 		}
 		
-		loadAPI(common);
+		load(common);
 		
 		Out.silentMode = common.silentMode;
 		
@@ -134,12 +134,19 @@ public class GenerateCommon {
 	}
 
 
+	/*
+	 * Loading of the API as the command starts - commands may extend it (e.g. to measure the loading)
+	 */
+	protected void load(Common common) {
+		loadAPI(common);
+	}
+
 	public static void loadAPI(Common args) {
 		List<String> dirs = getDirectories(args.workingDirectory);
 		
 		if(args.openAPIFile==null) {
 			Out.println("... missing input file argument - try --help for usage information");
-			System.exit(0);
+			exit(args, "missing input file argument");
 		}
 		
 		try {
@@ -151,11 +158,18 @@ public class GenerateCommon {
 			Out.println("... unable to read API specification from " + args.openAPIFile);
 			Out.println("... app error: " + ex.getLocalizedMessage());	
 			// ex.printStackTrace();
-			System.exit(0);
+			exit(args, "unable to read API specification from " + args.openAPIFile);
 		}
 		
 	}
 
+	protected static void exit(Common args, String message) {
+		if(args.exitOnError) {
+			System.exit(0);
+		}
+		throw new IllegalStateException(message);
+	}
+
 	@LogMethod(level=LogLevel.DEBUG)
 	private static List<String> getDirectories(String baseDir) {
 		List<String> res = new LinkedList<>();
@@ -0,0 +1,157 @@
+package no.paneon.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import no.paneon.api.diagram.GenerateBatch;
+import no.paneon.api.diagram.app.App;
+import no.paneon.api.diagram.app.args.Batch;
+import no.paneon.api.model.APIModel;
+import no.paneon.api.utils.Out;
+import no.paneon.api.utils.Utils;
+
+public class BatchTest  {
+
+    static final Logger LOG = LogManager.getLogger(BatchTest.class);
+
+	public BatchTest() {
+	}
+
+    static final List<String> specs = Arrays.asList(
+    		"./src/test/resources/Quote_Management_5.0.0_oas.yaml",
+    		"./src/test/resources/Product_Inventory_Management_5.0.0_oas.yaml",
+    		"./src/test/resources/TMF666-Account_Management-v5.0.0.oas.yaml");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void runAfterTestMethod() {
+        APIModel.clean();
+    }
+
+    @Test
+    public void batchMatchesCommandLineRuns() throws Exception {
+
+    	File source = folder.newFolder("specs");
+    	for(String spec : specs) {
+    		Files.copy(Paths.get(spec), Paths.get(source.getPath(), new File(spec).getName()));
+    	}
+
+    	File cold = folder.newFolder("cold");
+
+    	long start = System.nanoTime();
+    	for(String spec : specs) {
+    		runCommandLine(Paths.get(source.getPath(), new File(spec).getName()).toString(), new File(cold, getBaseName(spec)));
+    	}
+    	long coldMillis = (System.nanoTime() - start) / 1_000_000;
+
+    	File batch = folder.newFolder("batch");
+
+    	Batch args = new Batch();
+    	args.files.add(source.getPath());
+    	args.targetDirectory = batch.getPath();
+
+    	start = System.nanoTime();
+    	new GenerateBatch(args).execute();
+    	long batchMillis = (System.nanoTime() - start) / 1_000_000;
+
+    	for(String spec : specs) {
+    		String directory = getBaseName(spec);
+
+    		List<String> expected = Utils.getFiles(".puml", new File(cold, directory).getPath());
+    		assertFalse(spec, expected.isEmpty());
+    		assertEquals(spec, expected.size(), Utils.getFiles(".puml", new File(batch, directory).getPath()).size());
+
+    		for(String puml : expected) {
+    			assertArrayEquals(directory + "/" + puml,
+    					Files.readAllBytes(Paths.get(cold.getPath(), directory, puml)),
+    					Files.readAllBytes(Paths.get(batch.getPath(), directory, puml)));
+    		}
+
+    		assertArrayEquals(directory + "/diagrams.yaml",
+    				Files.readAllBytes(Paths.get(cold.getPath(), directory, "diagrams.yaml")),
+    				Files.readAllBytes(Paths.get(batch.getPath(), directory, "diagrams.yaml")));
+    	}
+
+    	JSONArray summary = new JSONObject(Files.readString(Paths.get(batch.getPath(), args.summary))).getJSONArray("batch");
+    	assertEquals(specs.size(), summary.length());
+    	for(int i=0; i<summary.length(); i++) {
+    		assertEquals("ok", summary.getJSONObject(i).getString("status"));
+    	}
+
+    	Out.printAlways("... wall clock: {} command line runs {} ms, batch {} ms", specs.size(), coldMillis, batchMillis);
+
+    }
+
+    /*
+     * Specifications with the same file name in different directories - output under the relative path
+     */
+    @Test
+    public void sameNameInSubdirectories() throws Exception {
+
+    	File source = folder.newFolder("specs");
+    	for(String directory : Arrays.asList("a", "b")) {
+    		Files.createDirectories(Paths.get(source.getPath(), directory));
+    		Files.copy(Paths.get(specs.get(0)), Paths.get(source.getPath(), directory, "api.yaml"));
+    	}
+
+    	File batch = folder.newFolder("batch");
+
+    	Batch args = new Batch();
+    	args.files.add(source.getPath());
+    	args.targetDirectory = batch.getPath();
+
+    	new GenerateBatch(args).execute();
+
+    	for(String directory : Arrays.asList("a", "b")) {
+    		assertFalse(directory, Utils.getFiles(".puml", Paths.get(batch.getPath(), directory, "api").toString()).isEmpty());
+    	}
+
+    	JSONArray summary = new JSONObject(Files.readString(Paths.get(batch.getPath(), args.summary))).getJSONArray("batch");
+    	assertEquals(2, summary.length());
+    	for(int i=0; i<summary.length(); i++) {
+    		assertEquals("ok", summary.getJSONObject(i).getString("status"));
+    	}
+
+    	assertFalse(new File(batch, "api").exists());
+    }
+
+    private void runCommandLine(String spec, File target) throws IOException, InterruptedException {
+    	Files.createDirectories(target.toPath());
+
+    	String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+    	ProcessBuilder builder = new ProcessBuilder(Arrays.asList(java,
+    			"-cp", System.getProperty("java.class.path"),
+    			App.class.getName(), "diagrams",
+    			"--file", spec,
+    			"--target-directory", target.getPath()));
+
+    	builder.redirectErrorStream(true);
+    	builder.redirectOutput(new File(target.getParentFile(), target.getName() + ".log"));
+
+    	assertEquals(0, builder.start().waitFor());
+    }
+
+    private static String getBaseName(String spec) {
+    	String name = new File(spec).getName();
+    	return name.substring(0, name.lastIndexOf('.'));
+    }
+
+}
@@ -0,0 +1,102 @@
+package no.paneon.api;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import no.paneon.api.diagram.GenerateDiagram;
+import no.paneon.api.diagram.app.args.Diagram;
+import no.paneon.api.model.APIModel;
+import no.paneon.api.utils.Utils;
+
+/*
+ * Diagrams generated in parallel against the sequential generation - for each of the bundled specifications
+ */
+public class ParallelDiagramTest  {
+
+    static final Logger LOG = LogManager.getLogger(ParallelDiagramTest.class);
+
+	public ParallelDiagramTest() {
+	}
+
+    static final List<String> specs = Arrays.asList(
+    		"./src/test/resources/Quote_Management_5.0.0_oas.yaml",
+    		"./src/test/resources/Product_Inventory_Management_5.0.0_oas.yaml",
+    		"./src/test/resources/TMF637_Product_Inventory_5.0.0_oas.yaml",
+    		"./src/test/resources/TMF666-Account_Management-v5.0.0.oas.yaml",
+    		"./src/test/resources/TMF620-ProductCatalog-v4.1.0.swagger.json");
+
+    static final int ITERATIONS = 3;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void runOnceAfterClass() {
+        APIModel.clean();
+    }
+
+    @Test
+    public void parallelOutputIdenticalToSequential() throws IOException {
+    	for(String file : specs) {
+    		compare(file);
+    	}
+    }
+
+    private void compare(String file) throws IOException {
+
+    	File sequential = folder.newFolder();
+    	generate(file, sequential, 1);
+
+    	List<String> expected = Utils.getFiles(".puml", sequential.getPath());
+
+    	assertFalse(file, expected.isEmpty());
+
+    	for(int i=0; i<ITERATIONS; i++) {
+    		File parallel = folder.newFolder();
+        	generate(file, parallel, 4);
+
+        	List<String> actual = Utils.getFiles(".puml", parallel.getPath());
+
+        	assertEquals(file, expected.size(), actual.size());
+
+        	for(String puml : expected) {
+        		LOG.debug("parallelOutputIdenticalToSequential:: file={} iteration={} puml={}", file, i, puml);
+
+        		assertArrayEquals(file + " " + puml,
+        				Files.readAllBytes(Paths.get(sequential.getPath(), puml)),
+        				Files.readAllBytes(Paths.get(parallel.getPath(), puml)));
+        	}
+
+        	assertArrayEquals(file,
+        			Files.readAllBytes(Paths.get(sequential.getPath(), "diagrams.yaml")),
+        			Files.readAllBytes(Paths.get(parallel.getPath(), "diagrams.yaml")));
+    	}
+
+    }
+
+    private void generate(String file, File target, int parallelism) {
+    	APIModel.clean();
+
+		Diagram argsDiagram = new Diagram();
+
+		argsDiagram.openAPIFile = file;
+		argsDiagram.targetDirectory = target.getPath();
+		argsDiagram.parallelism = parallelism;
+
+    	new GenerateDiagram(argsDiagram).execute();
+    }
+
+}
@@ -0,0 +1,225 @@
+package no.paneon.api;
+
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import no.paneon.api.diagram.GenerateDiagram;
+import no.paneon.api.diagram.Profiler;
+import no.paneon.api.diagram.app.args.Diagram;
+import no.paneon.api.model.APIModel;
+import no.paneon.api.utils.Out;
+import no.paneon.api.utils.Utils;
+
+/*
+ * End-to-end regression suite - runs the diagrams pipeline for every bundled API specification
+ * (TMF and Test_API_1 in the repository root) and compares against src/test/resources/regression/baseline.json
+ *
+ *   mvn -P regression test                            - compare (fails on regressions or changed output)
+ *   mvn -P regression test -Dregression.update=true   - record a new baseline
+ *
+ *   -Dregression.threshold=0.5   - allowed relative increase of wall time and peak heap
+ *
+ * A specification without a recorded baseline fails the suite - record the baseline with -Dregression.update=true and
+ * commit src/test/resources/regression/baseline.json
+ */
+public class RegressionSuite  {
+
+    static final Logger LOG = LogManager.getLogger(RegressionSuite.class);
+
+	public RegressionSuite() {
+	}
+
+    static final String BASELINE = "./src/test/resources/regression/baseline.json";
+    static final String CANDIDATE = "./target/regression/baseline.json";
+
+    static final Pattern SPECIFICATIONS = Pattern.compile("^(TMF.*\\.(oas|swagger)|Test_API_1_.*)\\.(yaml|json)$");
+
+    // differences below these are not considered regressions (timer and GC noise)
+    static final long MIN_WALL_MILLIS = 500;
+    static final long MIN_HEAP_MB = 64;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void runOnceAfterClass() {
+        APIModel.clean();
+    }
+
+    @Test
+    public void bundledSpecifications() throws IOException {
+
+    	JSONObject baseline = new JSONObject(Files.readString(Paths.get(BASELINE)));
+    	JSONObject baselineSpecs = baseline.optJSONObject("specs", new JSONObject());
+
+    	double threshold = Double.parseDouble(System.getProperty("regression.threshold", String.valueOf(baseline.optDouble("threshold", 0.5))));
+
+    	List<String> failures = new LinkedList<>();
+    	JSONObject measured = new JSONObject();
+
+    	for(String spec : getSpecifications()) {
+    		JSONObject result;
+    		try {
+    			result = run(spec);
+    		} catch(Exception ex) {
+    			failures.add(spec + ": failed - " + ex.getLocalizedMessage());
+    			continue;
+    		}
+
+    		measured.put(spec, result);
+
+    		Out.printAlways("... {}: {} diagrams, {} classes, {} edges, {} ms, peak heap {} MB", spec,
+    				result.getInt("diagrams"), result.getInt("classes"), result.getInt("edges"),
+    				result.getLong("wallMillis"), result.getLong("peakHeapMB"));
+
+    		if(!baselineSpecs.has(spec)) {
+    			failures.add(spec + ": no baseline - record with -Dregression.update=true");
+    			continue;
+    		}
+
+    		compare(spec, baselineSpecs.getJSONObject(spec), result, threshold, failures);
+    	}
+
+    	JSONObject candidate = new JSONObject();
+    	candidate.put("threshold", baseline.optDouble("threshold", 0.5));
+    	candidate.put("specs", measured);
+
+    	Path candidateFile = Paths.get(CANDIDATE);
+    	Files.createDirectories(candidateFile.getParent());
+    	Files.writeString(candidateFile, candidate.toString(2));
+
+    	if(Boolean.getBoolean("regression.update")) {
+    		Files.writeString(Paths.get(BASELINE), candidate.toString(2));
+    		Out.printAlways("... baseline updated: {}", BASELINE);
+    		return;
+    	}
+
+    	assertTrue("regressions (measured values in " + CANDIDATE + "):\n" + String.join("\n", failures), failures.isEmpty());
+
+    }
+
+    private void compare(String spec, JSONObject expected, JSONObject actual, double threshold, List<String> failures) {
+
+    	for(String count : Arrays.asList("diagrams", "classes", "edges")) {
+    		if(expected.getInt(count)!=actual.getInt(count)) {
+    			failures.add(spec + ": " + count + " " + expected.getInt(count) + " -> " + actual.getInt(count));
+    		}
+    	}
+
+    	JSONObject expectedPuml = expected.getJSONObject("puml");
+    	JSONObject actualPuml = actual.getJSONObject("puml");
+
+    	for(String puml : expectedPuml.keySet()) {
+    		if(!actualPuml.has(puml)) {
+    			failures.add(spec + ": " + puml + " not generated");
+    		} else if(!expectedPuml.getString(puml).equals(actualPuml.getString(puml))) {
+    			failures.add(spec + ": " + puml + " changed");
+    		}
+    	}
+    	for(String puml : actualPuml.keySet()) {
+    		if(!expectedPuml.has(puml)) failures.add(spec + ": " + puml + " not in baseline");
+    	}
+
+    	long wall = expected.getLong("wallMillis");
+    	if(actual.getLong("wallMillis") > wall*(1+threshold) + MIN_WALL_MILLIS) {
+    		failures.add(spec + ": wall time " + wall + " ms -> " + actual.getLong("wallMillis") + " ms");
+    	}
+
+    	long heap = expected.getLong("peakHeapMB");
+    	if(actual.getLong("peakHeapMB") > heap*(1+threshold) + MIN_HEAP_MB) {
+    		failures.add(spec + ": peak heap " + heap + " MB -> " + actual.getLong("peakHeapMB") + " MB");
+    	}
+    }
+
+    private JSONObject run(String spec) throws IOException {
+    	File target = folder.newFolder(spec.replaceAll("\\W", "_"));
+    	File profile = new File(target.getParentFile(), target.getName() + ".profile.json");
+
+		Diagram argsDiagram = new Diagram();
+		argsDiagram.openAPIFile = "./" + spec;
+		argsDiagram.targetDirectory = target.getPath();
+		argsDiagram.profile = profile.getPath();
+		argsDiagram.exitOnError = false;
+
+		APIModel.clean();
+		Profiler.clear();
+
+		List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+													.filter(pool -> pool.getType()==MemoryType.HEAP)
+													.toList();
+		System.gc();
+		heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+		long start = System.nanoTime();
+
+		new GenerateDiagram(argsDiagram).execute();
+
+		long wallMillis = (System.nanoTime() - start) / 1_000_000;
+		long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+
+		JSONArray diagrams = new JSONObject(Files.readString(profile.toPath())).getJSONArray(Profiler.DIAGRAMS);
+
+		int classes = 0;
+		int edges = 0;
+		for(int i=0; i<diagrams.length(); i++) {
+			JSONObject layout = diagrams.getJSONObject(i).optJSONObject(Profiler.STAGES, new JSONObject()).optJSONObject("layout", new JSONObject());
+			classes += layout.optInt("classes");
+			edges += layout.optInt("edges");
+		}
+
+		JSONObject puml = new JSONObject();
+		for(String file : Utils.getFiles(".puml", target.getPath())) {
+			String content = Files.readString(Paths.get(target.getPath(), file), StandardCharsets.UTF_8);
+			puml.put(file, sha256(content));
+		}
+
+		JSONObject res = new JSONObject();
+		res.put("diagrams", puml.length());
+		res.put("classes", classes);
+		res.put("edges", edges);
+		res.put("wallMillis", wallMillis);
+		res.put("peakHeapMB", peakHeap / (1024*1024));
+		res.put("puml", puml);
+
+		LOG.debug("run: spec={} result={}", spec, res);
+
+		return res;
+    }
+
+    private static List<String> getSpecifications() {
+    	File[] files = new File(".").listFiles(f -> f.isFile() && SPECIFICATIONS.matcher(f.getName()).matches());
+    	return files==null ? List.of() : Arrays.stream(files).map(File::getName).sorted().toList();
+    }
+
+    private static String sha256(String content) {
+    	try {
+    		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+    	} catch(NoSuchAlgorithmException ex) {
+    		throw new IllegalStateException(ex);
+    	}
+    }
+
+}
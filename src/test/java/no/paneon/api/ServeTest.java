@@ -0,0 +1,230 @@
+package no.paneon.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.json.JSONObject;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import no.paneon.api.diagram.GenerateServe;
+import no.paneon.api.diagram.app.App;
+import no.paneon.api.diagram.app.args.Serve;
+import no.paneon.api.model.APIModel;
+import no.paneon.api.utils.Out;
+import no.paneon.api.utils.Utils;
+
+public class ServeTest  {
+
+    static final Logger LOG = LogManager.getLogger(ServeTest.class);
+
+	public ServeTest() {
+	}
+
+    static String file = "./src/test/resources/Quote_Management_5.0.0_oas.yaml";
+
+    static final int WARM_REQUESTS = 5;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    GenerateServe serve;
+
+    @Before
+    public void startServer() {
+    	Serve args = new Serve();
+    	args.port = 0;
+
+    	serve = new GenerateServe(args);
+    	serve.start();
+    }
+
+    @After
+    public void stopServer() {
+    	serve.stop();
+        APIModel.clean();
+    }
+
+    @Test
+    public void healthOnLocalhost() throws IOException {
+    	HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + serve.getPort() + "/health").openConnection();
+    	assertEquals(200, connection.getResponseCode());
+    }
+
+    @Test
+    public void rejectsRequestWithoutSpecification() throws IOException {
+    	assertEquals(400, post(new JSONObject()).getInt("status"));
+    }
+
+    @Test
+    public void warmDaemonMatchesColdCommandLine() throws Exception {
+
+    	File cold = folder.newFolder("cold");
+
+    	long start = System.nanoTime();
+    	runCommandLine(cold);
+    	long coldMillis = (System.nanoTime() - start) / 1_000_000;
+
+    	List<String> expected = Utils.getFiles(".puml", cold.getPath());
+    	assertFalse(expected.isEmpty());
+
+    	long warmMillis = Long.MAX_VALUE;
+    	JSONObject response = null;
+
+    	for(int i=0; i<WARM_REQUESTS; i++) {
+    		start = System.nanoTime();
+    		response = post(new JSONObject().put("file", new File(file).getAbsolutePath()));
+    		warmMillis = Math.min(warmMillis, (System.nanoTime() - start) / 1_000_000);
+
+    		assertEquals(200, response.getInt("status"));
+    	}
+
+    	JSONObject diagrams = response.getJSONObject("body").getJSONObject("diagrams");
+
+    	assertEquals(expected.size(), diagrams.length());
+
+    	for(String resource : diagrams.keySet()) {
+    		String puml = "Resource_" + resource + ".puml";
+    		assertTrue(puml, expected.contains(puml));
+    		assertEquals(puml, Files.readString(Paths.get(cold.getPath(), puml)), diagrams.getString(resource));
+    	}
+
+    	Out.printAlways("... latency: cold command line {} ms, warm daemon {} ms (best of {})", coldMillis, warmMillis, WARM_REQUESTS);
+
+    }
+
+    @Test
+    public void requestsWithDifferentOptionsMatchColdCommandLine() throws Exception {
+
+    	List<List<String>> requests = Arrays.asList(
+    			Arrays.asList("--include-description", "--show-all-cardinality", "--highlight-required"),
+    			Arrays.asList(),
+    			Arrays.asList("--remove-legend"));
+
+    	for(int i=0; i<requests.size(); i++) {
+    		List<String> options = requests.get(i);
+
+    		File cold = folder.newFolder("cold_" + i);
+    		runCommandLine(cold, options.toArray(new String[0]));
+
+    		JSONObject response = post(new JSONObject().put("file", new File(file).getAbsolutePath()).put("args", options));
+    		assertEquals(200, response.getInt("status"));
+
+    		JSONObject diagrams = response.getJSONObject("body").getJSONObject("diagrams");
+    		assertEquals(Utils.getFiles(".puml", cold.getPath()).size(), diagrams.length());
+
+    		for(String resource : diagrams.keySet()) {
+    			String puml = "Resource_" + resource + ".puml";
+    			assertEquals(options + " " + puml, Files.readString(Paths.get(cold.getPath(), puml)), diagrams.getString(resource));
+    		}
+    	}
+    }
+
+    @Test
+    public void rejectsFilesOutsideRoot() throws Exception {
+    	File root = folder.newFolder("root");
+    	Files.copy(Paths.get(file), Paths.get(root.getPath(), "api.yaml"));
+
+    	serve.stop();
+
+    	Serve args = new Serve();
+    	args.port = 0;
+    	args.root = root.getPath();
+
+    	serve = new GenerateServe(args);
+    	serve.start();
+
+    	assertEquals(200, post(new JSONObject().put("file", "api.yaml")).getInt("status"));
+    	assertEquals(403, post(new JSONObject().put("file", new File(file).getAbsolutePath())).getInt("status"));
+    	assertEquals(403, post(new JSONObject().put("file", "../root/../" + new File(file).getName())).getInt("status"));
+    	assertEquals(403, post(new JSONObject().put("file", "api.yaml").put("targetDirectory", folder.getRoot().getPath())).getInt("status"));
+    	assertEquals(403, post(new JSONObject().put("file", "api.yaml").put("args", Arrays.asList("--profile", "/tmp/profile.json"))).getInt("status"));
+    	assertEquals(403, post(new JSONObject().put("file", "api.yaml").put("args", Arrays.asList("--orphan-enum-config", "/tmp/enums.json"))).getInt("status"));
+
+    	Files.createSymbolicLink(Paths.get(root.getPath(), "link.yaml"), Paths.get(file).toAbsolutePath());
+    	assertEquals(403, post(new JSONObject().put("file", "link.yaml")).getInt("status"));
+    }
+
+    @Test
+    public void survivesFailingRequests() throws Exception {
+    	int status = post(new JSONObject().put("file", new File(folder.getRoot(), "missing.yaml").getAbsolutePath())).getInt("status");
+    	assertTrue("status " + status, status>=400);
+
+    	status = post(new JSONObject().put("content", "openapi: 3.0.0\n")).getInt("status");
+    	assertTrue("status " + status, status>=400);
+
+    	HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + serve.getPort() + "/health").openConnection();
+    	assertEquals(200, connection.getResponseCode());
+    }
+
+    @Test
+    public void rejectsFilesWithoutRootOnOtherAddresses() throws Exception {
+    	serve.stop();
+
+    	Serve args = new Serve();
+    	args.host = "0.0.0.0";
+    	args.port = 0;
+
+    	serve = new GenerateServe(args);
+    	serve.start();
+
+    	assertEquals(403, post(new JSONObject().put("file", new File(file).getAbsolutePath())).getInt("status"));
+    	assertEquals(200, post(new JSONObject().put("content", Files.readString(Paths.get(file)))).getInt("status"));
+    }
+
+    private void runCommandLine(File target, String ... options) throws IOException, InterruptedException {
+    	String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+    	List<String> command = new ArrayList<>(Arrays.asList(java,
+    			"-cp", System.getProperty("java.class.path"),
+    			App.class.getName(), "diagrams",
+    			"--file", file,
+    			"--target-directory", target.getPath()));
+    	command.addAll(Arrays.asList(options));
+
+    	ProcessBuilder builder = new ProcessBuilder(command);
+
+    	builder.redirectErrorStream(true);
+    	builder.redirectOutput(new File(target.getParentFile(), target.getName() + ".log"));
+
+    	assertEquals(0, builder.start().waitFor());
+    }
+
+    private JSONObject post(JSONObject request) throws IOException {
+    	HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + serve.getPort() + "/diagrams").openConnection();
+    	connection.setRequestMethod("POST");
+    	connection.setDoOutput(true);
+
+    	try(OutputStream out = connection.getOutputStream()) {
+    		out.write(request.toString().getBytes(StandardCharsets.UTF_8));
+    	}
+
+    	int status = connection.getResponseCode();
+    	InputStream in = status<400 ? connection.getInputStream() : connection.getErrorStream();
+
+    	JSONObject res = new JSONObject();
+    	res.put("status", status);
+    	res.put("body", new JSONObject(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+
+    	LOG.debug("post: status={}", status);
+
+    	return res;
+    }
+
+}
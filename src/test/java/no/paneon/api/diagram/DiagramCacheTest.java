@@ -0,0 +1,232 @@
+package no.paneon.api.diagram;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import no.paneon.api.diagram.app.args.Diagram;
+import no.paneon.api.model.APIModel;
+import no.paneon.api.utils.Utils;
+
+/*
+ * Cached diagrams used for an unchanged specification, and not for a changed or renamed one
+ */
+public class DiagramCacheTest  {
+
+    static final Logger LOG = LogManager.getLogger(DiagramCacheTest.class);
+
+	public DiagramCacheTest() {
+	}
+
+    static String file = "./src/test/resources/Quote_Management_5.0.0_oas.yaml";
+
+    static final String CACHED = "' from the cache\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void runOnceAfterClass() {
+        APIModel.clean();
+    }
+
+    @Test
+    public void cacheHit() throws IOException {
+    	File cache = folder.newFolder("cache");
+
+    	File first = folder.newFolder("first");
+    	generate(file, first, cache);
+
+    	List<String> entries = Utils.getFiles(".puml", cache.getPath());
+    	assertEquals(Utils.getFiles(".puml", first.getPath()).size(), entries.size());
+
+    	markEntries(cache);
+
+    	File second = folder.newFolder("second");
+    	generate(file, second, cache);
+
+    	for(String puml : Utils.getFiles(".puml", second.getPath())) {
+    		String content = Files.readString(Paths.get(second.getPath(), puml));
+    		assertTrue(puml, content.startsWith(CACHED));
+    		assertEquals(puml, CACHED + Files.readString(Paths.get(first.getPath(), puml)), content);
+    	}
+
+    	assertEquals(entries.size(), Utils.getFiles(".puml", cache.getPath()).size());
+    }
+
+    @Test
+    public void cacheMissAfterGraphChange() throws IOException {
+    	assertCacheMisses(
+    			"      description: 'A period of time, either as a deadline (endDateTime only) a startDateTime only, or both'\n      type: object\n      properties:\n",
+    			"      description: 'A period of time, either as a deadline (endDateTime only) a startDateTime only, or both'\n      type: object\n      properties:\n        duration:\n          type: string\n");
+    }
+
+    @Test
+    public void cacheMissAfterAttributeChange() throws IOException {
+    	assertCacheMisses(
+    			"          description: 'End of the time period, using IETC-RFC-3339 format'\n          type: string\n",
+    			"          description: 'End of the time period, using IETC-RFC-3339 format'\n          type: string\n          default: '1985-04-12T23:20:50.52Z'\n          nullable: true\n");
+    }
+
+    @Test
+    public void optionsIncludeContentOfFiles() throws IOException {
+    	File rules = folder.newFile("rules.yaml");
+    	Files.writeString(rules.toPath(), "rules: []\n");
+
+    	Diagram args = new Diagram();
+    	args.rulesFile = rules.getPath();
+
+    	String options = DiagramCache.getOptions(args);
+
+    	Files.writeString(rules.toPath(), "rules: [ changed ]\n");
+
+    	assertNotEquals(options, DiagramCache.getOptions(args));
+    }
+
+    /*
+     * Diagrams including the changed part are generated again (and match the diagrams generated without the cache)
+     */
+    private void assertCacheMisses(String from, String to) throws IOException {
+    	File cache = folder.newFolder("cache");
+    	generate(file, folder.newFolder("first"), cache);
+
+    	int entries = Utils.getFiles(".puml", cache.getPath()).size();
+    	markEntries(cache);
+
+    	String modified = copy(file, new File(file).getName(), from, to);
+
+    	File second = folder.newFolder("second");
+    	generate(modified, second, cache);
+
+    	File expected = folder.newFolder("expected");
+    	generate(modified, expected, null);
+
+    	int misses = 0;
+    	for(String puml : Utils.getFiles(".puml", expected.getPath())) {
+    		String content = Files.readString(Paths.get(second.getPath(), puml));
+    		if(!content.startsWith(CACHED)) {
+    			assertEquals(puml, Files.readString(Paths.get(expected.getPath(), puml)), content);
+    			misses++;
+    		}
+    	}
+
+    	assertTrue(misses>0);
+    	assertEquals(entries + misses, Utils.getFiles(".puml", cache.getPath()).size());
+    }
+
+    @Test
+    public void cacheMissForRenamedSpecification() throws IOException {
+    	File cache = folder.newFolder("cache");
+    	generate(file, folder.newFolder("first"), cache);
+
+    	markEntries(cache);
+
+    	String renamed = copy(file, "Renamed_Quote_Management.yaml", "", "");
+
+    	File second = folder.newFolder("second");
+    	generate(renamed, second, cache);
+
+    	List<String> pumls = Utils.getFiles(".puml", second.getPath());
+    	assertFalse(pumls.isEmpty());
+
+    	for(String puml : pumls) {
+    		String content = Files.readString(Paths.get(second.getPath(), puml));
+    		assertFalse(puml, content.startsWith(CACHED));
+    		assertTrue(puml, content.contains("Renamed_Quote_Management.yaml"));
+    	}
+    }
+
+    @Test
+    public void writeIfChangedKeepsModificationTime() throws IOException {
+    	File output = folder.newFile("output.puml");
+    	byte[] content = "@startuml\n@enduml\n".getBytes(StandardCharsets.UTF_8);
+
+    	assertTrue(DiagramCache.writeIfChanged(output, content));
+
+    	long modified = System.currentTimeMillis() - 60_000;
+    	assertTrue(output.setLastModified(modified));
+    	modified = output.lastModified();
+
+    	assertFalse(DiagramCache.writeIfChanged(output, content));
+    	assertEquals(modified, output.lastModified());
+
+    	byte[] changed = "@startuml\nhide circle\n@enduml\n".getBytes(StandardCharsets.UTF_8);
+
+    	assertTrue(DiagramCache.writeIfChanged(output, changed));
+    	assertNotEquals(modified, output.lastModified());
+    	assertArrayEquals(changed, Files.readAllBytes(output.toPath()));
+    }
+
+    @Test
+    public void writeIfChangedMovesTemporaryFile() throws IOException {
+    	File output = folder.newFile("output.svg");
+    	byte[] content = "<svg>\u00e6\u00f8\u00e5</svg>".getBytes(StandardCharsets.UTF_8);
+    	Files.write(output.toPath(), content);
+
+    	long modified = System.currentTimeMillis() - 60_000;
+    	assertTrue(output.setLastModified(modified));
+    	modified = output.lastModified();
+
+    	File tmp = DiagramCache.getTemporary(output);
+    	Files.write(tmp.toPath(), content);
+
+    	assertFalse(DiagramCache.writeIfChanged(output, tmp));
+    	assertFalse(tmp.exists());
+    	assertEquals(modified, output.lastModified());
+
+    	byte[] changed = "<svg/>".getBytes(StandardCharsets.UTF_8);
+    	Files.write(tmp.toPath(), changed);
+
+    	assertTrue(DiagramCache.writeIfChanged(output, tmp));
+    	assertFalse(tmp.exists());
+    	assertArrayEquals(changed, Files.readAllBytes(output.toPath()));
+    }
+
+    /*
+     * Prefix the cached diagrams with a marker - output from the cache is recognised by the marker
+     */
+    private void markEntries(File cache) throws IOException {
+    	for(String entry : Utils.getFiles(".puml", cache.getPath())) {
+    		File cached = new File(cache, entry);
+    		Files.writeString(cached.toPath(), CACHED + Files.readString(cached.toPath()));
+    	}
+    }
+
+    private String copy(String source, String name, String from, String to) throws IOException {
+    	String content = Files.readString(Paths.get(source));
+
+    	assertTrue(from, content.contains(from));
+
+    	File copy = new File(folder.newFolder(), name);
+    	Files.writeString(copy.toPath(), content.replace(from, to));
+
+    	return copy.getPath();
+    }
+
+    private void generate(String source, File target, File cache) {
+    	APIModel.clean();
+
+		Diagram argsDiagram = new Diagram();
+
+		argsDiagram.openAPIFile = source;
+		argsDiagram.targetDirectory = target.getPath();
+		argsDiagram.cacheDirectory = cache!=null ? cache.getPath() : null;
+
+    	new GenerateDiagram(argsDiagram).execute();
+    }
+
+}
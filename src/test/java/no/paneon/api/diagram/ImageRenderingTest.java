@@ -0,0 +1,119 @@
+package no.paneon.api.diagram;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import net.sourceforge.plantuml.FileFormat;
+import net.sourceforge.plantuml.FileFormatOption;
+import net.sourceforge.plantuml.SourceStringReader;
+import no.paneon.api.diagram.app.args.Diagram;
+import no.paneon.api.model.APIModel;
+import no.paneon.api.utils.Utils;
+
+/*
+ * Images rendered by the concurrent rendering (with and without the cache) against the sequential rendering
+ * it replaced - the same PlantUML calls, file by file
+ */
+public class ImageRenderingTest  {
+
+    static final Logger LOG = LogManager.getLogger(ImageRenderingTest.class);
+
+	public ImageRenderingTest() {
+	}
+
+    static String file = "./src/test/resources/Quote_Management_5.0.0_oas.yaml";
+
+    static final int IMAGES = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void runOnceAfterClass() {
+        APIModel.clean();
+    }
+
+    @Test
+    public void svgIdenticalToSequential() throws IOException {
+    	compare("svg");
+    }
+
+    @Test
+    public void pngIdenticalToSequential() throws IOException {
+    	compare("png");
+    }
+
+    private void compare(String format) throws IOException {
+    	File target = folder.newFolder("diagrams");
+    	generate(target);
+
+    	List<String> pumls = Utils.getFiles(".puml", target.getPath());
+    	assertFalse(pumls.isEmpty());
+    	pumls = pumls.subList(0, Math.min(IMAGES, pumls.size()));
+
+    	for(String puml : pumls) {
+    		String source = Utils.readFile(target.getPath() + "/" + puml);
+    		String image = puml.replace(".puml", "." + format);
+
+    		File expected = new File(folder.getRoot(), image);
+    		renderSequential(source, format, expected.getPath());
+
+    		GenerateDiagram.generateImage(target.getPath(), List.of(puml), format, 2, 0);
+    		assertArrayEquals(image, Files.readAllBytes(expected.toPath()), Files.readAllBytes(Paths.get(target.getPath(), image)));
+
+    		File cacheDirectory = folder.newFolder("cache_" + image);
+    		DiagramCache cache = new DiagramCache(cacheDirectory.getPath(), 0, 0);
+    		for(int pass=0; pass<2; pass++) {
+    			Files.delete(Paths.get(target.getPath(), image));
+    			GenerateDiagram.generateImage(target.getPath(), List.of(puml), format, 2, 0, cache);
+    			assertArrayEquals(image + " pass " + pass, Files.readAllBytes(expected.toPath()), Files.readAllBytes(Paths.get(target.getPath(), image)));
+    		}
+    	}
+    }
+
+    /*
+     * The rendering of a file before the concurrent rendering - svg as generated by PlantUML (UTF-8)
+     */
+    private void renderSequential(String source, String format, String targetFile) throws IOException {
+    	SourceStringReader reader = new SourceStringReader(source);
+
+    	switch(format) {
+    	case "png":
+    		try(OutputStream output = new FileOutputStream(targetFile)) {
+    			reader.outputImage(output);
+    		}
+    		break;
+
+    	default:
+    		ByteArrayOutputStream os = new ByteArrayOutputStream();
+    		reader.generateImage(os, new FileFormatOption(FileFormat.SVG));
+    		Files.write(Paths.get(targetFile), os.toByteArray());
+    	}
+    }
+
+    private void generate(File target) {
+    	APIModel.clean();
+
+		Diagram argsDiagram = new Diagram();
+
+		argsDiagram.openAPIFile = file;
+		argsDiagram.targetDirectory = target.getPath();
+
+    	new GenerateDiagram(argsDiagram).execute();
+    }
+
+}
@@ -0,0 +1,214 @@
+package no.paneon.api.diagram.layout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import no.paneon.api.diagram.GenerateDiagram;
+import no.paneon.api.diagram.app.args.Diagram;
+import no.paneon.api.graph.CoreAPIGraph;
+import no.paneon.api.model.APIModel;
+import no.paneon.api.utils.Utils;
+
+/*
+ * Changes found against a baseline for modified copies of a test specification, and the diagrams regenerated
+ * for a --baseline run
+ */
+public class ImpactAnalysisTest  {
+
+    static final Logger LOG = LogManager.getLogger(ImpactAnalysisTest.class);
+
+	public ImpactAnalysisTest() {
+	}
+
+    static String file = "./src/test/resources/Quote_Management_5.0.0_oas.yaml";
+
+    static String accounts = "./src/test/resources/TMF666-Account_Management-v5.0.0.oas.yaml";
+
+    static final String STALE = "stale\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void runOnceAfterClass() {
+        APIModel.clean();
+    }
+
+    @Test
+    public void noChanges() throws IOException {
+    	assertTrue(getImpactedNodes(file, modify(file, "", "")).isEmpty());
+    }
+
+    @Test
+    public void descriptionChange() throws IOException {
+    	Set<String> impacted = getImpactedNodes(file, modify(file,
+    			"description: A base / value business entity used to represent money",
+    			"description: An amount of money"));
+
+    	assertTrue(impacted.toString(), impacted.contains("Money"));
+    	assertFalse(impacted.toString(), impacted.contains("Quote"));
+    }
+
+    @Test
+    public void propertyChange() throws IOException {
+    	Set<String> impacted = getImpactedNodes(file, modify(file,
+    			"      description: 'A period of time, either as a deadline (endDateTime only) a startDateTime only, or both'\n      type: object\n      properties:\n",
+    			"      description: 'A period of time, either as a deadline (endDateTime only) a startDateTime only, or both'\n      type: object\n      properties:\n        duration:\n          type: string\n"));
+
+    	assertTrue(impacted.toString(), impacted.contains("TimePeriod"));
+    	assertFalse(impacted.toString(), impacted.contains("Money"));
+    }
+
+    @Test
+    public void enumChange() throws IOException {
+    	Set<String> impacted = getImpactedNodes(file, modify(file,
+    			"        - accepted\n        - declined\n    GcEntityRef:",
+    			"        - accepted\n    GcEntityRef:"));
+
+    	assertTrue(impacted.toString(), impacted.contains("GcQuoteStateType"));
+    	assertFalse(impacted.toString(), impacted.contains("Money"));
+    }
+
+    @Test
+    public void edgeChange() throws IOException {
+    	Set<String> impacted = getImpactedNodes(file, modify(file,
+    			"            $ref: '#/components/schemas/RelatedParty'\n      allOf:\n        - $ref: '#/components/schemas/GcQuoteItem'",
+    			"            $ref: '#/components/schemas/AttachmentRefOrValue'\n      allOf:\n        - $ref: '#/components/schemas/GcQuoteItem'"));
+
+    	assertTrue(impacted.toString(), impacted.contains("QuoteItem"));
+    	assertFalse(impacted.toString(), impacted.contains("RelatedParty"));
+    }
+
+    @Test
+    public void inheritedChange() throws IOException {
+    	Set<String> impacted = getImpactedNodes(file, modify(file,
+    			"description: Generic Contect schema for Quote.",
+    			"description: Generic context schema for Quote."));
+
+    	assertTrue(impacted.toString(), impacted.contains("GcQuote"));
+    	assertTrue(impacted.toString(), impacted.contains("Quote"));
+    }
+
+    @Test
+    public void defaultChange() throws IOException {
+    	Set<String> impacted = getImpactedNodes(file, modify(file,
+    			"          description: 'Start of the time period, using IETC-RFC-3339 format'\n          type: string\n",
+    			"          description: 'Start of the time period, using IETC-RFC-3339 format'\n          type: string\n          default: '1985-04-12T23:20:50.52Z'\n"));
+
+    	assertTrue(impacted.toString(), impacted.contains("TimePeriod"));
+    	assertFalse(impacted.toString(), impacted.contains("Money"));
+    }
+
+    @Test
+    public void nullableAndDeprecatedChange() throws IOException {
+    	Set<String> impacted = getImpactedNodes(file, modify(file,
+    			"          description: 'End of the time period, using IETC-RFC-3339 format'\n          type: string\n",
+    			"          description: 'End of the time period, using IETC-RFC-3339 format'\n          type: string\n          nullable: true\n          deprecated: true\n"));
+
+    	assertTrue(impacted.toString(), impacted.contains("TimePeriod"));
+    	assertFalse(impacted.toString(), impacted.contains("Money"));
+    }
+
+    /*
+     * Diagrams regenerated for a --baseline run are those including a changed node - the others are left as is
+     */
+    @Test
+    public void impactedDiagramsRegenerated() throws IOException {
+    	assertRegenerated(modify(accounts,
+    			"    PaymentPlan:\n      type: object\n      description: Defines a plan for payment (when a party wants to spread his payments)\n      properties:\n",
+    			"    PaymentPlan:\n      type: object\n      description: Defines a plan for payment (when a party wants to spread his payments)\n      properties:\n        installments:\n          type: integer\n"),
+    			"PaymentPlan");
+    }
+
+    @Test
+    public void attributeChangeRegenerated() throws IOException {
+    	assertRegenerated(modify(accounts,
+    			"        priority:\n          type: integer\n          description: Priority of the payment plan\n",
+    			"        priority:\n          type: integer\n          description: Priority of the payment plan\n          default: 1\n          nullable: true\n"),
+    			"PaymentPlan");
+    }
+
+    private void assertRegenerated(String modified, String changed) throws IOException {
+    	File target = folder.newFolder("incremental");
+    	generate(accounts, null, target);
+
+    	List<String> pumls = Utils.getFiles(".puml", target.getPath());
+    	for(String puml : pumls) {
+    		Files.writeString(Paths.get(target.getPath(), puml), STALE);
+    	}
+
+    	generate(modified, accounts, target);
+
+    	File expected = folder.newFolder("expected");
+    	generate(modified, null, expected);
+
+    	int regenerated = 0;
+    	for(String puml : pumls) {
+    		String content = Files.readString(Paths.get(expected.getPath(), puml));
+    		String actual = Files.readString(Paths.get(target.getPath(), puml));
+
+    		if(content.contains(changed)) {
+    			assertEquals(puml, content, actual);
+    			regenerated++;
+    		} else {
+    			assertEquals(puml, STALE, actual);
+    		}
+    	}
+
+    	assertTrue(regenerated>0);
+    	assertTrue(regenerated<pumls.size());
+    }
+
+    /*
+     * Copy of a specification (same file name) with one change
+     */
+    private String modify(String source, String from, String to) throws IOException {
+    	String content = Files.readString(Paths.get(source));
+
+    	assertTrue(from, content.contains(from));
+
+    	File copy = new File(folder.newFolder(), new File(source).getName());
+    	Files.writeString(copy.toPath(), content.replace(from, to));
+
+    	return copy.getPath();
+    }
+
+    private Set<String> getImpactedNodes(String baseline, String current) {
+    	ImpactAnalysis analysis = new ImpactAnalysis(getGraph(baseline));
+    	return analysis.getImpactedNodes(getGraph(current));
+    }
+
+    private CoreAPIGraph getGraph(String source) {
+    	APIModel.clean();
+    	APIModel.setSwaggerSource(source);
+    	APIModel.loadAPI(source);
+
+    	return new CoreAPIGraph();
+    }
+
+    private void generate(String source, String baseline, File target) {
+    	APIModel.clean();
+
+		Diagram argsDiagram = new Diagram();
+
+		argsDiagram.openAPIFile = source;
+		argsDiagram.baseline = baseline;
+		argsDiagram.targetDirectory = target.getPath();
+
+    	new GenerateDiagram(argsDiagram).execute();
+    }
+
+}
@@ -0,0 +1,645 @@
+package no.paneon.api.diagram.layout;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import no.paneon.api.diagram.GenerateDiagram;
+import no.paneon.api.diagram.app.args.Diagram;
+import no.paneon.api.graph.APIGraph;
+import no.paneon.api.graph.CoreAPIGraph;
+import no.paneon.api.graph.Node;
+import no.paneon.api.model.APIModel;
+import no.paneon.api.utils.Utils;
+
+/*
+ * The incremental placement view, reachability, graph metrics and node queue of LayoutGraph against
+ * a scan of the layout edges and queries / search of the API graph, and the decision tables of EdgeAnalyzer
+ * against the rule chains evaluated in order, the circle catalogue against a scan of the circles, the
+ * node table against the API graph and the layout edges, the position index against a scan of the positions,
+ * and the place paths against the depth first search they replaced
+ */
+public class PlacementViewTest  {
+
+    static final Logger LOG = LogManager.getLogger(PlacementViewTest.class);
+
+	public PlacementViewTest() {
+	}
+
+    static String file = "./src/test/resources/Quote_Management_5.0.0_oas.yaml";
+
+    static String catalog = "./src/test/resources/TMF620-ProductCatalog-v4.1.0.swagger.json";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void runOnceAfterClass() {
+        APIModel.clean();
+    }
+
+    @Test
+    public void placementViewEqualsEdgeScan() throws IOException {
+
+    	for(LayoutGraph layoutGraph : getLayouts()) {
+    		String resource = layoutGraph.getResource();
+
+    		for(Node node : layoutGraph.layoutGraph.vertexSet()) {
+    			LOG.debug("placementViewEqualsEdgeScan:: resource={} node={}", resource, node);
+
+    			for(Place direction : Place.values()) {
+    				List<Node> expected = new ArrayList<>(new LinkedHashSet<>(scanPlacedAt(layoutGraph, node, direction)));
+
+    				assertEquals(resource + " " + node + " " + direction, expected, layoutGraph.getPlacedAt(node, direction));
+    				assertEquals(resource + " " + node + " " + direction, !expected.isEmpty(), layoutGraph.isPlacedAt(node, direction));
+    			}
+
+    			assertEquals(resource + " " + node, scanPlaced(layoutGraph, node), layoutGraph.getPlaced(node));
+    		}
+    	}
+
+    }
+
+    @Test
+    public void reachabilityEqualsSearch() throws IOException {
+
+    	for(LayoutGraph layoutGraph : getLayouts()) {
+    		String resource = layoutGraph.getResource();
+
+    		List<Node> nodes = new ArrayList<>(layoutGraph.layoutGraph.vertexSet());
+
+    		for(Node from : nodes) {
+    			for(Node to : nodes) {
+    				assertEquals(resource + " " + from + " " + to, !layoutGraph.layoutGraph.getAllEdges(from, to).isEmpty(), layoutGraph.hasDirectConnection(from, to));
+
+    				List<Node> exclude = new LinkedList<>();
+    				assertEquals(resource + " " + from + " " + to, searchPath(layoutGraph, from, to, exclude, new ArrayList<>(), true), layoutGraph.isPath(from, to, exclude));
+
+    				for(Node excluded : layoutGraph.getNeighbours(from)) {
+    					exclude = List.of(excluded);
+        				assertEquals(resource + " " + from + " " + to + " " + excluded, searchPath(layoutGraph, from, to, exclude, new ArrayList<>(), true), layoutGraph.isPath(from, to, exclude));
+    				}
+    			}
+    		}
+    	}
+
+    }
+
+    @Test
+    public void metricsEqualGraphQueries() throws IOException {
+
+    	for(LayoutGraph layoutGraph : getLayouts()) {
+    		String resource = layoutGraph.getResource();
+    		APIGraph apiGraph = layoutGraph.apiGraph;
+    		GraphMetrics metrics = layoutGraph.getMetrics();
+
+    		for(Node node : layoutGraph.layoutGraph.vertexSet()) {
+    			String label = resource + " " + node;
+
+    			assertEquals(label, apiGraph.getOutboundNeighbours(node).size(), metrics.getOutboundCount(node));
+    			assertEquals(label, apiGraph.getInboundNeighbours(node).size(), metrics.getInboundCount(node));
+    			assertEquals(label, apiGraph.getNeighbours(node).size(), metrics.getNeighbourCount(node));
+    			assertEquals(label, apiGraph.getSubGraph(node).size(), metrics.getSubGraphSize(node));
+    			assertEquals(label, CoreAPIGraph.getSubGraphNodes(apiGraph.getGraph(), node).size(), metrics.getSubGraphNodesSize(node));
+    			assertEquals(label, apiGraph.isLeafNode(node), metrics.isLeafNode(node));
+    			assertEquals(label, apiGraph.isSingleFromNode(node), metrics.isSingleFromNode(node));
+    			assertEquals(label, apiGraph.isLinearPath(node,2), metrics.isLinearPath(node,2));
+    			assertEquals(label, apiGraph.isCompositeNode(node), metrics.isCompositeNode(node));
+
+    			int inboundFromPlaced = (int) apiGraph.getInboundNeighbours(node).stream().filter(layoutGraph::isPlaced).count();
+    			assertEquals(label, inboundFromPlaced, layoutGraph.getInboundEdgesFromPlaced(node));
+    		}
+    	}
+
+    }
+
+    @Test
+    public void queueEqualsRescan() throws IOException {
+
+    	for(LayoutGraph layoutGraph : getLayouts()) {
+    		String resource = layoutGraph.getResource();
+
+    		List<Node> nodesToProcess = new LinkedList<>(layoutGraph.layoutGraph.vertexSet());
+    		NodeQueue queue = layoutGraph.newNodeQueue(nodesToProcess);
+
+    		Optional<Node> expected = rescanNextNode(layoutGraph, nodesToProcess);
+    		while(expected.isPresent()) {
+    			assertEquals(resource, expected, queue.poll());
+    			nodesToProcess.remove(expected.get());
+    			expected = rescanNextNode(layoutGraph, nodesToProcess);
+    		}
+    		assertEquals(resource, Optional.empty(), queue.poll());
+    	}
+
+    }
+
+    @Test
+    public void decisionTableEqualsRuleChain() throws IOException {
+
+    	for(LayoutGraph layoutGraph : getLayouts()) {
+    		String resource = layoutGraph.getResource();
+    		APIGraph apiGraph = layoutGraph.apiGraph;
+
+    		for(Place place : Place.coreValues()) {
+    			DecisionTable table = EdgeAnalyzer.edgeConditions.get(place);
+
+    			for(int pass=0; pass<2; pass++) {
+    				for(Node from : layoutGraph.layoutGraph.vertexSet()) {
+    					for(Node to : apiGraph.getOutboundNeighbours(from)) {
+    						assertEquals(resource + " " + place + " " + from + " " + to,
+    								evaluateInOrder(table, to, from, apiGraph, layoutGraph),
+    								table.isCandidate(to, from, apiGraph, layoutGraph));
+    					}
+    				}
+    				// second pass with the rules ordered by the statistics of the first
+    				table.reorder();
+    			}
+    		}
+    	}
+
+    }
+
+    @Test
+    public void circleCatalogueEqualsScan() throws IOException {
+
+    	for(LayoutGraph layoutGraph : getLayouts()) {
+    		String resource = layoutGraph.getResource();
+    		CircleCatalogue catalogue = layoutGraph.getCircleCatalogue();
+    		List<List<Node>> circles = catalogue.getCircles();
+
+    		for(Node node : layoutGraph.layoutGraph.vertexSet()) {
+    			String label = resource + " " + node;
+
+    			assertEquals(label, circles.stream().anyMatch(circle -> circle.contains(node)), catalogue.contains(node));
+    			assertEquals(label, circles.stream().flatMap(List::stream).filter(node::equals).count(), catalogue.getOccurrences(node));
+
+    			List<Node> left = layoutGraph.getPlacedAt(node, Place.LEFT);
+    			List<Node> right = layoutGraph.getPlacedAt(node, Place.RIGHT);
+    			boolean both = circles.stream().anyMatch(circle -> left.stream().anyMatch(circle::contains) && right.stream().anyMatch(circle::contains));
+    			assertEquals(label, both, layoutGraph.hasPlacedCircle(node));
+    		}
+
+    		// circles of the first node consumed, the rest still active
+    		List<Node> nodes = new ArrayList<>(layoutGraph.layoutGraph.vertexSet());
+    		if(!nodes.isEmpty()) {
+    			Node first = nodes.get(0);
+    			catalogue.consume(first);
+    			assertTrue(resource, catalogue.getActiveCircles(first).isEmpty());
+
+    			for(Node node : nodes) {
+    				List<List<Node>> expected = circles.stream().filter(circle -> circle.contains(node) && !circle.contains(first)).toList();
+    				assertEquals(resource + " " + node, expected, catalogue.getActiveCircles(node));
+    			}
+    		}
+    	}
+
+    }
+
+    @Test
+    public void circleEnumerationIsBounded() throws IOException {
+
+    	for(LayoutGraph layoutGraph : getLayouts()) {
+    		CircleCatalogue.Enumeration all = new CircleCatalogue.Enumeration(layoutGraph.table, 0, 0);
+    		all.run();
+    		assertFalse(all.limited);
+
+    		CircleCatalogue.Enumeration bounded = new CircleCatalogue.Enumeration(layoutGraph.table, 1, 0);
+    		bounded.run();
+    		assertTrue(bounded.circles.size() <= 1);
+    		if(all.circles.size() > 1) assertTrue(bounded.limited);
+
+    		for(List<Node> circle : all.circles) {
+    			assertTrue(circle.size() > 1);
+    			assertEquals(circle.size(), new HashSet<>(circle).size());
+    		}
+    	}
+
+    }
+
+    @Test
+    public void nodeTableEqualsGraph() throws IOException {
+
+    	for(LayoutGraph layoutGraph : getLayouts()) {
+    		String resource = layoutGraph.getResource();
+    		APIGraph apiGraph = layoutGraph.apiGraph;
+    		NodeTable table = layoutGraph.table;
+
+    		assertEquals(resource, layoutGraph.layoutGraph.vertexSet().size(), table.size());
+
+    		for(Node node : layoutGraph.layoutGraph.vertexSet()) {
+    			String label = resource + " " + node;
+    			int id = table.getId(node);
+
+    			assertEquals(label, node, table.getNode(id));
+    			assertEquals(label, node.getName(), table.getName(id));
+    			assertEquals(label, layoutGraph.isPlaced(node), layoutGraph.isPlaced(node.getName()));
+
+    			List<Node> outbound = new ArrayList<>();
+    			for(int i=table.getOutboundStart(id); i<table.getOutboundEnd(id); i++) outbound.add(table.getNode(table.getOutboundTargets()[i]));
+    			assertEquals(label, new ArrayList<>(apiGraph.getOutboundNeighbours(node)), outbound);
+
+    			Set<Node> neighbours = new HashSet<>();
+    			for(int i=table.getNeighbourStart(id); i<table.getNeighbourEnd(id); i++) neighbours.add(table.getNode(table.getNeighbourTargets()[i]));
+    			Set<Node> expected = new HashSet<>(apiGraph.getOutboundNeighbours(node));
+    			expected.addAll(apiGraph.getInboundNeighbours(node));
+    			assertEquals(label, expected, neighbours);
+
+    			for(Node to : layoutGraph.layoutGraph.vertexSet()) {
+    				Set<Place> directions = layoutGraph.layoutGraph.getAllEdges(node, to).stream()
+    											.map(LayoutEdge::getDirection)
+    											.filter(Objects::nonNull)
+    											.collect(Collectors.toSet());
+    				int packed = table.getPlacedDirections(id, table.getId(to));
+    				for(Place place : Place.values()) {
+    					assertEquals(label + " " + to + " " + place, directions.contains(place), (packed & 1<<NodeTable.getCode(place))!=0);
+    				}
+    			}
+    		}
+
+    		assertEquals(resource, -1, table.getId("no such node"));
+    	}
+
+    }
+
+    /*
+     * Place paths (memoised, as left by the layout and repeated) against the depth first search they replaced, for 
+     * the neighbours of every pair of nodes - including the circle heavy ProductOffering of the product catalog
+     */
+    @Test
+    public void placePathsEqualSearch() throws IOException {
+
+    	List<LayoutGraph> layouts = new LinkedList<>(getLayouts());
+    	layouts.addAll(getLayouts(catalog));
+
+    	for(LayoutGraph layoutGraph : layouts) {
+    		assertPlacePathsEqualSearch(layoutGraph, "");
+    	}
+
+    }
+
+    /*
+     * Memoised place paths through the nodes of a new layout edge are searched again - the others are kept
+     */
+    @Test
+    public void placePathsAfterNewEdgeEqualSearch() throws IOException {
+
+    	for(LayoutGraph layoutGraph : getLayouts()) {
+    		assertPlacePathsEqualSearch(layoutGraph, "");
+
+    		List<Node> nodes = new ArrayList<>(layoutGraph.layoutGraph.vertexSet());
+    		if(nodes.size()<2) continue;
+
+    		layoutGraph.placeAtHelper(nodes.get(nodes.size()-1), Place.RIGHT, nodes.get(0));
+
+    		assertPlacePathsEqualSearch(layoutGraph, " after new edge");
+    	}
+
+    }
+
+    private void assertPlacePathsEqualSearch(LayoutGraph layoutGraph, String context) {
+    	String resource = layoutGraph.getResource();
+
+    	List<Node> nodes = new ArrayList<>(layoutGraph.layoutGraph.vertexSet());
+
+    	for(Node nodeA : nodes) {
+    		for(Node nodeB : nodes) {
+    			String label = resource + " " + nodeA + " " + nodeB + context;
+
+    			List<List<Place>> expected = searchPlacePaths(layoutGraph, new HashSet<>(layoutGraph.getNeighbours(nodeA)), new HashSet<>(layoutGraph.getNeighbours(nodeB))).stream()
+    											.map(PlacementViewTest::aggregate)
+    											.filter(path -> !path.isEmpty())
+    											.toList();
+
+    			for(int pass=0; pass<2; pass++) {
+    				Set<Node> targets = new HashSet<>(layoutGraph.getNeighbours(nodeB));
+    				assertEquals(label + " pass " + pass, expected, layoutGraph.getPlacePaths(new HashSet<>(layoutGraph.getNeighbours(nodeA)), targets));
+    				assertEquals(label + " targets", new HashSet<>(layoutGraph.getNeighbours(nodeB)), targets);
+    			}
+    		}
+    	}
+    }
+
+    /*
+     * The level and cell index of Positions against a scan of the positions (the queries before the index) - for the
+     * final layouts and for random placements over the same nodes (including collisions)
+     */
+    @Test
+    public void positionIndexEqualsScan() throws IOException {
+
+    	for(LayoutGraph layoutGraph : getLayouts()) {
+    		List<Node> nodes = new ArrayList<>(layoutGraph.layoutGraph.vertexSet());
+
+    		assertPositionsEqualScan(layoutGraph.getResource(), layoutGraph);
+
+    		Positions positions = new Positions();
+    		Random random = new Random(nodes.size());
+    		for(int i=0; i<nodes.size()*4; i++) {
+    			Node from = nodes.get(random.nextInt(nodes.size()));
+    			Node to = nodes.get(random.nextInt(nodes.size()));
+    			if(from.equals(to)) continue;
+
+    			switch(random.nextInt(6)) {
+    			case 0: positions.setPosition(from); break;
+    			case 1: positions.positionToLeft(from, to); break;
+    			case 2: positions.positionToRight(from, to); break;
+    			case 3: positions.positionAbove(from, to); break;
+    			case 4: positions.positionBelow(from, to); break;
+    			default: positions.position(from, to, Place.coreValues().get(random.nextInt(4)));
+    			}
+
+    			assertPositionsEqualScan(layoutGraph.getResource() + " step " + i, positions);
+    		}
+    	}
+
+    }
+
+    private static void assertPositionsEqualScan(String label, Positions positions) {
+    	List<Node> placed = new ArrayList<>(positions.position.keySet());
+
+    	for(Node node : placed) {
+    		Position pos = positions.position.get(node);
+    		String message = label + " " + node + " " + pos;
+
+    		List<Node> level = placed.stream().filter(n -> positions.position.get(n).getY()==pos.getY()).toList();
+    		List<Node> others = level.stream().filter(n -> !n.equals(node)).toList();
+
+    		assertEquals(message, new HashSet<>(level), new HashSet<>(positions.placedAtLevel(node)));
+
+    		for(int offset=-1; offset<=1; offset++) {
+    			int y = pos.getY()+offset;
+    			assertEquals(message + " offset " + offset, placed.stream().filter(n -> positions.position.get(n).getY()==y).count(), positions.currentlyPlacedAtLevel(node, offset));
+    		}
+
+    		assertEquals(message, others.stream().filter(n -> positions.position.get(n).getX()<=pos.getX()).toList(), positions.currentPlacedLeftOf(node));
+    		assertEquals(message, others.stream().filter(n -> positions.position.get(n).getX()>=pos.getX()).collect(Collectors.toSet()), new HashSet<>(positions.currentPlacedRightOf(node)));
+    		assertEquals(message, new HashSet<>(others), new HashSet<>(positions.currentPlacedAbove(node)));
+    		assertEquals(message, new HashSet<>(others), new HashSet<>(positions.currentPlacedBelow(node)));
+
+    		for(Place direction : Place.coreValues()) {
+    			Set<Node> expected = others.stream().filter(n -> {
+    				Position p = positions.position.get(n);
+    				switch(direction) {
+    				case LEFT:  return p.getX()<pos.getX();
+    				case RIGHT: return p.getX()>pos.getX();
+    				case ABOVE: return p.getY()<pos.getY();
+    				default:    return p.getY()>pos.getY();
+    				}
+    			}).collect(Collectors.toSet());
+
+    			assertEquals(message + " " + direction, expected, new HashSet<>(positions.currentPlaced(node, direction)));
+    			assertEquals(message + " " + direction, !expected.isEmpty(), positions.isPlaced(node, direction));
+    		}
+
+    		Set<Node> cell = placed.stream().filter(n -> positions.position.get(n).equals(pos)).collect(Collectors.toSet());
+    		assertEquals(message, cell, positions.getNodesAt(pos));
+    		assertEquals(message, cell.size()>1, positions.hasCollision(node));
+
+    		for(Node other : level) {
+    			Position otherPos = positions.position.get(other);
+    			Set<Node> between = level.stream().filter(n -> {
+    				int x = positions.position.get(n).getX();
+    				return Math.min(pos.getX(), otherPos.getX())<x && x<Math.max(pos.getX(), otherPos.getX());
+    			}).collect(Collectors.toSet());
+
+    			assertEquals(message + " " + other, between, new HashSet<>(positions.currentlyPlacedBetween(node, other)));
+    		}
+    	}
+    }
+
+    private List<LayoutGraph> getLayouts() throws IOException {
+    	return getLayouts(file);
+    }
+
+    /*
+     * Laid out graph for each resource of the specification
+     */
+    private List<LayoutGraph> getLayouts(String file) throws IOException {
+    	File target = folder.newFolder();
+
+		Diagram args = new Diagram();
+		args.openAPIFile = file;
+		args.targetDirectory = target.getPath();
+
+		APIModel.clean();
+    	new GenerateDiagram(args).execute();
+
+    	DiagramGenerator generator = new DiagramGenerator(args, file, target.getPath());
+
+    	List<String> resources = APIModel.getResources();
+    	assertFalse(resources.isEmpty());
+
+    	List<LayoutGraph> res = new LinkedList<>();
+    	for(String resource : resources) {
+    		APIGraph apiGraph = new APIGraph(resource);
+    		List<String> subGraphs = new LinkedList<>();
+    		subGraphs.add(resource);
+
+    		Layout layout = new Layout(apiGraph, generator.layoutConfig);
+    		generator.generateDiagramForGraph(new no.paneon.api.diagram.puml.Diagram(args, file, resource), layout, resource, apiGraph, subGraphs);
+
+    		res.add(layout.layoutGraph);
+    	}
+    	return res;
+    }
+
+    /*
+     * Previous implementation of LayoutGraph.getPlacedAt
+     */
+    private static List<Node> scanPlacedAt(LayoutGraph layoutGraph, Node node, Place direction) {
+		List<Node> res = new LinkedList<>();
+
+		layoutGraph.layoutGraph.outgoingEdgesOf(node).stream()
+				.filter(edge -> edge.isSameDirection(direction))
+				.map(layoutGraph.layoutGraph::getEdgeTarget)
+				.filter(n -> !n.equals(node))
+				.forEach(res::add);
+
+		layoutGraph.layoutGraph.incomingEdgesOf(node).stream()
+				.filter(edge -> edge.isSameDirection(Place.getReverse(direction)))
+				.map(layoutGraph.layoutGraph::getEdgeSource)
+				.filter(n -> !n.equals(node))
+				.filter(n -> !res.contains(n))
+				.toList()
+				.forEach(res::add);
+
+		return res;
+    }
+
+    /*
+     * Previous implementation of LayoutGraph.isPath
+     */
+    private static boolean searchPath(LayoutGraph layoutGraph, Node from, Node to, List<Node> exclude, List<Node> seen, boolean first) {
+		if(exclude.contains(to) || to.equals(from) || seen.contains(from)) {
+			return false;
+		}
+
+	    seen.add(from);
+
+	    Set<Node> neighbours = new LinkedHashSet<>(layoutGraph.apiGraph.getOutboundNeighbours(from));
+	    neighbours.addAll(layoutGraph.apiGraph.getInboundNeighbours(from));
+
+	    return neighbours.stream()
+	    			.filter(n -> !layoutGraph.layoutGraph.outgoingEdgesOf(n).isEmpty() || !layoutGraph.layoutGraph.incomingEdgesOf(n).isEmpty())
+	    			.filter(n -> !exclude.contains(n))
+	    			.anyMatch(n -> (n.equals(to) && !first) || searchPath(layoutGraph, n, to, exclude, seen, false));
+    }
+
+    /*
+     * Previous implementation of LayoutGraph.getPlacePaths - the steps of the first path found depth first
+     */
+    private static List<List<Place>> searchPlacePaths(LayoutGraph layoutGraph, Set<Node> sources, Set<Node> targets) {
+		List<List<Place>> paths = new LinkedList<>();
+
+		targets.removeAll(sources);
+
+		for(Node source : sources) {
+			List<Place> path = searchPlacePaths(layoutGraph, source, targets);
+			if(!path.isEmpty()) paths.add(path);
+		}
+
+		return paths;
+    }
+
+    private static List<Place> searchPlacePaths(LayoutGraph layoutGraph, Node from, Set<Node> targets) {
+		List<Place> path = new LinkedList<>();
+
+		Map<Node,Boolean> visited = new HashMap<>();
+		layoutGraph.layoutGraph.vertexSet().forEach(node -> visited.put(node, false));
+
+		Set<Node> neighbours = layoutGraph.getNeighbours(from).stream().filter(n -> !n.equals(from)).collect(Collectors.toSet());
+
+		Set<Node> common = Utils.intersection(neighbours, targets);
+
+		if(!common.isEmpty()) {
+			return common.stream()
+						.map(node -> layoutGraph.layoutGraph.getAllEdges(from, node))
+						.flatMap(Set::stream)
+						.map(LayoutEdge::getDirection)
+						.toList();
+		}
+
+		for(Node node : neighbours) {
+			if(Boolean.FALSE.equals(visited.get(node))) {
+				path = searchPlacePathsUtil(layoutGraph, node, targets, visited, new LinkedList<>());
+				if(!path.isEmpty()) return path;
+			}
+		}
+
+		return path;
+    }
+
+    private static List<Place> searchPlacePathsUtil(LayoutGraph layoutGraph, Node node, Set<Node> targets, Map<Node,Boolean> visited, List<Place> path) {
+		if(Boolean.TRUE.equals(visited.get(node)) || targets.contains(node)) return path;
+
+		visited.put(node, true);
+
+		Set<Node> neighbours = layoutGraph.getNeighbours(node).stream().filter(n -> !n.equals(node)).collect(Collectors.toSet());
+
+		if(neighbours.size() > 1) {
+			for(Node neighbour : neighbours) {
+				if(Boolean.FALSE.equals(visited.get(neighbour))) {
+					List<Place> subPath = new LinkedList<>(path);
+
+					subPath.addAll(layoutGraph.layoutGraph.getAllEdges(node, neighbour).stream().map(LayoutEdge::getDirection).collect(Collectors.toSet()));
+
+					Set<Place> reverseSteps = layoutGraph.layoutGraph.getAllEdges(neighbour, node).stream().map(LayoutEdge::getDirection).collect(Collectors.toSet());
+					subPath.addAll(reverseSteps.stream().map(Place::getReverse).collect(Collectors.toSet()));
+
+					List<Place> candidate = searchPlacePathsUtil(layoutGraph, neighbour, targets, visited, subPath);
+					if(!candidate.isEmpty()) return candidate;
+
+				} else if(targets.contains(neighbour)) {
+					return path;
+				}
+			}
+		}
+
+		return new LinkedList<>();
+    }
+
+    /*
+     * Previous LayoutGraph.getAggregatedDirectionOfSteps
+     */
+    private static List<Place> aggregate(List<Place> steps) {
+    	int x = 0;
+    	int y = 0;
+    	for(Place step : steps) {
+    		if(step==null) continue;
+
+    		switch(step) {
+    		case ABOVE: case FORCEABOVE: y++; break;
+    		case BELOW: case FORCEBELOW: y--; break;
+    		case LEFT:  case FORCELEFT:  x--; break;
+    		case RIGHT: case FORCERIGHT: x++; break;
+    		default:
+    		}
+    	}
+
+    	List<Place> res = new LinkedList<>();
+    	if(x<0) res.add(Place.LEFT);
+    	if(x>0) res.add(Place.RIGHT);
+    	if(y<0) res.add(Place.BELOW);
+    	if(y>0) res.add(Place.ABOVE);
+    	return res;
+    }
+
+    /*
+     * Previous evaluation of the rule chains in EdgeAnalyzer.computeLayout (no feature bits, declared order)
+     */
+    private static boolean evaluateInOrder(DecisionTable table, Node to, Node from, APIGraph apiGraph, LayoutGraph layoutGraph) {
+    	for(DecisionTable.Rule rule : table.getRules()) {
+    		EdgeAnalyzer.Status status = rule.condition.isCandidate(to, from, apiGraph, layoutGraph);
+    		if(status!=EdgeAnalyzer.Status.INDETERMINATE) return status==EdgeAnalyzer.Status.ACCEPT;
+    	}
+    	return false;
+    }
+
+    /*
+     * Previous implementation of Layout.getNextNode
+     */
+    private static Optional<Node> rescanNextNode(LayoutGraph layoutGraph, List<Node> nodesToProcess) {
+		List<Node> sorted = nodesToProcess.stream()
+					.sorted(Comparator.comparing(n -> - layoutGraph.getInboundEdgesFromPlaced(n) ))
+					.toList();
+
+		Optional<Node> found = sorted.stream().filter(layoutGraph::isPlaced).findFirst();
+
+		return found.isPresent() ? found : sorted.stream().findFirst();
+    }
+
+    /*
+     * Previous implementation of LayoutGraph.getPlaced
+     */
+    private static Map<Place,Set<Node>> scanPlaced(LayoutGraph layoutGraph, Node node) {
+		Map<Place,Set<Node>> res = new EnumMap<>(Place.class);
+
+		for(LayoutEdge edge : layoutGraph.layoutGraph.outgoingEdgesOf(node)) {
+			if(edge.getDirection()!=null) res.computeIfAbsent(edge.getDirection(), d -> new HashSet<>()).add(layoutGraph.layoutGraph.getEdgeTarget(edge));
+		}
+
+		return res;
+    }
+
+}
@@ -0,0 +1,95 @@
+package no.paneon.api.diagram.puml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.*;
+import org.junit.rules.TemporaryFolder;
+
+import no.paneon.api.diagram.GenerateDiagram;
+import no.paneon.api.diagram.app.args.Diagram;
+import no.paneon.api.model.APIModel;
+import no.paneon.api.utils.Config;
+import no.paneon.api.utils.Utils;
+
+/*
+ * Diagrams generated with the class models and fragments of FragmentCache against the diagrams generated without
+ * (no room in the cache - fragmentCacheSize 0)
+ */
+public class FragmentCacheTest  {
+
+    static final Logger LOG = LogManager.getLogger(FragmentCacheTest.class);
+
+	public FragmentCacheTest() {
+	}
+
+    static final List<String> specs = Arrays.asList(
+    		"./src/test/resources/Quote_Management_5.0.0_oas.yaml",
+    		"./src/test/resources/Product_Inventory_Management_5.0.0_oas.yaml",
+    		"./src/test/resources/TMF666-Account_Management-v5.0.0.oas.yaml");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @AfterClass
+    public static void runOnceAfterClass() {
+        APIModel.clean();
+        Config.init();
+        FragmentCache.clear();
+    }
+
+    @Test
+    public void identicalWithoutCache() throws IOException {
+    	File noCache = folder.newFile("noCache.json");
+    	Files.writeString(noCache.toPath(), "{ \"" + FragmentCache.MAX_ENTRIES + "\": 0 }");
+
+    	for(String spec : specs) {
+    		File cached = folder.newFolder();
+    		generate(spec, cached, null);
+
+    		String summary = FragmentCache.getSummary();
+    		assertFalse(spec + " " + summary, summary.startsWith("hits=0 "));
+
+    		File uncached = folder.newFolder();
+    		generate(spec, uncached, noCache);
+
+    		summary = FragmentCache.getSummary();
+    		assertTrue(spec + " " + summary, summary.endsWith("classModels=0 fragments=0"));
+
+    		List<String> pumls = Utils.getFiles(".puml", uncached.getPath());
+    		assertFalse(spec, pumls.isEmpty());
+    		assertEquals(spec, pumls.size(), Utils.getFiles(".puml", cached.getPath()).size());
+
+    		for(String puml : pumls) {
+    			assertArrayEquals(spec + " " + puml,
+    					Files.readAllBytes(Paths.get(uncached.getPath(), puml)),
+    					Files.readAllBytes(Paths.get(cached.getPath(), puml)));
+    		}
+    	}
+    }
+
+    private void generate(String source, File target, File config) {
+    	APIModel.clean();
+    	Config.init();
+
+		Diagram argsDiagram = new Diagram();
+
+		argsDiagram.openAPIFile = source;
+		argsDiagram.targetDirectory = target.getPath();
+		if(config!=null) argsDiagram.configs.add(config.getPath());
+
+    	new GenerateDiagram(argsDiagram).execute();
+    }
+
+}
@@ -0,0 +1,102 @@
+package no.paneon.api.diagram.puml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertNotSame;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.*;
+
+import no.paneon.api.utils.Config;
+
+/*
+ * Templates written against the text replacement of Utils.replaceParagraph they replaced
+ * (values are plain text - a value holding ${VARIABLE} is replaced again depending on the order of the map)
+ */
+public class TemplateTest  {
+
+    static final Logger LOG = LogManager.getLogger(TemplateTest.class);
+
+	public TemplateTest() {
+	}
+
+    static final List<String> sources = Arrays.asList(
+    		"",
+    		"no variables",
+    		"${RESOURCE}",
+    		"${RESOURCE}${FILE}",
+    		"' Resource:  ${RESOURCE}\n' Source:    ${FILE}\n",
+    		"${FILE} and ${FILE} again",
+    		"unknown ${UNKNOWN} and ${RESOURCE}",
+    		"empty ${} name",
+    		"empty value ${EMPTY}.",
+    		"unclosed ${RESOURCE",
+    		"closed twice ${RESOURCE}}",
+    		"nested ${${RESOURCE}}",
+    		"nested unknown ${A${FILE}B}",
+    		"dollar $RESOURCE and {RESOURCE} and $ {FILE}",
+    		"trailing ${");
+
+    @Before
+    public void runBeforeTestMethod() {
+    	Template.clear();
+    }
+
+    @Test
+    public void identicalToReplaceParagraph() throws IOException {
+    	Map<String,String> variables = getVariables();
+
+    	for(String source : sources) {
+    		assertEquals(source, Utils.replaceParagraph(source, variables), write(source, variables));
+    	}
+    }
+
+    @Test
+    public void diagramHeaderIdenticalToReplaceParagraph() throws IOException {
+    	Config.init();
+
+    	String source = Config.getPuml();
+    	Map<String,String> variables = getVariables();
+
+    	assertEquals(Utils.replaceParagraph(source, variables), write(source, variables));
+
+    	variables.remove("VENDOR_COLOR");
+    	assertEquals(Utils.replaceParagraph(source, variables), write(source, variables));
+    }
+
+    @Test
+    public void clearedForNewRun() {
+    	Template template = Template.compile("${RESOURCE}");
+    	assertSame(template, Template.compile("${RESOURCE}"));
+
+    	Template.clear();
+
+    	assertEquals(0, Template.compiled.size());
+    	assertNotSame(template, Template.compile("${RESOURCE}"));
+    }
+
+    private static String write(String source, Map<String,String> variables) throws IOException {
+    	StringWriter out = new StringWriter();
+    	Template.compile(source).write(out, variables);
+    	return out.toString();
+    }
+
+    private static Map<String,String> getVariables() {
+    	Map<String,String> res = new HashMap<>();
+    	res.put("RESOURCE", "Quote");
+    	res.put("FILE", "Quote_Management_5.0.0_oas.yaml");
+    	res.put("DATE", "2024-01-01 00:00:00+0000");
+    	res.put("VENDOR_COLOR", "#0000FF");
+    	res.put("EMPTY", "");
+    	return res;
+    }
+
+}